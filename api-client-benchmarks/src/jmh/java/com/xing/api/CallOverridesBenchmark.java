@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+import com.xing.api.resources.UserProfilesResource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSession;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Measures calls per second with and without per call overrides (timeouts, hostname verifier). The network is
+ * short-circuited by an interceptor, so the numbers reflect the client side cost of a call only.
+ */
+@State(Scope.Benchmark)
+public class CallOverridesBenchmark {
+    @Param({"none", "readTimeout", "allTimeouts", "hostnameVerifier"})
+    String overrides;
+
+    UserProfilesResource resource;
+    HostnameVerifier verifier;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ByteString userJson = Payloads.userById();
+        OkHttpClient client = new OkHttpClient.Builder()
+              .addInterceptor(new Interceptor() {
+                  @Override
+                  public okhttp3.Response intercept(Chain chain) {
+                      return new okhttp3.Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(userJson, Converter.MEDIA_TYPE_JSON))
+                            .build();
+                  }
+              })
+              .build();
+        resource = new UserProfilesResource(new XingApi.Builder().loggedOut().client(client).build());
+        verifier = new HostnameVerifier() {
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return true;
+            }
+        };
+    }
+
+    @Benchmark
+    public XingUser execute() throws IOException {
+        CallSpec<XingUser, HttpError> spec = resource.getUserById("123456_abcdef");
+        switch (overrides) {
+            case "readTimeout":
+                spec.readTimeout(30);
+                break;
+            case "allTimeouts":
+                spec.connectTimeout(10).readTimeout(30).writeTimeout(30);
+                break;
+            case "hostnameVerifier":
+                spec.hostnameVerifier(verifier);
+                break;
+            default:
+                break;
+        }
+        return spec.execute().body();
+    }
+}
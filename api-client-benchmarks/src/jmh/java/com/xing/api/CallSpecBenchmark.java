@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+import com.xing.api.resources.ContactsResource;
+import com.xing.api.resources.UserProfilesResource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+import okhttp3.Request;
+
+/** Measures the cost of building a {@link CallSpec} and its underlying {@link Request}. */
+@State(Scope.Benchmark)
+public class CallSpecBenchmark {
+    XingApi api;
+    UserProfilesResource userProfiles;
+    ContactsResource contacts;
+
+    @Setup
+    public void setUp() {
+        api = new XingApi.Builder().loggedOut().build();
+        userProfiles = new UserProfilesResource(api);
+        contacts = new ContactsResource(api);
+    }
+
+    @Benchmark
+    public CallSpec<XingUser, HttpError> getUserById() {
+        return userProfiles.getUserById("123456_abcdef");
+    }
+
+    @Benchmark
+    public Request getUserContactsRequest() {
+        CallSpec<List<XingUser>, HttpError> spec = contacts.getUserContacts("123456_abcdef")
+              .queryParam("limit", 100)
+              .queryParam("offset", 200)
+              .queryParam("user_fields", "id", "display_name", "photo_urls.size_128x128");
+        return spec.request();
+    }
+
+    @Benchmark
+    public Request formEncodedRequest() {
+        return Resource.<Void, HttpError>newPostSpec(api, "/v1/users/me/status_message", true)
+              .responseAs(Void.class)
+              .formField("message", "Benchmarking the XING api client")
+              .build()
+              .request();
+    }
+}
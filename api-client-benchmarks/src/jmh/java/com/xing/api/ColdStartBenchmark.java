@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Compares serving a contacts list after a process restart from the disk cache with decoding it from json again. The
+ * json is already in memory, so the network is left out in favour of the json.
+ */
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+    private static final String KEY = "contacts";
+
+    @Param({"100"})
+    int contactsCount;
+
+    Converter converter;
+    Type contactsType;
+    ByteString contactsJson;
+    File directory;
+    DiskStore store;
+
+    @Setup
+    public void setUp() throws Exception {
+        converter = new XingApi.Builder().loggedOut().build().converter();
+        contactsType = Converter.list(XingUser.class, "contacts", "users");
+        contactsJson = Payloads.contacts(contactsCount);
+        directory = Files.createTempDirectory("cold-start").toFile();
+        store = new DiskStore(directory, 16 * 1024 * 1024, Collections.<String>emptySet());
+        store.write(KEY, decodeJson(), null, "\"etag\"", null, Long.MAX_VALUE);
+        store.awaitWrites();
+        if (readFromDisk() == null) throw new AssertionError("Contacts are not read back from disk");
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.clear();
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<XingUser> decodeJson() throws IOException {
+        return converter.convertFromBody(contactsType, ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+
+    @Benchmark
+    public Object readFromDisk() {
+        DiskStore.Record record = store.read(KEY);
+        return record != null ? record.body : null;
+    }
+
+    /** Includes scanning the segments to build the index, the first read after a restart. */
+    @Benchmark
+    public Object openAndReadFromDisk() {
+        DiskStore.Record record = new DiskStore(directory, 16 * 1024 * 1024, Collections.<String>emptySet()).read(KEY);
+        return record != null ? record.body : null;
+    }
+}
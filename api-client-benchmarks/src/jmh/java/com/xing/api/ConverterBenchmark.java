@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.ProfileVisit;
+import com.xing.api.data.profile.XingUser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/** Measures {@link Converter#convertFromBody(Type, ResponseBody)} over canned payloads. */
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+    @Param({"10", "100"})
+    int contactsCount;
+
+    Converter converter;
+    Type userType;
+    Type contactsType;
+    Type visitsType;
+    ByteString userJson;
+    ByteString contactsJson;
+    ByteString visitsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = new XingApi.Builder().loggedOut().build().converter();
+        userType = Converter.first(XingUser.class, "users");
+        contactsType = Converter.list(XingUser.class, "contacts", "users");
+        visitsType = Converter.list(ProfileVisit.class, "visits");
+        userJson = Payloads.userById();
+        contactsJson = Payloads.contacts(contactsCount);
+        visitsJson = Payloads.visits();
+    }
+
+    @Benchmark
+    public XingUser user() throws IOException {
+        return converter.convertFromBody(userType, ResponseBody.create(userJson, Converter.MEDIA_TYPE_JSON));
+    }
+
+    @Benchmark
+    public List<XingUser> contacts() throws IOException {
+        return converter.convertFromBody(contactsType, ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+
+    @Benchmark
+    public List<ProfileVisit> visits() throws IOException {
+        return converter.convertFromBody(visitsType, ResponseBody.create(visitsJson, Converter.MEDIA_TYPE_JSON));
+    }
+}
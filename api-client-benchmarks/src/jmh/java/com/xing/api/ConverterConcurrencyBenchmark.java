@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.squareup.moshi.JsonAdapter;
+import com.xing.api.data.profile.XingUser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Measures how {@link Converter} scales with the number of threads decoding at the same time, as OkHttp's dispatcher
+ * threads do when many calls are enqueued. Compare the per thread scores across the thread counts.
+ */
+@State(Scope.Benchmark)
+public class ConverterConcurrencyBenchmark {
+    Converter converter;
+    Type userType;
+    ByteString userJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = new XingApi.Builder().loggedOut().build().converter();
+        userType = Converter.first(XingUser.class, "users");
+        userJson = Payloads.userById();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public JsonAdapter<XingUser> findAdapter1Thread() {
+        return converter.findAdapter(userType);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public JsonAdapter<XingUser> findAdapter4Threads() {
+        return converter.findAdapter(userType);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public JsonAdapter<XingUser> findAdapter8Threads() {
+        return converter.findAdapter(userType);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public XingUser decode1Thread() throws IOException {
+        return decode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public XingUser decode4Threads() throws IOException {
+        return decode();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public XingUser decode8Threads() throws IOException {
+        return decode();
+    }
+
+    private XingUser decode() throws IOException {
+        return converter.convertFromBody(userType, ResponseBody.create(userJson, Converter.MEDIA_TYPE_JSON));
+    }
+}
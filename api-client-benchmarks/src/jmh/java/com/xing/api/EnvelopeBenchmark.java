@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Measures how the composite adapters walk large response envelopes, i.e. a {@code contacts} response with many
+ * users and keys next to the roots that have to be skipped.
+ */
+@State(Scope.Benchmark)
+public class EnvelopeBenchmark {
+    @Param({"100"})
+    int contactsCount;
+    @Param({"0", "50"})
+    int siblingsCount;
+
+    Converter converter;
+    Type contactsType;
+    Type totalType;
+    ByteString contactsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = new XingApi.Builder().loggedOut().build().converter();
+        contactsType = Converter.list(XingUser.class, "contacts", "users");
+        totalType = Converter.single(Integer.class, "contacts", "total");
+        contactsJson = Payloads.contacts(contactsCount, siblingsCount);
+    }
+
+    /** Decodes the whole list. */
+    @Benchmark
+    public List<XingUser> contacts() throws IOException {
+        return converter.convertFromBody(contactsType, ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+
+    /** Reads a scalar behind the users list, so almost all of the time is spent walking and skipping. */
+    @Benchmark
+    public Integer total() throws IOException {
+        return converter.convertFromBody(totalType, ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+}
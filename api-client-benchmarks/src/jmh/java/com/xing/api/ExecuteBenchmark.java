@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+import com.xing.api.resources.UserProfilesResource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Measures the complete pipeline, from building the {@link CallSpec} to the decoded body, against a local {@link
+ * MockWebServer}. The numbers include the loopback round trip, use the stage benchmarks to tell where the time goes.
+ */
+@State(Scope.Benchmark)
+public class ExecuteBenchmark {
+    MockWebServer server;
+    UserProfilesResource loggedOut;
+    UserProfilesResource oauth1;
+
+    @Setup
+    public void setUp() throws IOException {
+        Payloads.muteMockWebServer();
+        final ByteString userJson = Payloads.userById();
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(new Buffer().write(userJson));
+            }
+        });
+        server.start();
+
+        loggedOut = new UserProfilesResource(new XingApi.Builder()
+              .loggedOut()
+              .apiEndpoint(server.url("/"))
+              .build());
+        oauth1 = new UserProfilesResource(new XingApi.Builder()
+              .oauth1()
+              .consumerKey("xvz1evFS4wEEPTGEFPHBog")
+              .consumerSecret("kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw")
+              .accessToken("370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb")
+              .accessSecret("LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE")
+              .apiEndpoint(server.url("/"))
+              .build());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public XingUser getUserById() throws IOException {
+        return loggedOut.getUserById("123456_abcdef").execute().body();
+    }
+
+    @Benchmark
+    public XingUser getUserByIdSigned() throws IOException {
+        return oauth1.getUserById("123456_abcdef").execute().body();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.PhotoUrls;
+import com.xing.api.data.profile.XingUser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/** Compares eager and lazy decoding of a contacts list, the way a list screen showing names and photos uses it. */
+@State(Scope.Benchmark)
+public class LazyUserBenchmark {
+    @Param({"100"})
+    int contactsCount;
+    @Param({"false", "true"})
+    boolean lazyUsers;
+
+    Converter converter;
+    Type contactsType;
+    ByteString contactsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = new XingApi.Builder().loggedOut().lazyUsers(lazyUsers).build().converter();
+        contactsType = Converter.list(XingUser.class, "contacts", "users");
+        contactsJson = Payloads.contacts(contactsCount);
+    }
+
+    @Benchmark
+    public List<XingUser> decode() throws IOException {
+        return converter.convertFromBody(contactsType, ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+
+    @Benchmark
+    public void decodeNamesAndPhotos(Blackhole blackhole) throws IOException {
+        List<XingUser> users = decode();
+        for (int i = 0, size = users.size(); i < size; i++) {
+            XingUser user = users.get(i);
+            PhotoUrls photoUrls = user.photoUrls();
+            blackhole.consume(user.displayName());
+            blackhole.consume(photoUrls != null ? photoUrls.photoLargeUrl() : null);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+
+import static com.xing.api.UrlEscapeUtils.escape;
+
+/**
+ * Measures signing a request with {@link OAuth1SigningInterceptor}, against the previous implementation which escaped
+ * and concatenated everything per request and created a new {@link javax.crypto.Mac} each time. Run with the gc
+ * profiler to compare the allocations per request. The nonce and timestamp benchmarks compare the default providers
+ * with the previous per request generation.
+ */
+@State(Scope.Benchmark)
+public class OAuth1SigningBenchmark {
+    private static final String CONSUMER_KEY = "xvz1evFS4wEEPTGEFPHBog";
+    private static final String CONSUMER_SECRET = "kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw";
+    private static final String ACCESS_TOKEN = "370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb";
+    private static final String ACCESS_SECRET = "LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE";
+    private static final String NONCE = "kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg";
+    private static final String TIMESTAMP = "1318622958";
+
+    private static final Pattern NON_WORD = Pattern.compile("\\W");
+
+    OAuth1Signer signer;
+    NonceProvider nonceProvider;
+    SecureRandom legacyRandom;
+    TimestampProvider timestampProvider;
+    Request getRequest;
+    Request postRequest;
+    OAuth1Signer.Template getTemplate;
+    OAuth1Signer.Template postTemplate;
+    OAuth1SigningInterceptor multiUser;
+    Request[] userRequests;
+    int user;
+
+    @Setup
+    public void setUp() throws IOException {
+        signer = new OAuth1Signer(CONSUMER_KEY, CONSUMER_SECRET, ACCESS_TOKEN, ACCESS_SECRET);
+        nonceProvider = new OAuth1SigningInterceptor.RandomNonceProvider();
+        legacyRandom = new SecureRandom();
+        timestampProvider = new OAuth1SigningInterceptor.SystemTimestampProvider();
+        getRequest = new Request.Builder()
+              .url("https://api.xing.com/v1/users/me/contacts?limit=100&offset=200"
+                    + "&user_fields=id,display_name,photo_urls.size_128x128")
+              .build();
+        postRequest = new Request.Builder()
+              .url("https://api.xing.com/v1/users/me/status_message")
+              .post(new FormBody.Builder().add("message", "Benchmarking the XING api client!").build())
+              .build();
+        getTemplate = OAuth1Signer.compile(getRequest);
+        postTemplate = OAuth1Signer.compile(postRequest);
+        multiUser = new OAuth1SigningInterceptor.Builder()
+              .consumerKey(CONSUMER_KEY)
+              .consumerSecret(CONSUMER_SECRET)
+              .multiUser()
+              .build();
+        userRequests = new Request[1024];
+        for (int i = 0; i < userRequests.length; i++) {
+            userRequests[i] = getRequest.newBuilder()
+                  .tag(OAuth1Credentials.class, new OAuth1Credentials(ACCESS_TOKEN + i, ACCESS_SECRET + i))
+                  .build();
+        }
+    }
+
+    @Benchmark
+    public String signGet() throws IOException {
+        return signer.authorization(getRequest.method(), getRequest.url(), getRequest.body(), NONCE, TIMESTAMP);
+    }
+
+    @Benchmark
+    public String signPost() throws IOException {
+        return signer.authorization(postRequest.method(), postRequest.url(), postRequest.body(), NONCE, TIMESTAMP);
+    }
+
+    @Benchmark
+    public String signTemplatedGet() throws IOException {
+        return signer.authorization(getRequest.method(), getRequest.url(), getRequest.body(), getTemplate, NONCE,
+              TIMESTAMP);
+    }
+
+    @Benchmark
+    public String signTemplatedPost() throws IOException {
+        return signer.authorization(postRequest.method(), postRequest.url(), postRequest.body(), postTemplate, NONCE,
+              TIMESTAMP);
+    }
+
+    /** Signs for a different user each time, as a multi user api serving many users does. */
+    @Benchmark
+    public Request signGetManyUsers() throws IOException {
+        return multiUser.signRequest(userRequests[user++ & 1023]);
+    }
+
+    @Benchmark
+    public String legacySignGet() throws IOException {
+        return LegacySigner.authorization(getRequest, NONCE, TIMESTAMP);
+    }
+
+    @Benchmark
+    public String legacySignPost() throws IOException {
+        return LegacySigner.authorization(postRequest, NONCE, TIMESTAMP);
+    }
+
+    /** Nonces are drawn concurrently by all request threads. */
+    @Benchmark
+    @Threads(4)
+    public String nonce() {
+        return nonceProvider.nonce();
+    }
+
+    /** 32 bytes from a shared {@link SecureRandom}, base64 encoded, with a regex removing the non word characters. */
+    @Benchmark
+    @Threads(4)
+    public String legacyNonce() {
+        byte[] nonce = new byte[32];
+        legacyRandom.nextBytes(nonce);
+        return NON_WORD.matcher(ByteString.of(nonce).base64()).replaceAll("");
+    }
+
+    @Benchmark
+    public String timestamp() {
+        return timestampProvider.timestamp();
+    }
+
+    @Benchmark
+    public String legacyTimestamp() {
+        return Long.toString(System.currentTimeMillis() / 1000L);
+    }
+
+    /** The signing of {@link OAuth1SigningInterceptor} before {@link OAuth1Signer}, kept for comparison. */
+    static final class LegacySigner {
+        private static final MediaType FORM_ENCODED = MediaType.parse("application/x-www-form-urlencoded");
+
+        static String authorization(Request request, String nonce, String timestamp) throws IOException {
+            String consumerKeyValue = escape(CONSUMER_KEY);
+            String accessTokenValue = escape(ACCESS_TOKEN);
+
+            SortedMap<String, String> parameters = new TreeMap<>();
+            parameters.put("oauth_consumer_key", consumerKeyValue);
+            parameters.put("oauth_token", accessTokenValue);
+            parameters.put("oauth_nonce", nonce);
+            parameters.put("oauth_timestamp", timestamp);
+            parameters.put("oauth_signature_method", "HMAC-SHA1");
+            parameters.put("oauth_version", "1.0");
+
+            HttpUrl url = request.url();
+            for (int i = 0; i < url.querySize(); i++) {
+                parameters.put(escape(url.queryParameterName(i)), escape(url.queryParameterValue(i)));
+            }
+
+            Buffer body = new Buffer();
+            RequestBody requestBody = request.body();
+            if (requestBody != null && FORM_ENCODED.equals(requestBody.contentType())) {
+                requestBody.writeTo(body);
+            }
+            while (!body.exhausted()) {
+                long keyEnd = body.indexOf((byte) '=');
+                String key = body.readUtf8(keyEnd);
+                body.skip(1);
+                long valueEnd = body.indexOf((byte) '&');
+                String value = valueEnd == -1 ? body.readUtf8() : body.readUtf8(valueEnd);
+                if (valueEnd != -1) body.skip(1);
+                parameters.put(key, value);
+            }
+
+            Buffer base = new Buffer();
+            base.writeUtf8(request.method());
+            base.writeByte('&');
+            base.writeUtf8(escape(request.url().newBuilder().query(null).build().toString()));
+            base.writeByte('&');
+            boolean first = true;
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                if (!first) base.writeUtf8(escape("&"));
+                first = false;
+                base.writeUtf8(escape(entry.getKey()));
+                base.writeUtf8(escape("="));
+                base.writeUtf8(escape(entry.getValue()));
+            }
+
+            String signingKey = escape(CONSUMER_SECRET) + '&' + escape(ACCESS_SECRET);
+            String signature = base.hmacSha1(ByteString.encodeUtf8(signingKey)).base64();
+
+            return "OAuth "
+                  + "oauth_consumer_key=\"" + consumerKeyValue + "\", "
+                  + "oauth_nonce=\"" + nonce + "\", "
+                  + "oauth_signature=\"" + escape(signature) + "\", "
+                  + "oauth_signature_method=\"HMAC-SHA1\", "
+                  + "oauth_timestamp=\"" + timestamp + "\", "
+                  + "oauth_token=\"" + accessTokenValue + "\", "
+                  + "oauth_version=\"1.0\"";
+        }
+
+        private LegacySigner() {
+        }
+    }
+}
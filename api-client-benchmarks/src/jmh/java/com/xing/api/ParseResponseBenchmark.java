@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.ProfileVisit;
+import com.xing.api.data.profile.XingUser;
+import com.xing.api.resources.ProfileVisitsResource;
+import com.xing.api.resources.UserProfilesResource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Measures {@link RealCallSpec#parseResponse(okhttp3.Response)}, i.e. everything that happens after OkHttp returns a
+ * response: status handling, content range parsing and body conversion.
+ */
+@State(Scope.Benchmark)
+public class ParseResponseBenchmark {
+    RealCallSpec<XingUser, HttpError> userSpec;
+    RealCallSpec<List<ProfileVisit>, HttpError> visitsSpec;
+    ByteString userJson;
+    ByteString visitsJson;
+
+    @SuppressWarnings("unchecked") // The resource methods are backed by RealCallSpec.
+    @Setup
+    public void setUp() throws IOException {
+        XingApi api = new XingApi.Builder().loggedOut().build();
+        userSpec = (RealCallSpec<XingUser, HttpError>) new UserProfilesResource(api).getUserById("123456_abcdef");
+        visitsSpec = (RealCallSpec<List<ProfileVisit>, HttpError>) new ProfileVisitsResource(api).getOwnProfileVisits();
+        userJson = Payloads.userById();
+        visitsJson = Payloads.visits();
+    }
+
+    @Benchmark
+    public Response<XingUser, HttpError> user() throws IOException {
+        return userSpec.parseResponse(rawResponse(userSpec, userJson, null));
+    }
+
+    @Benchmark
+    public Response<List<ProfileVisit>, HttpError> visits() throws IOException {
+        return visitsSpec.parseResponse(rawResponse(visitsSpec, visitsJson, "items 0-3/4"));
+    }
+
+    private static okhttp3.Response rawResponse(CallSpec<?, ?> spec, ByteString body, String contentRange) {
+        okhttp3.Response.Builder builder = new okhttp3.Response.Builder()
+              .request(spec.request())
+              .protocol(Protocol.HTTP_1_1)
+              .code(200)
+              .message("OK")
+              .body(ResponseBody.create(body, Converter.MEDIA_TYPE_JSON));
+        if (contentRange != null) builder.header(ContentRange.HEADER_NAME, contentRange);
+        return builder.build();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.mockwebserver.MockWebServer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/** Canned api payloads and shared setup for the benchmarks. */
+final class Payloads {
+    /** A single user wrapped the way {@code /v1/users/:id} returns it. */
+    static ByteString userById() throws IOException {
+        return ByteString.encodeUtf8("{\"users\":[" + resource("user.json") + "]}");
+    }
+
+    /** A list of {@code count} users wrapped the way {@code /v1/users/:user_id/contacts} returns it. */
+    static ByteString contacts(int count) throws IOException {
+        return contacts(count, 0);
+    }
+
+    /**
+     * Like {@link #contacts(int)}, but with {@code siblings} extra keys in front of {@code users} at each envelope
+     * level, which the converter has to skip before it reaches the list.
+     */
+    static ByteString contacts(int count, int siblings) throws IOException {
+        String user = resource("user.json");
+        StringBuilder json = new StringBuilder(user.length() * count + 64 * siblings + 64).append('{');
+        appendSiblings(json, "contact", siblings);
+        json.append("\"contacts\":{");
+        appendSiblings(json, "user", siblings);
+        json.append("\"users\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(',');
+            json.append(user);
+        }
+        return ByteString.encodeUtf8(json.append("],\"total\":").append(count).append("}}").toString());
+    }
+
+    private static void appendSiblings(StringBuilder json, String prefix, int siblings) {
+        for (int i = 0; i < siblings; i++) {
+            json.append('"').append(prefix).append("_sibling_").append(i).append("\":{\"id\":").append(i)
+                  .append(",\"tags\":[\"a\",\"b\"]},");
+        }
+    }
+
+    /** The profile visits list as returned by {@code /v1/users/:user_id/visits}. */
+    static ByteString visits() throws IOException {
+        return ByteString.encodeUtf8(resource("visits.json"));
+    }
+
+    /** Reads a resource shared with the api-client unit tests. */
+    static String resource(String name) throws IOException {
+        InputStream is = Payloads.class.getClassLoader().getResourceAsStream(name);
+        if (is == null) throw new IOException("Resource not found: " + name);
+        try (BufferedSource source = Okio.buffer(Okio.source(is))) {
+            return source.readUtf8();
+        }
+    }
+
+    /** Mutes {@link MockWebServer}'s per request logging, which would otherwise dominate the measurements. */
+    static void muteMockWebServer() {
+        Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.OFF);
+    }
+
+    private Payloads() {
+        // No instances.
+    }
+}
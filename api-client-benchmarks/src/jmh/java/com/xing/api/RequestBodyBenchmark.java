@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.edit.PictureUpload;
+import com.xing.api.data.edit.PictureUploadBody;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Random;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * Measures serializing a profile picture upload and writing it to a sink, the way OkHttp sends it. Compares the in
+ * memory upload with one streamed from a file.
+ */
+@State(Scope.Benchmark)
+public class RequestBodyBenchmark {
+    @Param({"2097152"})
+    int pictureSize;
+
+    Converter converter;
+    Type photoType;
+    PictureUpload pictureUpload;
+    PictureUpload streamedPictureUpload;
+    File pictureFile;
+    Buffer sink;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = new XingApi.Builder().loggedOut().build().converter();
+        photoType = Converter.single(PictureUpload.class, "photo");
+        byte[] picture = new byte[pictureSize];
+        new Random(42).nextBytes(picture);
+        pictureUpload = PictureUpload.pictureUploadJPEG("picture.jpg", picture);
+        pictureFile = File.createTempFile("picture", ".jpg");
+        try (BufferedSink fileSink = Okio.buffer(Okio.sink(pictureFile))) {
+            fileSink.write(picture);
+        }
+        streamedPictureUpload = PictureUpload.pictureUploadJPEG("picture.jpg", pictureFile);
+        sink = new Buffer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        pictureFile.delete();
+    }
+
+    @Benchmark
+    public long pictureUpload() throws IOException {
+        RequestBody body = converter.convertToBody(photoType, pictureUpload);
+        body.writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public long streamedPictureUpload() throws IOException {
+        RequestBody body = PictureUploadBody.of(streamedPictureUpload, "photo");
+        body.writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+}
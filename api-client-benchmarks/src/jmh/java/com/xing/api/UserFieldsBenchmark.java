@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Compares decoding full users with decoding only the requested user fields. The payload contains full users in both
+ * cases, so only the decoding is measured, not the smaller response.
+ */
+@State(Scope.Benchmark)
+public class UserFieldsBenchmark {
+    @Param({"100"})
+    int contactsCount;
+
+    Converter converter;
+    Type contactsType;
+    Type projectedContactsType;
+    ByteString contactsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = new XingApi.Builder().loggedOut().build().converter();
+        contactsType = Converter.list(XingUser.class, "contacts", "users");
+        projectedContactsType = Converter.project(contactsType,
+              new LinkedHashSet<>(Arrays.asList("id", "display_name", "photo_urls")));
+        contactsJson = Payloads.contacts(contactsCount);
+    }
+
+    @Benchmark
+    public List<XingUser> allFields() throws IOException {
+        return converter.convertFromBody(contactsType, ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+
+    @Benchmark
+    public List<XingUser> displayNameAndPhoto() throws IOException {
+        return converter.convertFromBody(projectedContactsType,
+              ResponseBody.create(contactsJson, Converter.MEDIA_TYPE_JSON));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.xing.api.data.profile.XingUser;
+import com.xing.api.resources.UserProfilesResource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Compares fanning out {@link #calls} concurrent profile fetches three ways: enqueued on an api left at OkHttp's
+ * default dispatcher, enqueued on an api built with {@link XingApi.BuildStep#virtualThreads(boolean)
+ * virtualThreads(true)}, and executed by a {@link CallScope}. A local {@link MockWebServer} answers each call after
+ * {@link #latencyMillis}, so that the benchmark measures how many waiting calls each setup carries at once.
+ *
+ * <p>Both apis keep the dispatcher's default limits of 64 requests, 5 per host, which bound the enqueued variants no
+ * matter which threads run the calls. The scope executes its calls and is bound by the threads only.
+ *
+ * <p>Virtual threads require a Java 21+ JVM to run the benchmark on. On older JVMs {@code virtualThreads(true)} has no
+ * effect and the scope falls back to the dispatcher's threads.
+ */
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+    @Param({"1000"})
+    int calls;
+    @Param({"20"})
+    int latencyMillis;
+
+    MockWebServer server;
+    UserProfilesResource dispatcherProfiles;
+    UserProfilesResource virtualThreadProfiles;
+    XingApi virtualThreadApi;
+
+    @Setup
+    public void setUp() throws IOException {
+        Payloads.muteMockWebServer();
+        final ByteString payload = Payloads.userById();
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                      .setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS)
+                      .setBody(new Buffer().write(payload));
+            }
+        });
+        server.start();
+
+        dispatcherProfiles = new UserProfilesResource(new XingApi.Builder()
+              .loggedOut()
+              .apiEndpoint(server.url("/"))
+              .build());
+        virtualThreadApi = new XingApi.Builder()
+              .loggedOut()
+              .apiEndpoint(server.url("/"))
+              .virtualThreads(true)
+              .build();
+        virtualThreadProfiles = new UserProfilesResource(virtualThreadApi);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public int dispatcher() throws InterruptedException {
+        return enqueueAll(dispatcherProfiles);
+    }
+
+    @Benchmark
+    public int virtualThreads() throws InterruptedException {
+        return enqueueAll(virtualThreadProfiles);
+    }
+
+    @Benchmark
+    public int callScope() throws IOException {
+        try (CallScope scope = new CallScope(virtualThreadApi)) {
+            for (int i = 0; i < calls; i++) {
+                scope.fork(virtualThreadProfiles.getUserById("123456_abcdef"));
+            }
+            scope.join();
+        }
+        return calls;
+    }
+
+    private int enqueueAll(UserProfilesResource profiles) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(calls);
+        final AtomicInteger successful = new AtomicInteger();
+        for (int i = 0; i < calls; i++) {
+            profiles.getUserById("123456_abcdef").enqueue(new Callback<XingUser, HttpError>() {
+                @Override
+                public void onResponse(Response<XingUser, HttpError> response) {
+                    if (response.isSuccessful()) successful.incrementAndGet();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        return successful.get();
+    }
+}
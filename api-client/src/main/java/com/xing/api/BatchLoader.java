@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+
+import static com.xing.api.Utils.checkNotNull;
+
+/**
+ * Coalesces single lookups into batched calls. Keys {@linkplain #load(Object, Callback) loaded} within the batch
+ * window are sent as one call, which is sent right away once {@code maxBatchSize} distinct keys are pending. The
+ * results are then handed back to each caller. Loading the same key twice within a window requests it only once.
+ *
+ * <p>Without a {@link KeyOf} the batch call has to answer with one value per requested key, in the order of the
+ * keys. A {@code null} value means that there is nothing for that key. With a {@link KeyOf} the values are matched
+ * to their keys instead, so the answer may skip or reorder keys; keys without a value receive a {@code null} body.
+ * If the batch call fails, all callers of that batch fail alike.
+ *
+ * <p>A batch is one call, signed for one user. With a {@linkplain XingApi.MultiUserStep multi user} api use one loader
+ * per user, whose {@link BatchCall} sets the user's {@linkplain CallSpec#asUser(OAuth1Credentials) credentials}.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ * @param <ET> Error response body type.
+ */
+public final class BatchLoader<K, V, ET> {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable runnable) {
+                  Thread thread = new Thread(runnable, "XingApi BatchLoader");
+                  thread.setDaemon(true);
+                  return thread;
+              }
+          });
+
+    /** Creates the call that fetches the values for a batch of keys. */
+    public interface BatchCall<K, V, ET> {
+        CallSpec<List<V>, ET> call(List<K> keys);
+    }
+
+    /** Extracts the key of a value returned by the batch call. */
+    public interface KeyOf<K, V> {
+        K keyOf(V value);
+    }
+
+    private final BatchCall<K, V, ET> batchCall;
+    private final KeyOf<K, V> keyOf;
+    private final int maxBatchSize;
+    private final long windowNanos;
+
+    // Guarded by this.
+    private Map<K, List<Callback<V, ET>>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * Creates a loader that waits up to {@code window} for more keys before sending a batch.
+     *
+     * @param batchCall Creates the call for a batch of keys.
+     * @param maxBatchSize Maximum number of distinct keys per call.
+     */
+    public BatchLoader(BatchCall<K, V, ET> batchCall, int maxBatchSize, long window, TimeUnit unit) {
+        this(batchCall, null, maxBatchSize, window, unit);
+    }
+
+    /**
+     * Creates a loader that matches the returned values to their keys with {@code keyOf}, rather than by position.
+     *
+     * @param batchCall Creates the call for a batch of keys.
+     * @param keyOf Extracts the key of a returned value, or {@code null} to match by position.
+     * @param maxBatchSize Maximum number of distinct keys per call.
+     */
+    public BatchLoader(BatchCall<K, V, ET> batchCall, KeyOf<K, V> keyOf, int maxBatchSize, long window,
+          TimeUnit unit) {
+        this.batchCall = checkNotNull(batchCall, "batchCall == null");
+        this.keyOf = keyOf;
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize <= 0");
+        if (window < 0) throw new IllegalArgumentException("window < 0");
+        this.maxBatchSize = maxBatchSize;
+        windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Loads the value for {@code key} as part of the next batch and notifies {@code callback} of it. A successful
+     * response carries the value for {@code key}, an error response carries the error of the whole batch.
+     */
+    public void load(K key, Callback<V, ET> callback) {
+        checkNotNull(key, "key == null");
+        checkNotNull(callback, "callback == null");
+
+        Map<K, List<Callback<V, ET>>> batch = null;
+        synchronized (this) {
+            List<Callback<V, ET>> callbacks = pending.get(key);
+            if (callbacks == null) {
+                callbacks = new ArrayList<>(1);
+                pending.put(key, callbacks);
+            }
+            callbacks.add(callback);
+
+            if (pending.size() >= maxBatchSize) {
+                batch = takeBatch();
+            } else if (scheduled == null) {
+                scheduled = SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (batch != null) send(batch);
+    }
+
+    /**
+     * Loads the value for {@code key} as part of the next batch once subscribed. If there is no value for {@code
+     * key} a {@link NoSuchElementException} is signaled. In case of an error response an {@link HttpException} is
+     * signaled.
+     */
+    public Single<V> load(K key) {
+        checkNotNull(key, "key == null");
+        return LoadOnSubscribe.single(this, key);
+    }
+
+    /** Sends the pending keys right away, without waiting for the batch window to pass. */
+    public void flush() {
+        Map<K, List<Callback<V, ET>>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = takeBatch();
+        }
+        send(batch);
+    }
+
+    private Map<K, List<Callback<V, ET>>> takeBatch() {
+        Map<K, List<Callback<V, ET>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return batch;
+    }
+
+    private void send(final Map<K, List<Callback<V, ET>>> batch) {
+        final List<K> keys = new ArrayList<>(batch.keySet());
+        CallSpec<List<V>, ET> spec;
+        try {
+            spec = batchCall.call(keys);
+        } catch (Throwable t) {
+            failAll(batch, t);
+            return;
+        }
+
+        spec.enqueue(new Callback<List<V>, ET>() {
+            @Override
+            public void onResponse(Response<List<V>, ET> response) {
+                if (!response.isSuccessful()) {
+                    Response<V, ET> error = Response.error(response.error(), response.raw());
+                    for (List<Callback<V, ET>> callbacks : batch.values()) {
+                        respond(callbacks, error);
+                    }
+                    return;
+                }
+
+                List<V> values = response.body();
+                if (keyOf != null) {
+                    respondByKey(batch, values, response.raw());
+                    return;
+                }
+                int received = values != null ? values.size() : 0;
+                if (received != keys.size()) {
+                    failAll(batch, new IOException("Expected " + keys.size() + " values, received " + received));
+                    return;
+                }
+                for (int index = 0; index < received; index++) {
+                    respond(batch.get(keys.get(index)), Response.<V, ET>success(values.get(index), response.raw()));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                failAll(batch, t);
+            }
+        });
+    }
+
+    private void respondByKey(Map<K, List<Callback<V, ET>>> batch, List<V> values, okhttp3.Response raw) {
+        Map<K, V> byKey = new LinkedHashMap<>();
+        if (values != null) {
+            for (V value : values) {
+                if (value != null) byKey.put(keyOf.keyOf(value), value);
+            }
+        }
+        for (Map.Entry<K, List<Callback<V, ET>>> entry : batch.entrySet()) {
+            respond(entry.getValue(), Response.<V, ET>success(byKey.get(entry.getKey()), raw));
+        }
+    }
+
+    private void respond(List<Callback<V, ET>> callbacks, Response<V, ET> response) {
+        for (Callback<V, ET> callback : callbacks) {
+            try {
+                callback.onResponse(response);
+            } catch (Throwable ignored) {
+                // TODO add some logging
+            }
+        }
+    }
+
+    private void failAll(Map<K, List<Callback<V, ET>>> batch, Throwable t) {
+        for (List<Callback<V, ET>> callbacks : batch.values()) {
+            for (Callback<V, ET> callback : callbacks) {
+                try {
+                    callback.onFailure(t);
+                } catch (Throwable ignored) {
+                    // TODO add some logging
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads one key for each subscriber. RxJava is an optional dependency, it is only referenced from here so that it
+     * is not loaded along with the loader.
+     */
+    static final class LoadOnSubscribe<K, V, ET> implements SingleOnSubscribe<V> {
+        private final BatchLoader<K, V, ET> loader;
+        private final K key;
+
+        private LoadOnSubscribe(BatchLoader<K, V, ET> loader, K key) {
+            this.loader = loader;
+            this.key = key;
+        }
+
+        static <K, V, ET> Single<V> single(BatchLoader<K, V, ET> loader, K key) {
+            return Single.create(new LoadOnSubscribe<>(loader, key));
+        }
+
+        @Override
+        public void subscribe(final SingleEmitter<V> emitter) {
+            loader.load(key, new Callback<V, ET>() {
+                @Override
+                public void onResponse(Response<V, ET> response) {
+                    if (!response.isSuccessful()) {
+                        emitter.onError(new HttpException(response));
+                    } else if (response.body() == null) {
+                        emitter.onError(new NoSuchElementException("Nothing found for " + key));
+                    } else {
+                        emitter.onSuccess(response.body());
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    emitter.onError(t);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+/**
+ * Determines whether a {@linkplain CallSpec call} uses the {@linkplain ObjectCache object cache} of its {@link
+ * XingApi}. Only GET calls are cached, only successful responses with a body are stored.
+ */
+public enum CachePolicy {
+    /** Always requests the network and doesn't touch the cache. This is the default. */
+    NETWORK_ONLY,
+    /**
+     * Returns a fresh cached response if there is one, otherwise requests the network and caches the response. A stale
+     * cached response is revalidated with a conditional request.
+     */
+    CACHE_FIRST,
+    /**
+     * Requests the network and caches the response. If the network fails, returns the cached response, even if it is
+     * no longer fresh.
+     */
+    NETWORK_FIRST,
+    /**
+     * Returns the cached response right away, even if it is no longer fresh, and refreshes a stale response in the
+     * background. Without a cached response, requests the network and caches the response.
+     */
+    STALE_WHILE_REVALIDATE
+}
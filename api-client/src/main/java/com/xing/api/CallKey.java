@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.lang.reflect.Type;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okio.ByteString;
+
+/**
+ * Identifies identical GET calls: same url, same headers, same user and the same response and error types to decode
+ * to. The user is the one of the call's {@linkplain OAuth1Credentials credentials}, or else the api's default user.
+ */
+final class CallKey {
+    final HttpUrl url;
+    private final Headers headers;
+    private final Type responseType;
+    private final Type errorType;
+    /** The access token the call is signed with, or {@code null}. */
+    private final String user;
+    private final int hashCode;
+    private String stableKey;
+
+    /**
+     * Returns the key of {@code request}, or {@code null} if it is not a GET request. Requests without credentials are
+     * made for {@code defaultUser}, the api's access token.
+     */
+    static CallKey of(Request request, Type responseType, Type errorType, String defaultUser) {
+        if (!"GET".equals(request.method())) return null;
+        OAuth1Credentials credentials = request.tag(OAuth1Credentials.class);
+        return new CallKey(request.url(), request.headers(), responseType, errorType,
+              credentials != null ? credentials.accessToken() : defaultUser);
+    }
+
+    private CallKey(HttpUrl url, Headers headers, Type responseType, Type errorType, String user) {
+        this.url = url;
+        this.headers = headers;
+        this.responseType = responseType;
+        this.errorType = errorType;
+        this.user = user;
+        int hashCode = 31 * (31 * url.hashCode() + headers.hashCode()) + responseType.hashCode();
+        hashCode = 31 * hashCode + errorType.hashCode();
+        this.hashCode = user != null ? 31 * hashCode + user.hashCode() : hashCode;
+    }
+
+    /** Returns a string identifying this key across process restarts. */
+    String stableKey() {
+        String stableKey = this.stableKey;
+        if (stableKey == null) {
+            StringBuilder builder = new StringBuilder(url.toString()).append('\n');
+            for (int i = 0, size = headers.size(); i < size; i++) {
+                builder.append(headers.name(i)).append(": ").append(headers.value(i)).append('\n');
+            }
+            // Keep the access token itself out of the disk cache.
+            if (user != null) builder.append("user: ").append(ByteString.encodeUtf8(user).sha256().hex()).append('\n');
+            builder.append(responseType).append('\n');
+            this.stableKey = stableKey = builder.append(errorType).toString();
+        }
+        return stableKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CallKey)) return false;
+        CallKey key = (CallKey) o;
+        return url.equals(key.url) && headers.equals(key.headers) && responseType.equals(key.responseType)
+              && errorType.equals(key.errorType) && (user != null ? user.equals(key.user) : key.user == null);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
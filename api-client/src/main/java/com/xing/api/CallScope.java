@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes a set of {@linkplain CallSpec calls} concurrently, with a shared deadline and shared cancellation. If one
+ * call fails, or the deadline passes before all calls completed, the calls that did not complete yet are cancelled.
+ * <pre>{@code
+ * try (CallScope scope = new CallScope(api, 2, TimeUnit.SECONDS)) {
+ *     CallScope.Task<XingUser, HttpError> me = scope.fork(userProfiles.getOwnProfile());
+ *     CallScope.Task<List<XingUser>, HttpError> contacts = scope.fork(contactsResource.getUserContacts("me"));
+ *     scope.join();
+ *     render(me.response().body(), contacts.response().body());
+ * }
+ * }</pre>
+ * The calls are executed blocking, each on its own virtual thread if the JVM supports them (Java 21+), and on the
+ * executor of OkHttp's dispatcher otherwise. An error response is a completed call, not a failure.
+ */
+public final class CallScope implements Closeable {
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final long deadlineNanos;
+    private final List<Task<?, ?>> tasks = new ArrayList<>();
+    private int pending;
+    private Throwable failure;
+    private boolean closed;
+
+    /** Creates a scope without a deadline. */
+    public CallScope(XingApi api) {
+        this(api, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /** Creates a scope whose calls have to complete within {@code timeout}, {@code 0} meaning no deadline. */
+    public CallScope(XingApi api, long timeout, TimeUnit unit) {
+        if (timeout < 0L) throw new IllegalArgumentException("timeout < 0: " + timeout);
+        ExecutorService virtualThreadExecutor = Platform.get().virtualThreadExecutor();
+        ownsExecutor = virtualThreadExecutor != null;
+        executor = ownsExecutor ? virtualThreadExecutor : api.client().dispatcher().executorService();
+        deadlineNanos = timeout > 0L ? System.nanoTime() + unit.toNanos(timeout) : 0L;
+    }
+
+    /** Starts executing {@code spec} in this scope. */
+    public <RT, ET> Task<RT, ET> fork(CallSpec<RT, ET> spec) {
+        final Task<RT, ET> task = new Task<>(this, spec);
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Scope already closed");
+            tasks.add(task);
+            pending++;
+            if (failure != null) spec.cancel();
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    task.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finished(task, e);
+        }
+        return task;
+    }
+
+    /**
+     * Waits until all forked calls completed. Throws the first failure of a call, or an {@link InterruptedIOException}
+     * if the deadline passed or the current thread was interrupted. In any of these cases the remaining calls are
+     * cancelled.
+     */
+    public synchronized void join() throws IOException {
+        try {
+            while (pending > 0 && failure == null) {
+                if (deadlineNanos == 0L) {
+                    wait();
+                    continue;
+                }
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0L) {
+                    cancelAll();
+                    throw new InterruptedIOException("Deadline exceeded");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+
+        if (failure instanceof IOException) throw (IOException) failure;
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new IOException(failure);
+    }
+
+    /** Cancels the calls that did not complete yet. Further calls can't be forked. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            cancelAll();
+        }
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    synchronized void finished(Task<?, ?> task, Throwable t) {
+        pending--;
+        if (t != null && failure == null) {
+            failure = t;
+            cancelAll();
+        }
+        notifyAll();
+    }
+
+    private void cancelAll() {
+        for (Task<?, ?> task : tasks) {
+            if (!task.done) task.spec.cancel();
+        }
+    }
+
+    /** A call forked in a {@link CallScope}. */
+    public static final class Task<RT, ET> {
+        final CallScope scope;
+        final CallSpec<RT, ET> spec;
+        volatile boolean done;
+        private volatile Response<RT, ET> response;
+
+        Task(CallScope scope, CallSpec<RT, ET> spec) {
+            this.scope = scope;
+            this.spec = spec;
+        }
+
+        /** Returns the response of the call, once the scope was {@linkplain CallScope#join() joined}. */
+        public Response<RT, ET> response() {
+            if (!done) throw new IllegalStateException("Call not completed");
+            if (response == null) throw new IllegalStateException("Call failed");
+            return response;
+        }
+
+        void run() {
+            Throwable failure = null;
+            try {
+                response = spec.execute();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            done = true;
+            scope.finished(this, failure);
+        }
+    }
+}
@@ -16,8 +16,12 @@
  */
 package com.xing.api;
 
+import com.xing.api.data.profile.UserField;
+import com.xing.api.data.profile.XingUser;
+
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -31,6 +35,7 @@ import javax.net.ssl.HostnameVerifier;
 import io.reactivex.Completable;
 import io.reactivex.Single;
 import okhttp3.FormBody;
+import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -76,10 +81,18 @@ public interface CallSpec<RT, ET> extends Cloneable {
      */
     void enqueue(Callback<RT, ET> callback);
 
+    /**
+     * Enqueues the underlying call and returns a {@linkplain ResponseFuture future} of its response, without blocking
+     * a thread while the call is in flight. Cancelling the future cancels the call.
+     */
+    ResponseFuture<RT, ET> future();
+
     /**
      * Executes the underlying call as a {@linkplain Single}. This method will try to populate the success response object
      * of a {@link Response}. In case of an error an {@link HttpException} will be thrown.
      * For a more richer and controllable api consider calling {@link #singleRawResponse()} ()}.
+     * <p>
+     * Like {@link #singleRawResponse()}, each subscription enqueues a copy of the call, no scheduler is needed.
      */
     Single<RT> singleResponse();
 
@@ -92,6 +105,9 @@ public interface CallSpec<RT, ET> extends Cloneable {
     /**
      * Executes the underlying call as an {@linkplain Single}. The method will try to return a
      * {@link Response} object from which the http result may be obtained.
+     * <p>
+     * Each subscription {@linkplain #future() enqueues} a copy of the call and emits on OkHttp's dispatcher thread,
+     * so no scheduler thread is blocked for the round trip. Disposing cancels the call.
      */
     Single<Response<RT, ET>> singleRawResponse();
 
@@ -166,6 +182,34 @@ public interface CallSpec<RT, ET> extends Cloneable {
      */
     CallSpec<RT, ET> formField(String name, List<String> values);
 
+    /**
+     * Requests only the given {@linkplain UserField user fields} by setting the <strong>user_fields</strong> query
+     * parameter. The {@linkplain XingUser users} in the response are then decoded by an adapter that skips all other
+     * fields. The user id is always requested.
+     */
+    CallSpec<RT, ET> userFields(Set<UserField> userFields);
+
+    /**
+     * Sets whether this call is served from and stored in the {@linkplain XingApi.BuildStep#objectCache(ObjectCache)
+     * object cache}. Has no effect if there is no object cache or if this is not a GET call. Stale cached responses
+     * are revalidated with conditional requests, which therefore also require an object cache.
+     */
+    CallSpec<RT, ET> cachePolicy(CachePolicy cachePolicy);
+
+    /**
+     * Makes this call on behalf of the user owning {@code credentials}, instead of the user the {@linkplain XingApi}
+     * was built for. Required for calls of a {@linkplain XingApi.Builder#multiUser() multi user} api, has no effect if
+     * the api does not sign requests.
+     */
+    CallSpec<RT, ET> asUser(OAuth1Credentials credentials);
+
+    /**
+     * Returns a {@linkplain Pager} walking all pages of this paginated call, {@code pageSize} items at a time. The
+     * <strong>offset</strong> and <strong>limit</strong> query parameters are set per page, this call itself is
+     * neither executed nor altered.
+     */
+    Pager<RT, ET> pager(int pageSize);
+
     /**
      * Overrides the connection's default connection timeout, i.e. the time until a connection is established.
      *
@@ -198,6 +242,12 @@ public interface CallSpec<RT, ET> extends Cloneable {
     /** Returns the underlying {@linkplain Request}. */
     Request request();
 
+    /**
+     * Returns a {@linkplain RequestTemplate template} of this call, for calls that are executed over and over with the
+     * same parameters. See {@link Builder#template()}.
+     */
+    RequestTemplate<RT, ET> template();
+
     /**
      * Serves two purposes, to build the {@linkplain CallSpec} and the underlying {@linkplain Request}.
      * Only the {@linkplain CallSpec} building is exposed to the caller.
@@ -224,21 +274,28 @@ public interface CallSpec<RT, ET> extends Cloneable {
 
         private final HttpMethod httpMethod;
         private final HttpUrl apiEndpoint;
-        private final Request.Builder requestBuilder;
-        private final Set<String> resourcePathParams;
+        private Headers headers;
+        private Set<String> resourcePathParams;
         private String resourcePath;
 
         private HttpUrl.Builder urlBuilder;
         private FormBody.Builder formBodyBuilder;
+        /** The path params, url and form builders are shared with a copy and are copied before changes. */
+        private boolean shared;
         private RequestBody body;
+        /** The request compiled by {@link #template()}, dropped as soon as the request is altered. */
+        private Request compiled;
 
         final XingApi api;
         Type responseType;
         Type errorType;
+        Set<String> userFields;
         int connectTimeout = -1;
         int readTimeout = -1;
         int writeTimeout = -1;
         HostnameVerifier hostnameVerifier;
+        CachePolicy cachePolicy = CachePolicy.NETWORK_ONLY;
+        OAuth1Credentials credentials;
 
         // For now block the possibility to build outside this package.
         Builder(XingApi api, HttpMethod httpMethod, String resourcePath, boolean isFormEncoded) {
@@ -248,7 +305,7 @@ public interface CallSpec<RT, ET> extends Cloneable {
 
             resourcePathParams = parseResourcePathParams(resourcePath);
             apiEndpoint = api.apiEndpoint();
-            requestBuilder = new Request.Builder().header("Accept", "application/json");
+            headers = Headers.of("Accept", "application/json");
 
             if (isFormEncoded) formBodyBuilder = new FormBody.Builder();
         }
@@ -257,18 +314,24 @@ public interface CallSpec<RT, ET> extends Cloneable {
             api = builder.api;
             httpMethod = builder.httpMethod;
             apiEndpoint = builder.apiEndpoint;
-            requestBuilder = builder.requestBuilder;
+            headers = builder.headers;
             resourcePathParams = builder.resourcePathParams;
             resourcePath = builder.resourcePath;
             urlBuilder = builder.urlBuilder;
             formBodyBuilder = builder.formBodyBuilder;
             body = builder.body;
+            compiled = builder.compiled;
             responseType = builder.responseType;
             errorType = builder.errorType;
+            userFields = builder.userFields;
             connectTimeout = builder.connectTimeout;
             readTimeout = builder.readTimeout;
             writeTimeout = builder.writeTimeout;
             hostnameVerifier = builder.hostnameVerifier;
+            cachePolicy = builder.cachePolicy;
+            credentials = builder.credentials;
+            shared = true;
+            builder.shared = true;
         }
 
         /** Replaces path parameter {@code name} with provided {@code values}. */
@@ -299,14 +362,18 @@ public interface CallSpec<RT, ET> extends Cloneable {
         private Builder<RT, ET> pathParam(String name, String value, boolean encoded) {
             stateNotNull(resourcePath, "Path params must be set before query params.");
             validatePathParam(name);
+            ownBuilders();
             resourcePath = resourcePath.replace('{' + name + '}', encoded ? value : escape(value));
             resourcePathParams.remove(name);
+            compiled = null;
             return this;
         }
 
         public Builder<RT, ET> queryParam(String name, Object value) {
             if (resourcePath != null) buildUrlBuilder();
+            ownBuilders();
             urlBuilder.addEncodedQueryParameter(name, escape(String.valueOf(value)));
+            compiled = null;
             return this;
         }
 
@@ -318,9 +385,40 @@ public interface CallSpec<RT, ET> extends Cloneable {
             return queryParam(name, toCsv(values, false));
         }
 
+        /** Requests only the given user fields and decodes only those, see {@link CallSpec#userFields(Set)}. */
+        public Builder<RT, ET> userFields(Set<UserField> userFields) {
+            checkNotNull(userFields, "userFields == null");
+            Set<String> names = new LinkedHashSet<>();
+            names.add(UserField.ID.toString());
+            for (UserField userField : userFields) {
+                names.add(userField.toString());
+            }
+            this.userFields = Collections.unmodifiableSet(names);
+            // Replaces the fields of a previous call, instead of sending the parameter twice.
+            if (resourcePath != null) buildUrlBuilder();
+            ownBuilders();
+            urlBuilder.setEncodedQueryParameter("user_fields", escape(toCsv(new ArrayList<>(names), false)));
+            compiled = null;
+            return this;
+        }
+
+        /** Sets the default {@linkplain CachePolicy cache policy} of the call, see {@link CallSpec#cachePolicy}. */
+        public Builder<RT, ET> cachePolicy(CachePolicy cachePolicy) {
+            this.cachePolicy = checkNotNull(cachePolicy, "cachePolicy == null");
+            return this;
+        }
+
+        /** Sets the credentials the call is signed with, see {@link CallSpec#asUser(OAuth1Credentials)}. */
+        public Builder<RT, ET> asUser(OAuth1Credentials credentials) {
+            this.credentials = checkNotNull(credentials, "credentials == null");
+            return this;
+        }
+
         public Builder<RT, ET> formField(String name, String value, boolean encode) {
             stateNotNull(formBodyBuilder, "form fields are not accepted by this request.");
+            ownBuilders();
             formBodyBuilder.add(name, encode ? escape(value) : value);
+            compiled = null;
             return this;
         }
 
@@ -330,19 +428,25 @@ public interface CallSpec<RT, ET> extends Cloneable {
 
         public Builder<RT, ET> formField(String name, Object value) {
             stateNotNull(formBodyBuilder, "form fields are not accepted by this request.");
+            ownBuilders();
             formBodyBuilder.add(name, String.valueOf(value));
+            compiled = null;
             return this;
         }
 
         public Builder<RT, ET> formField(String name, String... values) {
             stateNotNull(formBodyBuilder, "form fields are not accepted by this request.");
+            ownBuilders();
             formBodyBuilder.add(name, toCsv(values, true));
+            compiled = null;
             return this;
         }
 
         public Builder<RT, ET> formField(String name, List<String> values) {
             stateNotNull(formBodyBuilder, "form fields are not accepted by this request.");
+            ownBuilders();
             formBodyBuilder.add(name, toCsv(values, true));
+            compiled = null;
             return this;
         }
 
@@ -380,6 +484,7 @@ public interface CallSpec<RT, ET> extends Cloneable {
 
         public Builder<RT, ET> body(RequestBody body) {
             this.body = body;
+            compiled = null;
             return this;
         }
 
@@ -389,7 +494,8 @@ public interface CallSpec<RT, ET> extends Cloneable {
         }
 
         public Builder<RT, ET> header(String name, String value) {
-            requestBuilder.header(name, value);
+            headers = withHeader(headers, name, value);
+            compiled = null;
             return this;
         }
 
@@ -414,6 +520,22 @@ public interface CallSpec<RT, ET> extends Cloneable {
         }
 
         public CallSpec<RT, ET> build() {
+            validate();
+            return new RealCallSpec<>(this);
+        }
+
+        /**
+         * Builds a {@linkplain RequestTemplate template} of the call. The url, the body and the parts of the OAuth1
+         * signature that depend on them are computed once and shared by all calls created from the template.
+         */
+        public RequestTemplate<RT, ET> template() {
+            validate();
+            Builder<RT, ET> template = newBuilder();
+            template.compiled = template.compile();
+            return new RequestTemplate<>(template);
+        }
+
+        private void validate() {
             if (!resourcePathParams.isEmpty()) {
                 throw stateError("Not all path params where set. Found %d unsatisfied parameter(s)",
                       resourcePathParams.size());
@@ -422,11 +544,28 @@ public interface CallSpec<RT, ET> extends Cloneable {
             if (urlBuilder == null) buildUrlBuilder();
             if (responseType == null) throw stateError("Response type is not set.");
             if (errorType == null) errorType = HttpError.class;
+        }
 
-            return new RealCallSpec<>(this);
+        private Request compile() {
+            Request request = request();
+            try {
+                return request.newBuilder().tag(OAuth1Signer.Template.class, OAuth1Signer.compile(request)).build();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read the request body.", e);
+            }
+        }
+
+        /** Returns the response type, adjusted to decode only the requested {@link #userFields}. */
+        Type decodedResponseType() {
+            return userFields != null ? Converter.project(responseType, userFields) : responseType;
         }
 
         Request request() {
+            if (compiled != null) {
+                // The same url and body instances, the compiled signature still applies.
+                if (compiled.tag(OAuth1Credentials.class) == credentials) return compiled;
+                return compiled.newBuilder().tag(OAuth1Credentials.class, credentials).build();
+            }
             if (urlBuilder == null) throw stateError("#request() can be called only after #build()");
             HttpUrl url = urlBuilder.build();
 
@@ -442,9 +581,11 @@ public interface CallSpec<RT, ET> extends Cloneable {
                 }
             }
 
-            return requestBuilder
+            return new Request.Builder()
+                  .headers(headers)
                   .url(url)
                   .method(httpMethod.method(), body)
+                  .tag(OAuth1Credentials.class, credentials)
                   .build();
         }
 
@@ -453,6 +594,34 @@ public interface CallSpec<RT, ET> extends Cloneable {
             return new Builder<>(this);
         }
 
+        /** Copies the builders that are {@link #shared} with another builder, so that they can be changed. */
+        private void ownBuilders() {
+            if (!shared) return;
+            shared = false;
+            resourcePathParams = new LinkedHashSet<>(resourcePathParams);
+            if (urlBuilder != null) urlBuilder = urlBuilder.build().newBuilder();
+            if (formBodyBuilder != null) {
+                FormBody form = formBodyBuilder.build();
+                formBodyBuilder = new FormBody.Builder();
+                for (int i = 0, size = form.size(); i < size; i++) {
+                    formBodyBuilder.addEncoded(form.encodedName(i), form.encodedValue(i));
+                }
+            }
+        }
+
+        /** Returns {@code headers} with {@code name} set to {@code value}, replacing all previous values. */
+        private static Headers withHeader(Headers headers, String name, String value) {
+            List<String> namesAndValues = new ArrayList<>(2 * headers.size() + 2);
+            for (int i = 0, size = headers.size(); i < size; i++) {
+                if (headers.name(i).equalsIgnoreCase(name)) continue;
+                namesAndValues.add(headers.name(i));
+                namesAndValues.add(headers.value(i));
+            }
+            namesAndValues.add(name);
+            namesAndValues.add(value);
+            return Headers.of(namesAndValues.toArray(new String[namesAndValues.size()]));
+        }
+
         /** Do a one-time combination of the built relative URL and the base URL. */
         private void buildUrlBuilder() {
             urlBuilder = apiEndpoint.resolve(resourcePath).newBuilder();
@@ -20,6 +20,8 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.JsonWriter;
 import com.squareup.moshi.Moshi;
+import com.xing.api.data.profile.XingUser;
+import com.xing.api.internal.json.XingUserJsonAdapter;
 
 import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
@@ -27,14 +29,16 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import okio.Buffer;
+import okio.BufferedSink;
 
 import static com.xing.api.Utils.buffer;
 import static com.xing.api.Utils.closeQuietly;
@@ -64,8 +68,60 @@ final class Converter {
         return new CompositeType(new ListTypeImpl(searchFor, true), roots);
     }
 
+    /**
+     * Projected types, interned so that each projection of a type is one instance. The converters then find its
+     * adapter by identity instead of comparing field sets. Bounded by the types and field sets used in code.
+     */
+    private static final ConcurrentMap<Projection, Type> PROJECTIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns {@code type} with its {@link XingUser} elements replaced by a type that decodes only the given json
+     * {@code fields}. Types that don't contain users at their top level are returned as is.
+     */
+    static Type project(Type type, Set<String> fields) {
+        Projection key = new Projection(type, fields);
+        Type projected = PROJECTIONS.get(key);
+        if (projected == null) {
+            projected = projectUncached(type, fields);
+            Type previous = PROJECTIONS.putIfAbsent(key, projected);
+            if (previous != null) projected = previous;
+        }
+        return projected;
+    }
+
+    private static Type projectUncached(Type type, Set<String> fields) {
+        if (type == XingUser.class) return new ProjectedUserType(fields);
+        if (type instanceof CompositeType) {
+            CompositeType compositeType = (CompositeType) type;
+            Type searchFor = projectUncached(compositeType.searchFor, fields);
+            return searchFor != compositeType.searchFor ? new CompositeType(searchFor, compositeType.roots) : type;
+        }
+        if (type instanceof ListTypeImpl) {
+            ListTypeImpl listType = (ListTypeImpl) type;
+            Type elementType = projectUncached(listType.type, fields);
+            return elementType != listType.type ? new ListTypeImpl(elementType, listType.isFirst) : type;
+        }
+        return type;
+    }
+
+    /**
+     * Expected size of the next list decoded by a {@link ListTypeImplJsonAdapter} on this thread, or {@code -1}. Set
+     * for the duration of {@link #convertFromBody(Type, ResponseBody, int)} and taken by the first list that is read.
+     */
+    private static final ThreadLocal<int[]> LIST_SIZE_HINT = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] {-1};
+        }
+    };
+
+    /**
+     * Read-mostly cache of resolved adapters. Lookups don't lock, misses are resolved under {@link #adapterLock} so
+     * that each adapter is created exactly once, even if several threads ask for it at the same time.
+     */
     @SuppressWarnings("CollectionWithoutInitialCapacity") // We are happy with the initial capacity and the load factor.
-    private final Map<Object, JsonAdapter<?>> adapterCache = new LinkedHashMap<>();
+    private final ConcurrentMap<Type, JsonAdapter<?>> adapterCache = new ConcurrentHashMap<>();
+    private final Object adapterLock = new Object();
     private final Moshi moshi;
 
     public Converter(Moshi moshi) {
@@ -78,8 +134,16 @@ final class Converter {
     }
 
     /** Converts the contents of the {@link ResponseBody} to the expected java {@code type}. */
-    @SuppressWarnings("unchecked") // Type matching is the caller's responsibility.
     public <R> R convertFromBody(Type type, ResponseBody body) throws IOException {
+        return convertFromBody(type, body, -1);
+    }
+
+    /**
+     * Same as {@link #convertFromBody(Type, ResponseBody)}, but presizes the list in the response with
+     * {@code listSizeHint}, if the caller knows how many elements to expect.
+     */
+    @SuppressWarnings("unchecked") // Type matching is the caller's responsibility.
+    <R> R convertFromBody(Type type, ResponseBody body, int listSizeHint) throws IOException {
         if (body == null) return null;
 
         try {
@@ -90,13 +154,25 @@ final class Converter {
 
             JsonAdapter<R> adapter = findAdapter(type);
             JsonReader reader = JsonReader.of(body.source());
-            return adapter.fromJson(reader);
+            if (listSizeHint < 0) return adapter.fromJson(reader);
+
+            int[] hint = LIST_SIZE_HINT.get();
+            hint[0] = listSizeHint;
+            try {
+                return adapter.fromJson(reader);
+            } finally {
+                hint[0] = -1;
+            }
         } finally {
             closeQuietly(body);
         }
     }
 
-    /** Converts the java {@code type} to a {@link RequestBody} with a "application/json" {@link MediaType}. */
+    /**
+     * Converts the java {@code type} to a {@link RequestBody} with a "application/json" {@link MediaType}. The json is
+     * written once and the returned body shares the written segments with the sink on each write, so it can be replayed
+     * (i.e. on retries) without copying the payload.
+     */
     public <B> RequestBody convertToBody(Type type, B body) {
         Buffer buffer = new Buffer();
         JsonAdapter<B> jsonAdapter = findAdapter(type);
@@ -105,57 +181,90 @@ final class Converter {
         } catch (IOException ignored) {
             // Doesn't need to be handled. Buffer should not throw in this case.
         }
-        return RequestBody.create(MEDIA_TYPE_JSON, buffer.readByteArray());
+        return new BufferRequestBody(MEDIA_TYPE_JSON, buffer);
     }
 
     @SuppressWarnings("unchecked")
     public <T> JsonAdapter<T> findAdapter(Type type) {
-        if (type instanceof CompositeType) {
-            CompositeType compositeType = (CompositeType) type;
-            synchronized (adapterCache) {
-                JsonAdapter<?> adapter = adapterCache.get(compositeType);
-                if (adapter != null) return (JsonAdapter<T>) adapter;
-            }
-
-            JsonAdapter<T> delegate = findAdapter(compositeType.searchFor);
-            JsonAdapter<T> adapter = new CompositeJsonAdapter<>(delegate, compositeType.roots);
-            synchronized (adapterCache) {
-                adapterCache.put(compositeType, adapter);
+        // Types kept in constants hash in constant time and compare by identity, see CompositeType and ListTypeImpl.
+        JsonAdapter<?> adapter = adapterCache.get(type);
+        if (adapter == null) {
+            // Slow path, taken once per type. The lock is reentrant, so nested types can be resolved recursively.
+            synchronized (adapterLock) {
+                adapter = adapterCache.get(type);
+                if (adapter == null) {
+                    adapter = createAdapter(type);
+                    adapterCache.put(type, adapter);
+                }
             }
+        }
+        return (JsonAdapter<T>) adapter;
+    }
 
-            return adapter;
+    @SuppressWarnings("unchecked")
+    private JsonAdapter<?> createAdapter(Type type) {
+        if (type instanceof CompositeType) {
+            CompositeType compositeType = (CompositeType) type;
+            JsonAdapter<Object> delegate = findAdapter(compositeType.searchFor);
+            return new CompositeJsonAdapter<>(delegate, compositeType.roots);
         }
 
         if (type instanceof ListTypeImpl) {
             ListTypeImpl listType = (ListTypeImpl) type;
-            synchronized (adapterCache) {
-                JsonAdapter<?> adapter = adapterCache.get(listType);
-                if (adapter != null) return (JsonAdapter<T>) adapter;
-            }
-
-            JsonAdapter<?> delegate = findAdapter(listType.type);
-            JsonAdapter<T> adapter = (JsonAdapter<T>) new ListTypeImplJsonAdapter<>(delegate, listType.isFirst);
-            synchronized (adapterCache) {
-                adapterCache.put(listType, adapter);
-            }
+            JsonAdapter<Object> delegate = findAdapter(listType.type);
+            return new ListTypeImplJsonAdapter<>(delegate, listType.isFirst);
+        }
 
-            return adapter;
+        if (type instanceof ProjectedUserType) {
+            return XingUserJsonAdapter.projection(moshi, ((ProjectedUserType) type).fields);
         }
 
-        // Moshi has it's own adapter cache, no need to do anything here
+        // Moshi has it's own adapter cache, but it's guarded by a lock. Keeping the result here avoids that lock.
         return moshi.adapter(type);
     }
 
+    /** A replayable {@link RequestBody} backed by a {@link Buffer} that is never consumed. */
+    static final class BufferRequestBody extends RequestBody {
+        private final MediaType contentType;
+        private final Buffer buffer;
+
+        BufferRequestBody(MediaType contentType, Buffer buffer) {
+            this.contentType = contentType;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // Shares the segments instead of copying the bytes, which leaves the buffer intact for the next write.
+            buffer.copyTo(sink.getBuffer(), 0, buffer.size());
+            sink.emitCompleteSegments();
+        }
+    }
+
     /** Represents a type that contains a certain structure and path to the expected json object. */
     private static final class CompositeType implements Type {
         private static final String[] NO_ROOTS = new String[0];
 
         final Type searchFor;
         final String[] roots;
+        private final int hashCode;
 
         CompositeType(Type searchFor, String... roots) {
             this.searchFor = searchFor;
             this.roots = roots != null ? roots : NO_ROOTS;
+
+            int result = searchFor != null ? searchFor.hashCode() : 0;
+            hashCode = 31 * result + Arrays.hashCode(this.roots);
         }
 
         @Override
@@ -174,14 +283,64 @@ final class Converter {
 
         @Override
         public int hashCode() {
-            int result = searchFor != null ? searchFor.hashCode() : 0;
-            result = 31 * result + (roots != null ? Arrays.hashCode(roots) : 0);
-            return result;
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "CompositeType(" + searchFor + ", " + Arrays.asList(roots) + ')';
+        }
+    }
+
+    /** Key of an interned projection, see {@link #project(Type, Set)}. */
+    private static final class Projection {
+        final Type type;
+        final Set<String> fields;
+        private final int hashCode;
+
+        Projection(Type type, Set<String> fields) {
+            this.type = type;
+            this.fields = fields;
+            hashCode = 31 * type.hashCode() + fields.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Projection)) return false;
+            Projection projection = (Projection) o;
+            return type.equals(projection.type) && fields.equals(projection.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /** A {@link XingUser} of which only the json {@code fields} are decoded. */
+    private static final class ProjectedUserType implements Type {
+        final Set<String> fields;
+
+        ProjectedUserType(Set<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return fields.equals(((ProjectedUserType) o).fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return fields.hashCode();
         }
 
         @Override
         public String toString() {
-            return "CompositeType(" + searchFor + ')';
+            return "ProjectedUserType(" + fields + ')';
         }
     }
 
@@ -189,40 +348,48 @@ final class Converter {
     private static final class CompositeJsonAdapter<T> extends JsonAdapter<T> {
         private final JsonAdapter<T> adapter;
         private final String[] roots;
+        /** One single-name option per root, so that keys are matched on the raw bytes instead of decoded strings. */
+        private final JsonReader.Options[] rootOptions;
 
         CompositeJsonAdapter(JsonAdapter<T> adapter, String[] roots) {
             this.adapter = adapter;
             this.roots = roots;
+            rootOptions = new JsonReader.Options[roots.length];
+            for (int i = 0; i < roots.length; i++) {
+                rootOptions[i] = JsonReader.Options.of(roots[i]);
+            }
         }
 
         @Override
         public T fromJson(JsonReader reader) throws IOException {
-            return readRootLeafs(adapter, reader, roots, 0);
+            return readRootLeafs(adapter, reader, roots, rootOptions, 0);
         }
 
         /** Recursively goes through the JSON and finds the given root. Returns the object(s) found in provided roots. */
-        private static <T> T readRootLeafs(JsonAdapter<T> adapter, JsonReader reader, String[] roots, int index)
-              throws IOException {
-            if (roots == null || index == roots.length) {
+        private static <T> T readRootLeafs(JsonAdapter<T> adapter, JsonReader reader, String[] roots,
+              JsonReader.Options[] rootOptions, int index) throws IOException {
+            if (index == roots.length) {
                 //noinspection unchecked This puts full responsibility on the caller.
                 return adapter.fromJson(reader);
             } else {
                 reader.beginObject();
                 try {
-                    String root = roots[index];
+                    JsonReader.Options root = rootOptions[index];
                     while (reader.hasNext()) {
-                        if (reader.nextName().equals(root)) {
+                        if (reader.selectName(root) == 0) {
                             if (reader.peek() == JsonReader.Token.NULL) {
                                 return reader.nextNull();
                             }
-                            return readRootLeafs(adapter, reader, roots, ++index);
+                            return readRootLeafs(adapter, reader, roots, rootOptions, ++index);
                         } else {
+                            reader.skipName();
                             reader.skipValue();
                         }
                     }
                 } finally {
                     // If the json has an additional key, that was not read, we ignore it.
                     while (reader.hasNext()) {
+                        reader.skipName();
                         reader.skipValue();
                     }
                     reader.endObject();
@@ -248,7 +415,7 @@ final class Converter {
          */
         private static <T> void writeRootLeafs(JsonAdapter<T> adapter, JsonWriter writer, T value,
               String[] roots, int index) throws IOException {
-            if (roots == null || index == roots.length) {
+            if (index == roots.length) {
                 adapter.toJson(writer, value);
             } else {
                 writer.beginObject();
@@ -270,6 +437,7 @@ final class Converter {
     private static final class ListTypeImpl implements Type {
         final Type type;
         final boolean isFirst;
+        private final int hashCode;
 
         ListTypeImpl(Type type) {
             this(type, false);
@@ -278,6 +446,9 @@ final class Converter {
         ListTypeImpl(Type type, boolean isFirst) {
             this.type = type;
             this.isFirst = isFirst;
+
+            int result = type != null ? type.hashCode() : 0;
+            hashCode = 31 * result + (isFirst ? 1 : 0);
         }
 
         @Override
@@ -292,9 +463,7 @@ final class Converter {
 
         @Override
         public int hashCode() {
-            int result = type != null ? type.hashCode() : 0;
-            result = 31 * result + (isFirst ? 1 : 0);
-            return result;
+            return hashCode;
         }
 
         @Override
@@ -315,24 +484,39 @@ final class Converter {
 
         @Override
         public T fromJson(JsonReader reader) throws IOException {
-            // We can't know the size of the array at this point.
+            if (isFirst) return firstFromJson(reader);
+
+            // Only the outermost list may take the hint, nested lists would be sized wrongly.
+            int[] hint = LIST_SIZE_HINT.get();
+            int sizeHint = hint[0];
+            hint[0] = -1;
+
             //noinspection CollectionWithoutInitialCapacity
-            List<Object> result = new ArrayList<>();
+            List<Object> result = sizeHint >= 0 ? new ArrayList<>(sizeHint) : new ArrayList<>();
             reader.beginArray();
             while (reader.hasNext()) {
                 result.add(elementAdapter.fromJson(reader));
             }
             reader.endArray();
 
-            if (isFirst) {
-                //noinspection unchecked
-                return !result.isEmpty() ? (T) result.get(0) : null;
-            }
-
             //noinspection unchecked
             return (T) result;
         }
 
+        /** Decodes only the first element, the rest of the array is skipped without being decoded. */
+        private T firstFromJson(JsonReader reader) throws IOException {
+            T first = null;
+            reader.beginArray();
+            if (reader.hasNext()) {
+                first = elementAdapter.fromJson(reader);
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+            }
+            reader.endArray();
+            return first;
+        }
+
         @Override
         public void toJson(JsonWriter writer, T value) throws IOException {
             writer.beginArray();
@@ -0,0 +1,650 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static com.xing.api.Utils.closeQuietly;
+
+/**
+ * Disk tier of the {@link ObjectCache}. Decoded bodies are written in java serialization format, which all models
+ * support, so that a hit after a restart skips the network. It does not skip the cost of decoding: records are not
+ * more compact than the json and reading one back costs about as much as decoding the json again, see {@code
+ * ColdStartBenchmark}. A dedicated binary codec for the models would be needed for that. Only the models in {@code
+ * com.xing.api.data}, common JDK value types and collections and explicitly allowed classes are deserialized,
+ * anything else found in a record makes it count as missing. A tampered directory can therefore not make the store
+ * instantiate arbitrary classes.
+ *
+ * <p>Records are appended to segment files. An index of the newest record per key is kept in memory and rebuilt by
+ * scanning the segments when the store is first used. Records superseded by a newer one are garbage. Once garbage
+ * makes up half of the store, segments that are at least half garbage are compacted by moving their live records to
+ * the newest segment. Once the segments exceed the maximum size the oldest segment is deleted. Every record carries a
+ * checksum, records that are truncated, fail the checksum or can no longer be deserialized are treated as missing.
+ * A malformed record doesn't take the records after it along, the scan resumes at the next intact one.
+ *
+ * <p>{@linkplain #renew(String, long) Renewing} a record rewrites its expiry and checksum in place.
+ *
+ * <p>Record layout: {@code magic, key, expiresAt, range offset, range last, range total, etag, last modified, payload
+ * length, payload, crc32}. The crc32 covers everything from the key up to the payload.
+ */
+final class DiskStore {
+    private static final int MAGIC = 0x58434302; // "XCC" v2
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final String MODELS_PACKAGE = "com.xing.api.data.";
+    private static final Set<String> JDK_TYPES = new HashSet<>(Arrays.asList(
+          "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Double", "java.lang.Enum",
+          "java.lang.Float", "java.lang.Integer", "java.lang.Long", "java.lang.Number", "java.lang.Short",
+          "java.lang.String", "java.math.BigDecimal", "java.math.BigInteger", "java.util.ArrayList",
+          "java.util.Arrays$ArrayList", "java.util.Calendar", "java.util.Date", "java.util.GregorianCalendar",
+          "java.util.HashMap", "java.util.HashSet", "java.util.LinkedHashMap", "java.util.LinkedHashSet",
+          "java.util.LinkedList", "java.util.Locale", "java.util.SimpleTimeZone", "java.util.TimeZone",
+          "java.util.TreeMap", "java.util.TreeSet", "sun.util.calendar.ZoneInfo"));
+
+    private final File directory;
+    private final long maxSize;
+    private final long segmentSize;
+    private final ExecutorService writer;
+    private final Set<String> allowedTypes;
+
+    // Guarded by this.
+    private final Map<String, Location> index = new HashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean initialized;
+    private long size;
+    private long garbage;
+
+    /** Creates a store that also reads back the classes named in {@code allowedTypes}. */
+    DiskStore(File directory, long maxSize, Set<String> allowedTypes) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.allowedTypes = new HashSet<>(allowedTypes);
+        segmentSize = Math.max(MIN_SEGMENT_SIZE, maxSize / 4);
+        writer = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+              new ThreadFactory() {
+                  @Override
+                  public Thread newThread(Runnable runnable) {
+                      Thread thread = new Thread(runnable, "XingApi DiskStore");
+                      thread.setDaemon(true);
+                      return thread;
+                  }
+              });
+    }
+
+    /** A record read back from disk. */
+    static final class Record {
+        final Object body;
+        final ContentRange range;
+        final String etag;
+        final String lastModified;
+        final long expiresAt;
+
+        Record(Object body, ContentRange range, String etag, String lastModified, long expiresAt) {
+            this.body = body;
+            this.range = range;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /** Returns the newest record for {@code key}, or {@code null} if there is none or it can't be read. */
+    Record read(String key) {
+        Location location;
+        synchronized (this) {
+            initialize();
+            location = index.get(key);
+        }
+        if (location == null) return null;
+
+        Record record = read(location, key);
+        if (record != null) return record;
+        synchronized (this) {
+            if (index.get(key) != location) return null;
+            // A renewal may have been rewriting the record while it was read, only drop it if it is still unreadable.
+            record = read(location, key);
+            if (record == null) {
+                index.remove(key);
+                addGarbage(location);
+            }
+            return record;
+        }
+    }
+
+    /** Returns the record at {@code location}, or {@code null} if it is corrupted or can't be deserialized. */
+    private Record read(Location location, String key) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(location.segment.file, "r");
+            file.seek(location.offset);
+            byte[] bytes = new byte[location.length];
+            file.readFully(bytes);
+            return decode(bytes, key);
+        } catch (IOException | ClassNotFoundException | RuntimeException ignored) {
+            // Corrupted or written by an incompatible version.
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    /** Appends a record for {@code key} in the background. Bodies that are not {@link Serializable} are skipped. */
+    void write(final String key, final Object body, final ContentRange range, final String etag,
+          final String lastModified, final long expiresAt) {
+        if (!(body instanceof Serializable)) return;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    append(key, encode(key, body, range, etag, lastModified, expiresAt));
+                } catch (IOException | RuntimeException ignored) {
+                    // The cache is best effort, the entry is simply missing.
+                }
+            }
+        });
+    }
+
+    /** Sets the expiry of the record for {@code key} in the background, if there is one. The body is not rewritten. */
+    void renew(final String key, final long expiresAt) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rewriteExpiry(key, expiresAt);
+                } catch (IOException | RuntimeException ignored) {
+                    // The record keeps its old expiry, or fails its checksum and is missing.
+                }
+            }
+        });
+    }
+
+    /** Blocks until all pending writes are on disk. */
+    void awaitWrites() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    /** Deletes all segments. */
+    synchronized void clear() {
+        initialize();
+        for (Segment segment : segments) {
+            //noinspection ResultOfMethodCallIgnored
+            segment.file.delete();
+        }
+        segments.clear();
+        index.clear();
+        size = 0L;
+        garbage = 0L;
+    }
+
+    /** Total size of all segments in bytes. */
+    synchronized long size() {
+        initialize();
+        return size;
+    }
+
+    /** Total size of the superseded records in bytes. */
+    synchronized long garbage() {
+        initialize();
+        return garbage;
+    }
+
+    private synchronized void append(String key, byte[] record) throws IOException {
+        initialize();
+        appendRecord(key, record);
+        if (garbage * 2 > size) compact();
+        while (size > maxSize && segments.size() > 1) {
+            evict(segments.remove(0));
+        }
+    }
+
+    private void appendRecord(String key, byte[] record) throws IOException {
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.length + record.length > segmentSize) {
+            segment = new Segment(new File(directory, SEGMENT_PREFIX + (segment != null ? segment.id + 1 : 0)),
+                  segment != null ? segment.id + 1 : 0);
+            segments.add(segment);
+        }
+
+        FileOutputStream out = new FileOutputStream(segment.file, true);
+        try {
+            out.write(record);
+        } finally {
+            out.close();
+        }
+        Location previous = index.put(key, new Location(segment, segment.length, record.length));
+        if (previous != null) addGarbage(previous);
+        segment.length += record.length;
+        size += record.length;
+    }
+
+    private void addGarbage(Location location) {
+        location.segment.garbage += location.length;
+        garbage += location.length;
+    }
+
+    /** Moves the live records of all but the newest segment to the newest one, if the segment is mostly garbage. */
+    private void compact() throws IOException {
+        for (int i = 0; i < segments.size() - 1; ) {
+            Segment segment = segments.get(i);
+            if (segment.garbage * 2 < segment.length) {
+                i++;
+                continue;
+            }
+
+            List<Map.Entry<String, Location>> live = new ArrayList<>();
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                if (entry.getValue().segment == segment) live.add(entry);
+            }
+            RandomAccessFile file = new RandomAccessFile(segment.file, "r");
+            try {
+                for (Map.Entry<String, Location> entry : live) {
+                    Location location = entry.getValue();
+                    byte[] record = new byte[location.length];
+                    file.seek(location.offset);
+                    file.readFully(record);
+                    appendRecord(entry.getKey(), record);
+                }
+            } finally {
+                file.close();
+            }
+            // All of its records are garbage now.
+            segments.remove(i);
+            evict(segment);
+        }
+    }
+
+    private void evict(Segment segment) {
+        for (Iterator<Location> iterator = index.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().segment == segment) iterator.remove();
+        }
+        size -= segment.length;
+        garbage -= segment.garbage;
+        //noinspection ResultOfMethodCallIgnored
+        segment.file.delete();
+    }
+
+    private synchronized void rewriteExpiry(String key, long expiresAt) throws IOException {
+        initialize();
+        Location location = index.get(key);
+        if (location == null) return;
+
+        RandomAccessFile file = new RandomAccessFile(location.segment.file, "rw");
+        try {
+            byte[] record = new byte[location.length];
+            file.seek(location.offset);
+            file.readFully(record);
+            if (!hasValidChecksum(record)) return;
+
+            int expiresAtOffset = 4 + 2 + utfLength(key);
+            ByteBuffer.wrap(record).putLong(expiresAtOffset, expiresAt);
+            CRC32 crc = new CRC32();
+            crc.update(record, 4, record.length - 12);
+            file.seek(location.offset + expiresAtOffset);
+            file.writeLong(expiresAt);
+            file.seek(location.offset + location.length - 8);
+            file.writeLong(crc.getValue());
+        } finally {
+            file.close();
+        }
+    }
+
+    /** Loads the index by scanning all segments, oldest first. */
+    private void initialize() {
+        if (initialized) return;
+        initialized = true;
+
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith(SEGMENT_PREFIX)) continue;
+            try {
+                segments.add(new Segment(file, Integer.parseInt(name.substring(SEGMENT_PREFIX.length()))));
+            } catch (NumberFormatException ignored) {
+                // Not one of ours.
+            }
+        }
+        Collections.sort(segments);
+        for (Segment segment : segments) {
+            scan(segment);
+            size += segment.length;
+        }
+    }
+
+    /**
+     * Indexes the records of {@code segment}. A malformed record is skipped by its length if its header is intact,
+     * otherwise the segment is searched for the next record. Records found after a malformed one have to pass their
+     * checksum. Skipped bytes are garbage, only the tail after the last good record is cut off.
+     */
+    private void scan(Segment segment) {
+        long fileLength = segment.file.length();
+        long offset = 0L;
+        long end = 0L; // End of the last good record.
+        boolean lost = false; // Whether offset was found past a malformed record.
+        SegmentReader in = null;
+        try {
+            in = new SegmentReader(segment.file);
+            while (offset < fileLength) {
+                in.seek(offset);
+                boolean wellFormed = in.readHeader(fileLength - offset);
+                if (wellFormed && in.magic == MAGIC && (!lost || hasValidChecksum(in.readRecord(offset, in.length)))) {
+                    Location previous = index.put(in.key, new Location(segment, offset, in.length));
+                    if (previous != null) addGarbage(previous);
+                    segment.garbage += offset - end;
+                    garbage += offset - end;
+                    offset += in.length;
+                    end = offset;
+                    lost = false;
+                } else if (wellFormed && !lost) {
+                    // Only the magic is off, the length still leads to the next record.
+                    offset += in.length;
+                    lost = true;
+                } else {
+                    offset = in.findMagic(offset + 1, fileLength);
+                    if (offset < 0L) break;
+                    lost = true;
+                }
+            }
+        } catch (IOException ignored) {
+            // Keep what was indexed so far.
+        } finally {
+            closeQuietly(in);
+        }
+        // Anything past the last good record is garbage, new records go after it.
+        segment.length = end;
+        if (end < fileLength) truncate(segment.file, end);
+    }
+
+    private static void truncate(File file, long length) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(length);
+        } catch (IOException ignored) {
+            // Appending after garbage only makes later records unreachable.
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    private static byte[] encode(String key, Object body, ContentRange range, String etag, String lastModified,
+          long expiresAt) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(1024);
+        ObjectOutputStream objects = new ObjectOutputStream(payloadBytes);
+        objects.writeObject(body);
+        objects.close();
+        byte[] payload = payloadBytes.toByteArray();
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(payload.length + key.length() + 64);
+        DataOutputStream out = new DataOutputStream(recordBytes);
+        out.writeInt(MAGIC);
+        out.writeUTF(key);
+        out.writeLong(expiresAt);
+        out.writeInt(range != null ? range.offset() : -1);
+        out.writeInt(range != null ? range.last() : -1);
+        out.writeInt(range != null ? range.total() : Integer.MIN_VALUE);
+        out.writeUTF(etag != null ? etag : "");
+        out.writeUTF(lastModified != null ? lastModified : "");
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        byte[] record = recordBytes.toByteArray();
+        crc.update(record, 4, record.length - 4);
+        out.writeLong(crc.getValue());
+        out.flush();
+        return recordBytes.toByteArray();
+    }
+
+    private static boolean hasValidChecksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, record.length - 12);
+        return ByteBuffer.wrap(record).getLong(record.length - 8) == crc.getValue();
+    }
+
+    /** Returns the record, or {@code null} if it doesn't belong to {@code key} or fails the checksum. */
+    private Record decode(byte[] record, String key) throws IOException, ClassNotFoundException {
+        if (!hasValidChecksum(record)) return null;
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        if (in.readInt() != MAGIC || !key.equals(in.readUTF())) return null;
+        long expiresAt = in.readLong();
+        int offset = in.readInt();
+        int last = in.readInt();
+        int total = in.readInt();
+        ContentRange range = total != Integer.MIN_VALUE ? new ContentRange(offset, last, total) : null;
+        String etag = in.readUTF();
+        String lastModified = in.readUTF();
+        in.skipBytes(4); // Payload length.
+        ObjectInputStream objects = new AllowedTypesInputStream(in, allowedTypes);
+        return new Record(objects.readObject(), range, etag.isEmpty() ? null : etag,
+              lastModified.isEmpty() ? null : lastModified, expiresAt);
+    }
+
+    /** Returns {@code true} if instances of the class {@code name} may be read back, see {@link DiskStore}. */
+    private static boolean isAllowed(String name, Set<String> allowedTypes) {
+        int dimensions = 0;
+        while (name.startsWith("[", dimensions)) dimensions++;
+        if (dimensions > 0) {
+            // Primitive arrays are named by a single letter, object arrays as "[Lname;".
+            if (name.length() == dimensions + 1) return true;
+            name = name.substring(dimensions + 1, name.length() - 1);
+        }
+        return name.startsWith(MODELS_PACKAGE) || JDK_TYPES.contains(name)
+              || name.startsWith("java.util.Collections$") || allowedTypes.contains(name);
+    }
+
+    private static int utfLength(String value) {
+        int length = 0;
+        for (int i = 0, size = value.length(); i < size; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /** Refuses to resolve classes that are not {@linkplain #isAllowed(String, Set) allowed}. */
+    private static final class AllowedTypesInputStream extends ObjectInputStream {
+        private final Set<String> allowedTypes;
+
+        AllowedTypesInputStream(InputStream in, Set<String> allowedTypes) throws IOException {
+            super(in);
+            this.allowedTypes = allowedTypes;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName(), allowedTypes)) {
+                throw new InvalidClassException(desc.getName(), "Not allowed in the disk cache");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("Proxies are not allowed in the disk cache");
+        }
+    }
+
+    /** Reads the records of a segment sequentially, seeking back only to resume after a malformed record. */
+    private static final class SegmentReader implements Closeable {
+        private final FileInputStream file;
+        private final byte[] fixedFields = new byte[8 + 3 * 4];
+        private DataInputStream in;
+        private long position; // Negative if unknown.
+
+        // Of the last header read.
+        int magic;
+        String key;
+        int length;
+
+        SegmentReader(File file) throws IOException {
+            this.file = new FileInputStream(file);
+            in = new DataInputStream(new BufferedInputStream(this.file));
+        }
+
+        void seek(long offset) throws IOException {
+            if (position >= 0L && offset >= position) {
+                for (long skip = offset - position; skip > 0L; ) {
+                    int skipped = in.skipBytes((int) Math.min(skip, Integer.MAX_VALUE));
+                    if (skipped <= 0) throw new EOFException();
+                    skip -= skipped;
+                }
+            } else {
+                file.getChannel().position(offset);
+                in = new DataInputStream(new BufferedInputStream(file));
+            }
+            position = offset;
+        }
+
+        /**
+         * Reads the header of the record at the current position. Returns {@code false} if it is malformed or the
+         * record is longer than the {@code remaining} bytes of the segment.
+         */
+        boolean readHeader(long remaining) throws IOException {
+            long start = position;
+            position = -1L;
+            try {
+                magic = in.readInt();
+                key = in.readUTF();
+                in.readFully(fixedFields);
+                String etag = in.readUTF();
+                String lastModified = in.readUTF();
+                int payloadLength = in.readInt();
+                int headerLength = 4 + 2 + utfLength(key) + 8 + 3 * 4 + 2 + utfLength(etag) + 2 + utfLength(lastModified)
+                      + 4;
+                long length = headerLength + (long) payloadLength + 8;
+                if (payloadLength < 0 || length > remaining) return false;
+                this.length = (int) length;
+                if (start >= 0L) position = start + headerLength;
+                return true;
+            } catch (EOFException | UTFDataFormatException malformed) {
+                return false;
+            }
+        }
+
+        byte[] readRecord(long offset, int length) throws IOException {
+            seek(offset);
+            position = -1L;
+            byte[] record = new byte[length];
+            in.readFully(record);
+            position = offset + length;
+            return record;
+        }
+
+        /** Returns the offset of the next magic number at or after {@code offset}, or {@code -1} if there is none. */
+        long findMagic(long offset, long end) throws IOException {
+            seek(offset);
+            position = -1L;
+            int window = 0;
+            for (long next = offset; next < end; ) {
+                int b = in.read();
+                if (b < 0) return -1L;
+                window = window << 8 | b;
+                if (++next - offset >= 4 && window == MAGIC) {
+                    position = next;
+                    return next - 4;
+                }
+            }
+            return -1L;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class Segment implements Comparable<Segment> {
+        final File file;
+        final int id;
+        long length; // Guarded by DiskStore.this.
+        long garbage; // Guarded by DiskStore.this.
+
+        Segment(File file, int id) {
+            this.file = file;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Segment other) {
+            return id < other.id ? -1 : id == other.id ? 0 : 1;
+        }
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final long offset;
+        final int length;
+
+        Location(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
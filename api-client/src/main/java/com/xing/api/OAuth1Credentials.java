@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import static com.xing.api.Utils.checkNotNull;
+
+/**
+ * The OAuth1 access token and secret of one user, for {@linkplain CallSpec#asUser(OAuth1Credentials) calls} made on
+ * behalf of many users through one {@linkplain XingApi.Builder#multiUser() multi user} {@linkplain XingApi}.
+ *
+ * <p>Instances are cheap, but keeping one per user lets calls reuse the signing key derived from them.
+ */
+public final class OAuth1Credentials {
+    private final String accessToken;
+    private final String accessSecret;
+    /** The signer last derived from these credentials, see {@link OAuth1SigningInterceptor}. */
+    volatile OAuth1Signer signer;
+
+    public OAuth1Credentials(String accessToken, String accessSecret) {
+        this.accessToken = checkNotNull(accessToken, "accessToken == null");
+        this.accessSecret = checkNotNull(accessSecret, "accessSecret == null");
+    }
+
+    public String accessToken() {
+        return accessToken;
+    }
+
+    public String accessSecret() {
+        return accessSecret;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OAuth1Credentials)) return false;
+        OAuth1Credentials that = (OAuth1Credentials) o;
+        return accessToken.equals(that.accessToken) && accessSecret.equals(that.accessSecret);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * accessToken.hashCode() + accessSecret.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        // Never leak the secret.
+        return "OAuth1Credentials{accessToken=" + accessToken + '}';
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+
+import static com.xing.api.UrlEscapeUtils.escape;
+
+/**
+ * Computes OAuth1 (HMAC-SHA1) {@code Authorization} headers for one set of credentials.
+ *
+ * <p>Everything that only depends on the credentials (the signing key, the escaped consumer key and token and the
+ * constant parts of the header) is computed once. The {@link Mac}, parameter table and buffers are borrowed from a
+ * {@link StripedPool} shared by all signers, so that signing a request mostly allocates the header itself and a
+ * signer takes only a few hundred bytes.
+ */
+@SuppressWarnings("ClassNamingConvention")
+final class OAuth1Signer {
+    private static final String HMAC_SHA1 = "HmacSHA1";
+    private static final MediaType FORM_ENCODED_CONTENT_TYPE = MediaType.parse("application/x-www-form-urlencoded");
+    private static final char[] BASE64 =
+          "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final StripedPool<Scratch> SCRATCH = new StripedPool<Scratch>() {
+        @Override
+        Scratch create() {
+            return new Scratch();
+        }
+    };
+
+    private final SecretKeySpec signingKey;
+    private final String rawConsumerKey;
+    private final String rawConsumerSecret;
+    private final String consumerKey;
+    private final String accessToken;
+    private final String headerPrefix;
+    private final String headerMiddle;
+    private final String headerSuffix;
+
+    OAuth1Signer(String consumerKey, String consumerSecret, String accessToken, String accessSecret) {
+        signingKey = new SecretKeySpec(
+              ByteString.encodeUtf8(escape(consumerSecret) + '&' + escape(accessSecret)).toByteArray(), HMAC_SHA1);
+        rawConsumerKey = consumerKey;
+        rawConsumerSecret = consumerSecret;
+        this.consumerKey = escape(consumerKey);
+        this.accessToken = escape(accessToken);
+        headerPrefix = "OAuth oauth_consumer_key=\"" + this.consumerKey + "\", oauth_nonce=\"";
+        headerMiddle = "\", oauth_signature_method=\"HMAC-SHA1\", oauth_timestamp=\"";
+        headerSuffix = "\", oauth_token=\"" + this.accessToken + "\", oauth_version=\"1.0\"";
+    }
+
+    /** Returns {@code true} if this signer signs for the given consumer. */
+    boolean hasConsumer(String consumerKey, String consumerSecret) {
+        return rawConsumerKey.equals(consumerKey) && rawConsumerSecret.equals(consumerSecret);
+    }
+
+    /**
+     * Returns the {@code Authorization} header for a request.
+     *
+     * @throws IOException If the request body could not be read.
+     */
+    String authorization(String method, HttpUrl url, RequestBody body, String nonce, String timestamp)
+          throws IOException {
+        return authorization(method, url, body, null, nonce, timestamp);
+    }
+
+    /**
+     * Returns the {@code Authorization} header for a request, using {@code template} if the request is the one it was
+     * {@linkplain #compile(Request) compiled} from.
+     *
+     * @throws IOException If the request body could not be read.
+     */
+    String authorization(String method, HttpUrl url, RequestBody body, Template template, String nonce,
+          String timestamp) throws IOException {
+        Scratch scratch = SCRATCH.acquire();
+        try {
+            return authorization(scratch.use(signingKey), method, url, body, template, nonce, timestamp);
+        } finally {
+            SCRATCH.release(scratch);
+        }
+    }
+
+    private String authorization(Scratch scratch, String method, HttpUrl url, RequestBody body, Template template,
+          String nonce, String timestamp) throws IOException {
+        if (template != null && template.matches(method, url, body)) {
+            return header(scratch, scratch.sign(template.prefix, template.base(scratch.text, consumerKey,
+                  accessToken, nonce, timestamp)), nonce, timestamp);
+        }
+
+        Parameters parameters = scratch.parameters;
+        parameters.clear();
+        parameters.put("oauth_consumer_key", consumerKey);
+        parameters.put("oauth_token", accessToken);
+        parameters.put("oauth_nonce", nonce);
+        parameters.put("oauth_timestamp", timestamp);
+        parameters.put("oauth_signature_method", "HMAC-SHA1");
+        parameters.put("oauth_version", "1.0");
+
+        for (int i = 0, size = url.querySize(); i < size; i++) {
+            String value = url.queryParameterValue(i);
+            parameters.put(escape(url.queryParameterName(i)), escape(value != null ? value : ""));
+        }
+
+        if (body instanceof FormBody) {
+            // Already encoded as sent, no need to serialize the body.
+            FormBody form = (FormBody) body;
+            for (int i = 0, size = form.size(); i < size; i++) {
+                parameters.put(form.encodedName(i), form.encodedValue(i));
+            }
+        } else if (body != null && FORM_ENCODED_CONTENT_TYPE.equals(body.contentType())) {
+            putStreamed(parameters, body);
+        }
+
+        StringBuilder base = scratch.text;
+        base.setLength(0);
+        base.append(method).append('&');
+        appendEscaped(base, withoutQuery(url));
+        base.append('&');
+        for (int i = 0; i < parameters.size; i++) {
+            if (i > 0) base.append("%26");
+            appendEscaped(base, parameters.keys[i]);
+            base.append("%3D");
+            appendEscaped(base, parameters.values[i]);
+        }
+        return header(scratch, scratch.sign(null, base), nonce, timestamp);
+    }
+
+    private String header(Scratch scratch, byte[] signature, String nonce, String timestamp) {
+        StringBuilder header = scratch.text;
+        header.setLength(0);
+        header.append(headerPrefix).append(nonce).append("\", oauth_signature=\"");
+        appendBase64Escaped(header, signature);
+        header.append(headerMiddle).append(timestamp).append(headerSuffix);
+        return header.toString();
+    }
+
+    /**
+     * Compiles the parts of the signature base string that only depend on {@code request}: the method, the url and the
+     * sorted, escaped parameters.
+     */
+    static Template compile(Request request) throws IOException {
+        Parameters parameters = new Parameters();
+        HttpUrl url = request.url();
+        for (int i = 0, size = url.querySize(); i < size; i++) {
+            String value = url.queryParameterValue(i);
+            parameters.put(escape(url.queryParameterName(i)), escape(value != null ? value : ""));
+        }
+        RequestBody body = request.body();
+        if (body instanceof FormBody) {
+            FormBody form = (FormBody) body;
+            for (int i = 0, size = form.size(); i < size; i++) {
+                parameters.put(form.encodedName(i), form.encodedValue(i));
+            }
+        } else if (body != null && FORM_ENCODED_CONTENT_TYPE.equals(body.contentType())) {
+            putStreamed(parameters, body);
+        }
+
+        StringBuilder prefix = new StringBuilder().append(request.method()).append('&');
+        appendEscaped(prefix, withoutQuery(url));
+        prefix.append('&');
+        String[] keys = Arrays.copyOf(parameters.keys, parameters.size);
+        String[] segments = new String[parameters.size];
+        StringBuilder segment = new StringBuilder();
+        for (int i = 0; i < parameters.size; i++) {
+            segment.setLength(0);
+            appendEscaped(segment, parameters.keys[i]);
+            segment.append("%3D");
+            appendEscaped(segment, parameters.values[i]);
+            segments[i] = segment.toString();
+        }
+        return new Template(request.method(), url, body, ByteString.encodeUtf8(prefix.toString()).toByteArray(), keys,
+              segments);
+    }
+
+    /** Reads the parameters of an opaque form encoded body. */
+    private static void putStreamed(Parameters parameters, RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        while (!buffer.exhausted()) {
+            long keyEnd = buffer.indexOf((byte) '=');
+            if (keyEnd == -1) throw new IllegalStateException("Key with no value: " + buffer.readUtf8());
+
+            String key = buffer.readUtf8(keyEnd);
+            buffer.skip(1); // Equals.
+
+            long valueEnd = buffer.indexOf((byte) '&');
+            String value = valueEnd == -1 ? buffer.readUtf8() : buffer.readUtf8(valueEnd);
+            if (valueEnd != -1) buffer.skip(1); // Ampersand.
+
+            parameters.put(key, value);
+        }
+    }
+
+    /** Returns the url without its query, keeping a fragment. */
+    private static String withoutQuery(HttpUrl url) {
+        String string = url.toString();
+        int query = string.indexOf('?');
+        if (query == -1) return string;
+        int fragment = string.indexOf('#', query);
+        return fragment == -1 ? string.substring(0, query) : string.substring(0, query) + string.substring(fragment);
+    }
+
+    /**
+     * Appends the {@linkplain UrlEscapeUtils#escape(String) escaped} {@code text}. Text that was escaped before only
+     * needs its percent signs escaped, which is done without allocating.
+     */
+    private static void appendEscaped(StringBuilder out, String text) {
+        int start = out.length();
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '%') {
+                out.append("%25");
+            } else if (UrlEscapeUtils.isSafe(c)) {
+                out.append(c);
+            } else {
+                out.setLength(start);
+                out.append(escape(text));
+                return;
+            }
+        }
+    }
+
+    /** Appends the base64 encoding of {@code bytes}, with {@code +/=} percent escaped. */
+    @SuppressWarnings("MagicNumber")
+    private static void appendBase64Escaped(StringBuilder out, byte[] bytes) {
+        int i = 0;
+        for (; i + 2 < bytes.length; i += 3) {
+            int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | bytes[i + 2] & 0xff;
+            appendBase64Char(out, bits >> 18);
+            appendBase64Char(out, bits >> 12);
+            appendBase64Char(out, bits >> 6);
+            appendBase64Char(out, bits);
+        }
+        int remaining = bytes.length - i;
+        if (remaining == 0) return;
+        int bits = (bytes[i] & 0xff) << 16 | (remaining == 2 ? (bytes[i + 1] & 0xff) << 8 : 0);
+        appendBase64Char(out, bits >> 18);
+        appendBase64Char(out, bits >> 12);
+        if (remaining == 2) {
+            appendBase64Char(out, bits >> 6);
+        } else {
+            out.append("%3D");
+        }
+        out.append("%3D");
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private static void appendBase64Char(StringBuilder out, int bits) {
+        char c = BASE64[bits & 0x3f];
+        if (c == '+') {
+            out.append("%2B");
+        } else if (c == '/') {
+            out.append("%2F");
+        } else {
+            out.append(c);
+        }
+    }
+
+    /** The precompiled signature base string of a request, see {@link #compile(Request)}. */
+    static final class Template {
+        /** The oauth parameter names, sorted. */
+        private static final String[] OAUTH_KEYS = {"oauth_consumer_key", "oauth_nonce", "oauth_signature_method",
+              "oauth_timestamp", "oauth_token", "oauth_version"};
+
+        private final String method;
+        private final HttpUrl url;
+        private final RequestBody body;
+        final byte[] prefix;
+        private final String[] keys;
+        private final String[] segments;
+
+        Template(String method, HttpUrl url, RequestBody body, byte[] prefix, String[] keys, String[] segments) {
+            this.method = method;
+            this.url = url;
+            this.body = body;
+            this.prefix = prefix;
+            this.keys = keys;
+            this.segments = segments;
+        }
+
+        /** Returns {@code true} unless the request was modified after compiling, e.g. by an interceptor. */
+        boolean matches(String method, HttpUrl url, RequestBody body) {
+            return this.url == url && this.body == body && this.method.equals(method);
+        }
+
+        /** Merges the compiled parameters with the oauth parameters into {@code out}, after the prefix. */
+        StringBuilder base(StringBuilder out, String consumerKey, String accessToken, String nonce, String timestamp) {
+            out.setLength(0);
+            int i = 0;
+            int j = 0;
+            while (i < keys.length || j < OAUTH_KEYS.length) {
+                int compare = i == keys.length ? 1 : j == OAUTH_KEYS.length ? -1 : keys[i].compareTo(OAUTH_KEYS[j]);
+                if (out.length() > 0) out.append("%26");
+                if (compare <= 0) {
+                    // A request parameter replaces an oauth parameter of the same name.
+                    out.append(segments[i++]);
+                    if (compare == 0) j++;
+                    continue;
+                }
+                out.append(OAUTH_KEYS[j]).append("%3D");
+                switch (j++) {
+                    case 0:
+                        appendEscaped(out, consumerKey);
+                        break;
+                    case 1:
+                        appendEscaped(out, nonce);
+                        break;
+                    case 2:
+                        out.append("HMAC-SHA1");
+                        break;
+                    case 3:
+                        appendEscaped(out, timestamp);
+                        break;
+                    case 4:
+                        appendEscaped(out, accessToken);
+                        break;
+                    default:
+                        out.append("1.0");
+                        break;
+                }
+            }
+            return out;
+        }
+    }
+
+    /** State borrowed for signing one request. */
+    private static final class Scratch {
+        final Parameters parameters = new Parameters();
+        final StringBuilder text = new StringBuilder(512);
+        private final Mac mac;
+        private final byte[] signature;
+        private byte[] bytes = new byte[512];
+        private SecretKeySpec key;
+
+        Scratch() {
+            try {
+                mac = Mac.getInstance(HMAC_SHA1);
+            } catch (GeneralSecurityException e) {
+                throw new AssertionError(e);
+            }
+            signature = new byte[mac.getMacLength()];
+        }
+
+        /** Keys the {@link Mac} with {@code key}, unless it already is. */
+        Scratch use(SecretKeySpec key) {
+            if (this.key != key) {
+                try {
+                    mac.init(key);
+                } catch (GeneralSecurityException e) {
+                    throw new AssertionError(e);
+                }
+                this.key = key;
+            }
+            return this;
+        }
+
+        /**
+         * Returns the signature of the ASCII {@code prefix}, which may be {@code null}, followed by {@code text}. The
+         * array is reused by the next call.
+         */
+        byte[] sign(byte[] prefix, StringBuilder text) {
+            if (prefix != null) mac.update(prefix);
+            int length = text.length();
+            if (bytes.length < length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) text.charAt(i);
+            }
+            mac.update(bytes, 0, length);
+            try {
+                mac.doFinal(signature, 0);
+            } catch (GeneralSecurityException e) {
+                throw new AssertionError(e);
+            }
+            return signature;
+        }
+    }
+
+    /** Parameters sorted by name, a later value replaces an earlier one with the same name. */
+    private static final class Parameters {
+        String[] keys = new String[16];
+        String[] values = new String[16];
+        int size;
+
+        void clear() {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        void put(String key, String value) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            index = -index - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+    }
+}
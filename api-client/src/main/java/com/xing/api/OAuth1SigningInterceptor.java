@@ -17,23 +17,13 @@
 package com.xing.api;
 
 import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Map.Entry;
-import java.util.Random;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.regex.Pattern;
 
-import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
-import okhttp3.MediaType;
 import okhttp3.Request;
-import okhttp3.RequestBody;
 import okhttp3.Response;
-import okio.Buffer;
-import okio.ByteString;
 
-import static com.xing.api.UrlEscapeUtils.escape;
 import static com.xing.api.Utils.checkNotNull;
 import static com.xing.api.Utils.stateNotNull;
 
@@ -42,38 +32,25 @@ import static com.xing.api.Utils.stateNotNull;
  */
 @SuppressWarnings("ClassNamingConvention")
 final class OAuth1SigningInterceptor implements Interceptor {
-    private static final Pattern CHARACTER_PATTERN = Pattern.compile("\\W");
-    private static final int NUANCE_BYTES = 32;
-    private static final String OAUTH_CONSUMER_KEY = "oauth_consumer_key";
-    private static final String OAUTH_NONCE = "oauth_nonce";
-    private static final String OAUTH_SIGNATURE = "oauth_signature";
-    private static final String OAUTH_SIGNATURE_METHOD = "oauth_signature_method";
-    private static final String OAUTH_SIGNATURE_METHOD_VALUE = "HMAC-SHA1";
-    private static final String OAUTH_TIMESTAMP = "oauth_timestamp";
-    private static final String OAUTH_ACCESS_TOKEN = "oauth_token";
-    private static final String OAUTH_VERSION = "oauth_version";
-    private static final String OAUTH_VERSION_VALUE = "1.0";
-    private static final MediaType FORM_ENCODED_CONTENT_TYPE = MediaType.parse("application/x-www-form-urlencoded");
-
     private final String consumerKey;
     private final String consumerSecret;
-    private final String accessToken;
-    private final String accessSecret;
-    private final Random random;
-    private final Clock clock;
+    /** Signs requests without {@linkplain OAuth1Credentials per call credentials}, {@code null} if there is none. */
+    private final OAuth1Signer signer;
+    private final NonceProvider nonceProvider;
+    private final TimestampProvider timestampProvider;
 
     /**
      * Creates a new instance of <strong>this</strong> interceptor. {@linkplain XingApi} should use only one OAuth
-     * interceptor.
+     * interceptor. The access token and secret may be {@code null} if every request carries its own {@linkplain
+     * OAuth1Credentials credentials}.
      */
     OAuth1SigningInterceptor(String consumerKey, String consumerSecret, String accessToken, String accessSecret,
-          Random random, Clock clock) {
+          NonceProvider nonceProvider, TimestampProvider timestampProvider) {
         this.consumerKey = consumerKey;
         this.consumerSecret = consumerSecret;
-        this.accessToken = accessToken;
-        this.accessSecret = accessSecret;
-        this.random = random;
-        this.clock = clock;
+        signer = accessToken != null ? new OAuth1Signer(consumerKey, consumerSecret, accessToken, accessSecret) : null;
+        this.nonceProvider = nonceProvider;
+        this.timestampProvider = timestampProvider;
     }
 
     @Override
@@ -82,87 +59,30 @@ final class OAuth1SigningInterceptor implements Interceptor {
     }
 
     /**
-     * Returns the same request with an 'Authorization' header.
+     * Returns the same request with an 'Authorization' header, signed with the request's {@linkplain
+     * OAuth1Credentials credentials} tag if present.
      *
-     * @throws IOException If the request body could not be read.
+     * @throws IOException If the request body could not be read, or if the request has no credentials.
      */
     Request signRequest(Request request) throws IOException {
-        byte[] nonce = new byte[NUANCE_BYTES];
-        random.nextBytes(nonce);
-        String oauthNonce = CHARACTER_PATTERN.matcher(ByteString.of(nonce).base64()).replaceAll("");
-        String oauthTimestamp = clock.millis();
-
-        String consumerKeyValue = escape(consumerKey);
-        String accessTokenValue = escape(accessToken);
-
-        SortedMap<String, String> parameters = new TreeMap<>();
-        parameters.put(OAUTH_CONSUMER_KEY, consumerKeyValue);
-        parameters.put(OAUTH_ACCESS_TOKEN, accessTokenValue);
-        parameters.put(OAUTH_NONCE, oauthNonce);
-        parameters.put(OAUTH_TIMESTAMP, oauthTimestamp);
-        parameters.put(OAUTH_SIGNATURE_METHOD, OAUTH_SIGNATURE_METHOD_VALUE);
-        parameters.put(OAUTH_VERSION, OAUTH_VERSION_VALUE);
-
-        HttpUrl url = request.url();
-        for (int i = 0; i < url.querySize(); i++) {
-            parameters.put(escape(url.queryParameterName(i)),
-                  escape(url.queryParameterValue(i)));
-        }
-
-        Buffer body = new Buffer();
-        RequestBody requestBody = request.body();
-        if (requestBody != null && FORM_ENCODED_CONTENT_TYPE.equals(requestBody.contentType())) {
-            requestBody.writeTo(body);
-        }
-
-        while (!body.exhausted()) {
-            long keyEnd = body.indexOf((byte) '=');
-            if (keyEnd == -1) throw new IllegalStateException("Key with no value: " + body.readUtf8());
-
-            String key = body.readUtf8(keyEnd);
-            body.skip(1); // Equals.
-
-            long valueEnd = body.indexOf((byte) '&');
-            String value = valueEnd == -1 ? body.readUtf8() : body.readUtf8(valueEnd);
-            if (valueEnd != -1) body.skip(1); // Ampersand.
+        OAuth1Signer signer = signer(request.tag(OAuth1Credentials.class));
+        String authorization = signer.authorization(request.method(), request.url(), request.body(),
+              request.tag(OAuth1Signer.Template.class), nonceProvider.nonce(), timestampProvider.timestamp());
+        return request.newBuilder().addHeader("Authorization", authorization).build();
+    }
 
-            parameters.put(key, value);
+    private OAuth1Signer signer(OAuth1Credentials credentials) throws IOException {
+        if (credentials == null) {
+            if (signer == null) throw new IOException("No OAuth1 credentials, see CallSpec#asUser(OAuth1Credentials)");
+            return signer;
         }
-
-        Buffer base = new Buffer();
-        String method = request.method();
-        base.writeUtf8(method);
-        base.writeByte('&');
-        base.writeUtf8(escape(request.url()
-              .newBuilder()
-              .query(null)
-              .build()
-              .toString()));
-        base.writeByte('&');
-
-        boolean first = true;
-        //noinspection SSBasedInspection
-        for (Entry<String, String> entry : parameters.entrySet()) {
-            if (!first) base.writeUtf8(escape("&"));
-            first = false;
-            base.writeUtf8(escape(entry.getKey()));
-            base.writeUtf8(escape("="));
-            base.writeUtf8(escape(entry.getValue()));
+        OAuth1Signer signer = credentials.signer;
+        if (signer == null || !signer.hasConsumer(consumerKey, consumerSecret)) {
+            signer = new OAuth1Signer(consumerKey, consumerSecret, credentials.accessToken(),
+                  credentials.accessSecret());
+            credentials.signer = signer;
         }
-
-        String signingKey = escape(consumerSecret) + '&' + escape(accessSecret);
-        String signature = base.hmacSha1(ByteString.encodeUtf8(signingKey)).base64();
-
-        String authorization = "OAuth "
-              + OAUTH_CONSUMER_KEY + "=\"" + consumerKeyValue + "\", "
-              + OAUTH_NONCE + "=\"" + oauthNonce + "\", "
-              + OAUTH_SIGNATURE + "=\"" + escape(signature) + "\", "
-              + OAUTH_SIGNATURE_METHOD + "=\"" + OAUTH_SIGNATURE_METHOD_VALUE + "\", "
-              + OAUTH_TIMESTAMP + "=\"" + oauthTimestamp + "\", "
-              + OAUTH_ACCESS_TOKEN + "=\"" + accessTokenValue + "\", "
-              + OAUTH_VERSION + "=\"" + OAUTH_VERSION_VALUE + '"';
-
-        return request.newBuilder().addHeader("Authorization", authorization).build();
+        return signer;
     }
 
     /** Simple builder class, to simplify interceptor initialization. */
@@ -172,8 +92,9 @@ final class OAuth1SigningInterceptor implements Interceptor {
         private String consumerSecret;
         private String accessToken;
         private String accessSecret;
-        private Random random = new SecureRandom();
-        private Clock clock = new Clock();
+        private NonceProvider nonceProvider;
+        private TimestampProvider timestampProvider;
+        private boolean multiUser;
 
         public Builder consumerKey(String consumerKey) {
             this.consumerKey = checkNotNull(consumerKey, "consumerKey == null");
@@ -195,32 +116,127 @@ final class OAuth1SigningInterceptor implements Interceptor {
             return this;
         }
 
-        public Builder random(Random random) {
-            this.random = checkNotNull(random, "random == null");
+        public Builder nonceProvider(NonceProvider nonceProvider) {
+            this.nonceProvider = checkNotNull(nonceProvider, "nonceProvider == null");
             return this;
         }
 
-        /** Set clock, this is required mainly for testing (Or when we will have full Java 8 support). */
-        public Builder clock(Clock clock) {
-            this.clock = checkNotNull(clock, "clock == null");
+        /** Set the timestamp provider, this is required mainly for testing. */
+        public Builder timestampProvider(TimestampProvider timestampProvider) {
+            this.timestampProvider = checkNotNull(timestampProvider, "timestampProvider == null");
+            return this;
+        }
+
+        /** Allows building without access token and secret, requests must then carry their own credentials. */
+        public Builder multiUser() {
+            multiUser = true;
             return this;
         }
 
         public OAuth1SigningInterceptor build() {
             stateNotNull(consumerKey, "consumerKey not set");
             stateNotNull(consumerSecret, "consumerSecret not set");
-            stateNotNull(accessToken, "accessToken not set");
-            stateNotNull(accessSecret, "accessSecret not set");
-            return new OAuth1SigningInterceptor(consumerKey, consumerSecret, accessToken, accessSecret, random, clock);
+            if (!multiUser || accessToken != null || accessSecret != null) {
+                stateNotNull(accessToken, "accessToken not set");
+                stateNotNull(accessSecret, "accessSecret not set");
+            }
+            if (nonceProvider == null) nonceProvider = new RandomNonceProvider();
+            if (timestampProvider == null) timestampProvider = new SystemTimestampProvider();
+            return new OAuth1SigningInterceptor(consumerKey, consumerSecret, accessToken, accessSecret, nonceProvider,
+                  timestampProvider);
+        }
+    }
+
+    /**
+     * Draws nonces from pseudo random generators borrowed from a {@link StripedPool}, which are seeded by the platform
+     * and then refill a buffer in bulk, so that threads don't contend on a shared {@link SecureRandom}. Each nonce has
+     * 32 letters or digits, about 190 random bits.
+     */
+    static final class RandomNonceProvider implements NonceProvider {
+        private static final int NONCE_LENGTH = 32;
+        private static final int BUFFER_SIZE = 256;
+        private static final char[] ALPHANUMERIC =
+              "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+        private final StripedPool<State> states = new StripedPool<State>() {
+            @Override
+            State create() {
+                return new State(newGenerator());
+            }
+        };
+
+        @Override
+        public String nonce() {
+            State state = states.acquire();
+            try {
+                return state.nonce();
+            } finally {
+                states.release(state);
+            }
+        }
+
+        /** Prefers a DRBG (Java 9+), then SHA1PRNG, then the platform default. All of them seed themselves. */
+        static SecureRandom newGenerator() {
+            for (String algorithm : new String[] {"DRBG", "SHA1PRNG"}) {
+                try {
+                    return SecureRandom.getInstance(algorithm);
+                } catch (NoSuchAlgorithmException ignored) {
+                }
+            }
+            return new SecureRandom();
+        }
+
+        private static final class State {
+            private final SecureRandom random;
+            private final byte[] buffer = new byte[BUFFER_SIZE];
+            private final char[] nonce = new char[NONCE_LENGTH];
+            private int position = BUFFER_SIZE;
+
+            State(SecureRandom random) {
+                this.random = random;
+            }
+
+            @SuppressWarnings("MagicNumber")
+            String nonce() {
+                int length = 0;
+                while (length < NONCE_LENGTH) {
+                    if (position == BUFFER_SIZE) {
+                        random.nextBytes(buffer);
+                        position = 0;
+                    }
+                    // Six bits per byte, values past the alphabet are dropped to keep the characters uniform.
+                    int index = buffer[position++] & 0x3f;
+                    if (index < ALPHANUMERIC.length) nonce[length++] = ALPHANUMERIC[index];
+                }
+                return new String(nonce);
+            }
         }
     }
 
-    /** Simple clock like class, to allow time mocking. */
-    @SuppressWarnings({"MethodMayBeStatic", "MagicNumber"}) // Required for mocking.
-    static class Clock {
-        /** Returns the current time in milliseconds divided by 1K. */
-        public String millis() {
-            return Long.toString(System.currentTimeMillis() / 1000L);
+    /** Returns the system time, formatting it only once per second. */
+    static final class SystemTimestampProvider implements TimestampProvider {
+        private volatile Timestamp last = new Timestamp(-1L, "");
+
+        @Override
+        @SuppressWarnings("MagicNumber")
+        public String timestamp() {
+            long seconds = System.currentTimeMillis() / 1000L;
+            Timestamp last = this.last;
+            if (last.seconds != seconds) {
+                last = new Timestamp(seconds, Long.toString(seconds));
+                this.last = last;
+            }
+            return last.formatted;
+        }
+
+        private static final class Timestamp {
+            final long seconds;
+            final String formatted;
+
+            Timestamp(long seconds, String formatted) {
+                this.seconds = seconds;
+                this.formatted = formatted;
+            }
         }
     }
 }
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+import static com.xing.api.Utils.checkNotNull;
+
+/**
+ * In-memory cache of decoded responses, so that repeated calls to the same resource skip both the network and the
+ * json parsing. Calls opt in with {@link CallSpec#cachePolicy(CachePolicy)}. Entries are kept for a time to live that
+ * can differ per endpoint and are evicted least recently used first once the cache exceeds its maximum weight.
+ *
+ * <p>Once an entry outlived its time to live, its <strong>ETag</strong> and <strong>Last-Modified</strong> validators
+ * are sent with the next request. If the server answers with <strong>304 Not Modified</strong> the cached response is
+ * returned and kept for another time to live, without parsing anything.
+ *
+ * <p>With a {@linkplain Builder#diskCache(File, long) disk cache} responses are also persisted, so that they survive
+ * process restarts. Memory misses then fall back to the disk, which is read on a background thread for enqueued calls.
+ *
+ * <p>Cached response bodies are shared between all calls that receive them and must not be modified.
+ */
+public final class ObjectCache {
+    /** Weighs the cached response bodies. */
+    public interface Weigher {
+        /** Returns the weight of the response {@code body} of {@code url}, a non negative number. */
+        int weigh(HttpUrl url, Object body);
+    }
+
+    /** Counts every entry as {@code 1}, i.e. the maximum weight is the maximum number of entries. */
+    public static final Weigher ENTRIES = new Weigher() {
+        @Override
+        public int weigh(HttpUrl url, Object body) {
+            return 1;
+        }
+    };
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    private final long maxWeight;
+    private final Weigher weigher;
+    private final long defaultTtlNanos;
+    private final List<TtlRule> ttlRules;
+    private final DiskStore disk;
+
+    // Guarded by this.
+    private final LinkedHashMap<CallKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    ObjectCache(Builder builder) {
+        maxWeight = builder.maxWeight;
+        weigher = builder.weigher;
+        defaultTtlNanos = builder.defaultTtlNanos;
+        disk = builder.diskDirectory != null
+              ? new DiskStore(builder.diskDirectory, builder.diskMaxSize, builder.diskTypes) : null;
+        ttlRules = new ArrayList<>(builder.ttlRules);
+        // Longest prefix first, so that the most specific rule wins.
+        Collections.sort(ttlRules, new Comparator<TtlRule>() {
+            @Override
+            public int compare(TtlRule left, TtlRule right) {
+                return right.pathPrefix.length() - left.pathPrefix.length();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached response for {@code key}, or {@code null}. The response may have outlived its time to live,
+     * see {@link #isFresh(CallKey)}. The disk is only consulted if {@code memoryOnly} is {@code false}.
+     */
+    <RT, ET> Response<RT, ET> get(CallKey key, boolean memoryOnly) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                @SuppressWarnings("unchecked") // Keyed by the response type.
+                Response<RT, ET> response = (Response<RT, ET>) entry.response;
+                return response;
+            }
+            if (disk == null || memoryOnly) return null;
+        }
+
+        DiskStore.Record record = disk.read(key.stableKey());
+        if (record == null) return null;
+
+        @SuppressWarnings("unchecked") // Keyed by the response type.
+        RT body = (RT) record.body;
+        Response<RT, ET> response = Response.success(body, record.range, cachedRawResponse(key, record));
+        long ttlMillis = Math.max(record.expiresAt - System.currentTimeMillis(), 0L);
+        Entry entry = new Entry(response, weigher.weigh(key.url, body),
+              System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        synchronized (this) {
+            if (!entries.containsKey(key)) putInMemory(key, entry);
+        }
+        return response;
+    }
+
+    /** Returns {@code true} if the cached response for {@code key} is within its time to live. */
+    synchronized boolean isFresh(CallKey key) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.expiresAt - System.nanoTime() > 0L;
+    }
+
+    /** Returns {@code true} if memory misses may still be served from the disk. */
+    boolean hasDisk() {
+        return disk != null;
+    }
+
+    /** Counts a response that was served from the cache. */
+    synchronized void recordHit() {
+        hitCount++;
+    }
+
+    /**
+     * Stores the network {@code response} for {@code key}. If it is the {@code cached} response, the server confirmed
+     * that it is still current, which counts as a hit and only renews its time to live. Otherwise it counts as a miss.
+     */
+    void record(CallKey key, Response<?, ?> response, Response<?, ?> cached) {
+        synchronized (this) {
+            if (response == cached) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+        }
+        refresh(key, response, cached);
+    }
+
+    /**
+     * Stores the {@code response} of a background revalidation like {@link #record(CallKey, Response, Response)}, but
+     * counts neither a hit nor a miss. The lookup it revalidates was counted already.
+     */
+    void refresh(CallKey key, Response<?, ?> response, Response<?, ?> cached) {
+        if (response == cached) {
+            renew(key, cached);
+        } else {
+            put(key, response);
+        }
+    }
+
+    /** Renews the time to live of the {@code cached} response, in memory and on disk, without storing it again. */
+    private void renew(CallKey key, Response<?, ?> cached) {
+        long ttlNanos = ttlNanos(key.url);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            // Unless it was evicted or replaced in the meantime.
+            if (entry != null && entry.response == cached) {
+                entries.put(key, new Entry(cached, entry.weight, System.nanoTime() + ttlNanos));
+            }
+        }
+        if (disk != null) {
+            disk.renew(key.stableKey(), System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        }
+    }
+
+    /** Stores {@code response} if it is successful and has a body. */
+    void put(CallKey key, Response<?, ?> response) {
+        Object body = response.body();
+        if (!response.isSuccessful() || body == null) return;
+
+        int entryWeight = weigher.weigh(key.url, body);
+        if (entryWeight < 0) throw new IllegalStateException("Negative weight " + entryWeight + " for " + key.url);
+        long ttlNanos = ttlNanos(key.url);
+        synchronized (this) {
+            putInMemory(key, new Entry(response, entryWeight, System.nanoTime() + ttlNanos));
+        }
+        if (disk != null) {
+            long expiresAt = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+            Headers headers = response.headers();
+            disk.write(key.stableKey(), body, response.range(), headers.get(ETAG), headers.get(LAST_MODIFIED),
+                  expiresAt);
+        }
+    }
+
+    /** Removes all entries, including those on disk. */
+    public void evictAll() {
+        synchronized (this) {
+            entries.clear();
+            weight = 0L;
+        }
+        if (disk != null) disk.clear();
+    }
+
+    /** Blocks until all pending disk writes completed. */
+    void awaitDiskWrites() throws InterruptedException {
+        if (disk != null) disk.awaitWrites();
+    }
+
+    /** Returns the size of the disk cache in bytes, {@code 0} if there is none. */
+    public long diskSize() {
+        return disk != null ? disk.size() : 0L;
+    }
+
+    /** Returns the number of entries. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Returns the total weight of all entries. */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /** Returns a snapshot of the cache statistics. */
+    public synchronized Stats stats() {
+        return new Stats(hitCount, missCount, evictionCount);
+    }
+
+    private long ttlNanos(HttpUrl url) {
+        String path = url.encodedPath();
+        for (int i = 0, size = ttlRules.size(); i < size; i++) {
+            TtlRule rule = ttlRules.get(i);
+            if (path.startsWith(rule.pathPrefix)) return rule.ttlNanos;
+        }
+        return defaultTtlNanos;
+    }
+
+    private void putInMemory(CallKey key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) weight -= previous.weight;
+        weight += entry.weight;
+        trimToMaxWeight();
+    }
+
+    /** Stands in for the network response of a response read from disk, carrying its validators. */
+    private static okhttp3.Response cachedRawResponse(CallKey key, DiskStore.Record record) {
+        okhttp3.Response.Builder builder = new okhttp3.Response.Builder()
+              .request(new Request.Builder().url(key.url).build())
+              .protocol(Protocol.HTTP_1_1)
+              .code(200)
+              .message("OK")
+              .body(new RealCallSpec.NoContentResponseBody(null, -1L));
+        if (record.etag != null) builder.header(ETAG, record.etag);
+        if (record.lastModified != null) builder.header(LAST_MODIFIED, record.lastModified);
+        return builder.build();
+    }
+
+    private void trimToMaxWeight() {
+        Iterator<Map.Entry<CallKey, Entry>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    /** Hit, miss and eviction counts of an {@link ObjectCache}. */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        Stats(long hitCount, long missCount, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        /** Number of lookups that returned a cached response. */
+        public long hitCount() {
+            return hitCount;
+        }
+
+        /** Number of lookups that found no usable entry. */
+        public long missCount() {
+            return missCount;
+        }
+
+        /** Number of entries evicted to stay within the maximum weight. */
+        public long evictionCount() {
+            return evictionCount;
+        }
+
+        /** Ratio of lookups that returned a cached response, {@code 1.0} if there were no lookups. */
+        public double hitRate() {
+            long lookups = hitCount + missCount;
+            return lookups == 0L ? 1.0 : (double) hitCount / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount + '}';
+        }
+    }
+
+    /** Builds an {@link ObjectCache}. */
+    public static final class Builder {
+        private final List<TtlRule> ttlRules = new ArrayList<>();
+        private long maxWeight = 1000L;
+        private Weigher weigher = ENTRIES;
+        private long defaultTtlNanos = TimeUnit.MINUTES.toNanos(5L);
+        private final Set<String> diskTypes = new HashSet<>();
+        private File diskDirectory;
+        private long diskMaxSize;
+
+        /** Maximum total weight of all entries. Defaults to {@code 1000}. */
+        public Builder maxWeight(long maxWeight) {
+            if (maxWeight < 0L) throw new IllegalArgumentException("maxWeight < 0");
+            this.maxWeight = maxWeight;
+            return this;
+        }
+
+        /** Weighs the entries against {@link #maxWeight(long)}. Defaults to {@link #ENTRIES}. */
+        public Builder weigher(Weigher weigher) {
+            this.weigher = checkNotNull(weigher, "weigher == null");
+            return this;
+        }
+
+        /** Time to live of entries no {@linkplain #ttl(String, long, TimeUnit) endpoint rule} applies to. */
+        public Builder ttl(long duration, TimeUnit unit) {
+            if (duration < 0L) throw new IllegalArgumentException("duration < 0");
+            defaultTtlNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Time to live of entries whose url path starts with {@code pathPrefix}, e.g. {@code "/v1/users/"}. The rule
+         * with the longest matching prefix applies.
+         */
+        public Builder ttl(String pathPrefix, long duration, TimeUnit unit) {
+            checkNotNull(pathPrefix, "pathPrefix == null");
+            if (duration < 0L) throw new IllegalArgumentException("duration < 0");
+            ttlRules.add(new TtlRule(pathPrefix, unit.toNanos(duration)));
+            return this;
+        }
+
+        /**
+         * Persists the cached responses in {@code directory}, using at most about {@code maxSize} bytes. Only response
+         * bodies that are {@link java.io.Serializable} are persisted, which includes all models of this library.
+         * Reading a body back after a restart saves the network round trip, but costs about as much as decoding its
+         * json.
+         *
+         * <p>Only the models of this library, common JDK value types and collections are read back. Bodies built from
+         * other classes have to {@linkplain #diskCacheType(Class) allow them}, or are treated as missing.
+         */
+        public Builder diskCache(File directory, long maxSize) {
+            diskDirectory = checkNotNull(directory, "directory == null");
+            if (maxSize <= 0L) throw new IllegalArgumentException("maxSize <= 0");
+            diskMaxSize = maxSize;
+            return this;
+        }
+
+        /** Allows reading instances of {@code type} back from the {@linkplain #diskCache(File, long) disk cache}. */
+        public Builder diskCacheType(Class<?> type) {
+            diskTypes.add(checkNotNull(type, "type == null").getName());
+            return this;
+        }
+
+        public ObjectCache build() {
+            return new ObjectCache(this);
+        }
+    }
+
+    private static final class TtlRule {
+        final String pathPrefix;
+        final long ttlNanos;
+
+        TtlRule(String pathPrefix, long ttlNanos) {
+            this.pathPrefix = pathPrefix;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    private static final class Entry {
+        final Response<?, ?> response;
+        final int weight;
+        final long expiresAt;
+
+        Entry(Response<?, ?> response, int weight, long expiresAt) {
+            this.response = response;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Consumer;
+import okhttp3.Call;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Walks all pages of a paginated resource, i.e. a resource that accepts <strong>offset</strong> and
+ * <strong>limit</strong> query parameters and answers with a {@link ContentRange}. Pages are requested one after
+ * the other until the offset reaches the {@linkplain ContentRange#total() total}, or, if the total is unknown, until
+ * a page comes back short.
+ *
+ * <p>While a page is being consumed up to {@link #prefetch(int)} following pages are already in flight. Pages are
+ * always delivered in order. The first page is requested on its own, so that no request is wasted past the end of a
+ * short collection. With {@link #parallel(int)} all remaining pages are requested as soon as the total is known,
+ * bounded only by the parallelism level.
+ *
+ * <p>Every {@link #iterator()}, {@link #flowable() subscription} and {@link #enqueue(PageCallback)} walks the pages
+ * anew, the pager itself only holds the configuration.
+ *
+ * @param <RT> Page body type.
+ * @param <ET> Error response body type.
+ */
+public final class Pager<RT, ET> {
+    private final RealCallSpec<RT, ET> spec;
+    private final int pageSize;
+    private int prefetch = 1;
+    private boolean parallel;
+
+    Pager(RealCallSpec<RT, ET> spec, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize <= 0");
+        this.spec = spec;
+        this.pageSize = pageSize;
+    }
+
+    /** Sets how many pages may be requested ahead of the one being consumed. Defaults to {@code 1}. */
+    public Pager<RT, ET> prefetch(int pages) {
+        if (pages < 0) throw new IllegalArgumentException("pages < 0");
+        prefetch = pages;
+        parallel = false;
+        return this;
+    }
+
+    /**
+     * Once the first page told the {@linkplain ContentRange#total() total}, requests all remaining pages concurrently,
+     * keeping up to {@code parallelism} requests in flight no matter how fast the pages are consumed. Pages that
+     * arrive early are held back until all pages before them were delivered. Without a total this behaves like
+     * {@code prefetch(parallelism - 1)}.
+     *
+     * <p>The api's {@linkplain Dispatcher dispatcher} runs at most 5 requests per host by default and is shared by all
+     * calls of the api, so its limits are left alone. Instead each walk requests its pages through a dispatcher of its
+     * own, limited to {@code parallelism} and running on the api's threads.
+     */
+    public Pager<RT, ET> parallel(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism <= 0");
+        prefetch = parallelism - 1;
+        parallel = true;
+        return this;
+    }
+
+    /** Returns a blocking iterator over the pages. The first page is requested right away. */
+    public PageIterator<RT> iterator() {
+        return start(null);
+    }
+
+    /**
+     * Blocks until all pages arrived and returns them in order.
+     *
+     * @throws IOException If a problem occurred while talking to the server.
+     * @throws HttpException If the server answered with a non-2xx response.
+     */
+    public List<RT> all() throws IOException, HttpException {
+        Pages<RT, ET> pages = start(null);
+        List<RT> all = new ArrayList<>();
+        while (pages.hasNext()) {
+            all.add(pages.next());
+        }
+        return all;
+    }
+
+    /**
+     * Returns a cold {@linkplain Flowable} emitting the pages in order. Each page is fetched on demand, cancelling the
+     * subscription cancels all requests in flight. Failures are signaled as {@link IOException} or as {@link
+     * HttpException} for non-2xx responses.
+     */
+    public Flowable<RT> flowable() {
+        return RxPages.flowable(this);
+    }
+
+    /**
+     * Asynchronously walks the pages and notifies {@code callback} of each page in order, followed by either {@link
+     * PageCallback#onComplete()} or {@link PageCallback#onFailure(Throwable)}. The callback methods are executed using
+     * the {@link CallSpec} callback executor.
+     */
+    public void enqueue(PageCallback<RT> callback) {
+        start(callback);
+    }
+
+    private Pages<RT, ET> start(PageCallback<RT> callback) {
+        OkHttpClient client = spec.client();
+        if (parallel) {
+            Dispatcher dispatcher = new Dispatcher(client.dispatcher().executorService());
+            dispatcher.setMaxRequests(prefetch + 1);
+            dispatcher.setMaxRequestsPerHost(prefetch + 1);
+            client = client.newBuilder().dispatcher(dispatcher).build();
+        }
+        Pages<RT, ET> pages = new Pages<>(spec, client, pageSize, prefetch, parallel, callback);
+        pages.fill();
+        return pages;
+    }
+
+    /** Blocking iterator over the pages. Unlike {@link Iterator} failures are reported as checked exceptions. */
+    public interface PageIterator<T> {
+        /** Returns {@code true} if there are more pages. Doesn't block. */
+        boolean hasNext();
+
+        /**
+         * Blocks until the next page arrives and returns it's body.
+         *
+         * @throws IOException If a problem occurred while talking to the server.
+         * @throws HttpException If the server answered with a non-2xx response. No further pages will follow.
+         */
+        T next() throws IOException, HttpException;
+
+        /** Cancels all requests in flight. No further pages will follow. */
+        void cancel();
+    }
+
+    /** Receives the pages of an {@linkplain #enqueue(PageCallback) enqueued} pager. */
+    public interface PageCallback<T> {
+        /** Next page in order. Return {@code false} to stop, which cancels all requests in flight. */
+        boolean onPage(T page);
+
+        /** All pages were delivered. */
+        void onComplete();
+
+        /**
+         * Invoked when a network or unexpected exception occurred, or with an {@link HttpException} when the server
+         * answered with a non-2xx response. No further pages will follow.
+         */
+        void onFailure(Throwable t);
+    }
+
+    /**
+     * Adapts the pages to RxJava. RxJava is an optional dependency, it is only referenced from here so that it is not
+     * loaded along with the pager.
+     */
+    static final class RxPages {
+        private RxPages() {
+            // No instances.
+        }
+
+        static <RT, ET> Flowable<RT> flowable(final Pager<RT, ET> pager) {
+            return Flowable.generate(new Callable<Pages<RT, ET>>() {
+                @Override
+                public Pages<RT, ET> call() {
+                    return pager.start(null);
+                }
+            }, new BiConsumer<Pages<RT, ET>, Emitter<RT>>() {
+                @Override
+                public void accept(Pages<RT, ET> pages, Emitter<RT> emitter) throws Exception {
+                    RT page = pages.hasNext() ? pages.next() : null;
+                    if (page != null) {
+                        emitter.onNext(page);
+                    } else {
+                        emitter.onComplete();
+                    }
+                }
+            }, new Consumer<Pages<RT, ET>>() {
+                @Override
+                public void accept(Pages<RT, ET> pages) {
+                    pages.cancel();
+                }
+            });
+        }
+    }
+
+    /** One walk over the pages. */
+    static final class Pages<RT, ET> implements PageIterator<RT> {
+        private final RealCallSpec<RT, ET> spec;
+        private final OkHttpClient client;
+        private final int pageSize;
+        private final int prefetch;
+        private final boolean parallel;
+        private final PageCallback<RT> callback;
+
+        // Guarded by this.
+        private final ArrayDeque<Page> pages = new ArrayDeque<>();
+        private int nextOffset;
+        private int inFlight;
+        private int end = Integer.MAX_VALUE;
+        private boolean firstReceived;
+        private boolean canceled;
+        private boolean draining;
+        private volatile boolean stopped; // The callback asked to stop, nothing more is delivered.
+
+        Pages(RealCallSpec<RT, ET> spec, OkHttpClient client, int pageSize, int prefetch, boolean parallel,
+              PageCallback<RT> callback) {
+            this.spec = spec;
+            this.client = client;
+            this.pageSize = pageSize;
+            this.prefetch = prefetch;
+            this.parallel = parallel;
+            this.callback = callback;
+        }
+
+        @Override
+        public synchronized boolean hasNext() {
+            return !canceled && !pages.isEmpty();
+        }
+
+        @Override
+        public RT next() throws IOException, HttpException {
+            Page page;
+            synchronized (this) {
+                page = canceled ? null : pages.peek();
+            }
+            if (page == null) throw new NoSuchElementException();
+            try {
+                page.latch.await();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return take(page);
+        }
+
+        @Override
+        public void cancel() {
+            ArrayDeque<Page> inFlight;
+            synchronized (this) {
+                canceled = true;
+                inFlight = pages.clone();
+                pages.clear();
+            }
+            for (Page page : inFlight) {
+                page.call.cancel();
+            }
+        }
+
+        /** Requests pages until the window is full or the end is reached. */
+        void fill() {
+            while (true) {
+                Page page;
+                synchronized (this) {
+                    int window = firstReceived ? prefetch + 1 : 1;
+                    // In parallel mode only requests count against the window, not pages waiting to be consumed.
+                    int occupied = parallel && end != Integer.MAX_VALUE ? inFlight : pages.size();
+                    if (canceled || occupied >= window || nextOffset >= end) return;
+                    page = new Page(nextOffset, spec.createPageCall(client, nextOffset, pageSize));
+                    pages.add(page);
+                    inFlight++;
+                    nextOffset += pageSize;
+                }
+                page.call.enqueue(page);
+            }
+        }
+
+        /** Removes the completed head {@code page} and returns it's body, learning from it where the pages end. */
+        private RT take(Page page) throws IOException, HttpException {
+            synchronized (this) {
+                pages.remove(page);
+            }
+            if (page.failure != null) {
+                cancel();
+                if (page.failure instanceof IOException) throw (IOException) page.failure;
+                if (page.failure instanceof RuntimeException) throw (RuntimeException) page.failure;
+                if (page.failure instanceof Error) throw (Error) page.failure;
+                throw new IOException(page.failure);
+            }
+
+            Response<RT, ET> response = page.response;
+            if (!response.isSuccessful()) {
+                cancel();
+                throw new HttpException(response);
+            }
+
+            RT body = response.body();
+            int received = receivedItems(body, response.range());
+            ArrayDeque<Page> beyondEnd = new ArrayDeque<>(0);
+            synchronized (this) {
+                firstReceived = true;
+                ContentRange range = response.range();
+                if (range != null && range.total() >= 0) end = Math.min(end, range.total());
+                if (received < pageSize) end = Math.min(end, page.offset + received);
+
+                // Pages prefetched past the end are of no use.
+                while (!pages.isEmpty() && pages.peekLast().offset >= end) {
+                    beyondEnd.add(pages.removeLast());
+                }
+            }
+            for (Page dropped : beyondEnd) {
+                dropped.call.cancel();
+            }
+            fill();
+            return body;
+        }
+
+        /** Number of items a page contained, or {@code pageSize} if there is no way to tell. */
+        private int receivedItems(RT body, ContentRange range) {
+            if (body == null) return 0;
+            if (body instanceof Collection) return ((Collection<?>) body).size();
+            if (range != null && range.isEmpty()) return 0;
+            if (range != null && range.offset() >= 0 && range.last() >= range.offset()) {
+                return range.last() - range.offset() + 1;
+            }
+            return pageSize;
+        }
+
+        /**
+         * Hands completed pages to the callback in order. Only one thread drains at a time, a page completing while
+         * draining is picked up by the draining thread.
+         */
+        void drain() {
+            synchronized (this) {
+                if (draining) return;
+                draining = true;
+            }
+            while (true) {
+                Page page;
+                boolean complete;
+                synchronized (this) {
+                    page = pages.peek();
+                    complete = page == null;
+                    if (canceled || page != null && !page.done) {
+                        draining = false;
+                        return;
+                    }
+                    if (complete) {
+                        canceled = true;
+                        draining = false;
+                    }
+                }
+                if (complete) {
+                    dispatchComplete();
+                    return;
+                }
+
+                RT body;
+                try {
+                    body = take(page);
+                } catch (Throwable t) {
+                    dispatchFailure(t);
+                    return;
+                }
+                dispatchPage(body);
+            }
+        }
+
+        private void dispatchPage(RT body) {
+            dispatch(body, null, false);
+        }
+
+        private void dispatchComplete() {
+            dispatch(null, null, true);
+        }
+
+        private void dispatchFailure(Throwable failure) {
+            dispatch(null, failure, false);
+        }
+
+        /**
+         * Hands a page, the completion or a {@code failure} to the callback through the api's callback executor. Stops
+         * the walk if the callback declines further pages or throws.
+         */
+        private void dispatch(final RT body, final Throwable failure, final boolean complete) {
+            spec.api.callbackAdapter().adapt(new Callback<RT, ET>() {
+                @Override
+                public void onResponse(Response<RT, ET> response) {
+                    if (stopped) return;
+                    boolean more = true;
+                    try {
+                        if (failure != null) {
+                            callback.onFailure(failure);
+                        } else if (complete) {
+                            callback.onComplete();
+                        } else {
+                            more = callback.onPage(body);
+                        }
+                    } catch (Throwable t) {
+                        // TODO add some logging
+                        more = false;
+                    }
+                    if (!more) {
+                        stopped = true;
+                        cancel();
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                }
+            }).onResponse(null);
+        }
+
+        /** A single page request. */
+        final class Page implements okhttp3.Callback {
+            final int offset;
+            final Call call;
+            final CountDownLatch latch = new CountDownLatch(1);
+            boolean done; // Guarded by Pages.this.
+            Response<RT, ET> response;
+            Throwable failure;
+
+            Page(int offset, Call call) {
+                this.offset = offset;
+                this.call = call;
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                complete(null, e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response rawResponse) {
+                Response<RT, ET> response;
+                try {
+                    response = spec.parseResponse(rawResponse);
+                } catch (Throwable t) {
+                    complete(null, t);
+                    return;
+                }
+                complete(response, null);
+            }
+
+            private void complete(Response<RT, ET> response, Throwable failure) {
+                synchronized (Pages.this) {
+                    this.response = response;
+                    this.failure = failure;
+                    done = true;
+                    inFlight--;
+                }
+                latch.countDown();
+                if (parallel) fill();
+                if (callback != null) drain();
+            }
+        }
+    }
+}
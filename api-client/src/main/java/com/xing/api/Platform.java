@@ -20,7 +20,11 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** Provides platform specific adapters. */
 class Platform {
@@ -38,6 +42,11 @@ class Platform {
             }
         } catch (ClassNotFoundException ignored) {
         }
+        try {
+            // Java 21+ only, looked up reflectively since the library targets Java 7.
+            return new Jvm21(Executors.class.getMethod("newVirtualThreadPerTaskExecutor"));
+        } catch (NoSuchMethodException ignored) {
+        }
         return new Platform();
     }
 
@@ -47,6 +56,28 @@ class Platform {
         return new CallbackAdapter.Default();
     }
 
+    /** Returns an executor that runs each task on a new virtual thread, or {@code null} if there are none. */
+    public ExecutorService virtualThreadExecutor() {
+        return null;
+    }
+
+    static class Jvm21 extends Platform {
+        private final Method newVirtualThreadPerTaskExecutor;
+
+        Jvm21(Method newVirtualThreadPerTaskExecutor) {
+            this.newVirtualThreadPerTaskExecutor = newVirtualThreadPerTaskExecutor;
+        }
+
+        @Override
+        public ExecutorService virtualThreadExecutor() {
+            try {
+                return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
     static class Android extends Platform {
         @Override
         public CallbackAdapter callbackAdapter(Executor executor) {
@@ -16,18 +16,26 @@
  */
 package com.xing.api;
 
+import com.xing.api.data.profile.UserField;
+
 import java.io.EOFException;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 
 import javax.net.ssl.HostnameVerifier;
 
 import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
 import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Function;
 import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -43,12 +51,19 @@ import static com.xing.api.Utils.stateError;
 
 /** Implements {@linkplain CallSpec} providing the desired functionality. */
 final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
+    /** Upper bound for presizing response lists. Larger pages are very unusual for the XING API. */
+    static final int MAX_LIST_SIZE_HINT = 1000;
+    private static final int HTTP_NOT_MODIFIED = 304;
+
     final XingApi api;
     private final CallSpec.Builder<RT, ET> builder;
-    private final Type responseType;
+    private Type responseType;
     private final Type errorType;
 
     private volatile Call rawCall;
+    private SingleFlight.Flight<RT, ET> flight; // Guarded by this.
+    private boolean leftFlight; // Guarded by this.
+    private CallbackAdapter callbackAdapter; // Set before the call is sent.
     private boolean executed; // Guarded by this.
     private volatile boolean canceled;
     private int connectTimeout = -1;
@@ -59,12 +74,13 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
     RealCallSpec(CallSpec.Builder<RT, ET> builder) {
         this.builder = builder;
         api = builder.api;
-        responseType = builder.responseType;
+        responseType = builder.decodedResponseType();
         errorType = builder.errorType;
         readTimeout = builder.readTimeout;
         connectTimeout = builder.connectTimeout;
         writeTimeout = builder.writeTimeout;
         hostnameVerifier = builder.hostnameVerifier;
+        callbackAdapter = api.callbackAdapter();
     }
 
     @SuppressWarnings("CloneDoesntCallSuperClone") // This is a final type & this saves clearing state.
@@ -79,6 +95,11 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         return builder.request();
     }
 
+    @Override
+    public RequestTemplate<RT, ET> template() {
+        return builder.template();
+    }
+
     @Override
     public Response<RT, ET> execute() throws IOException {
         synchronized (this) {
@@ -86,28 +107,172 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
             executed = true;
         }
 
-        Call rawCall = createRawCall();
+        CallKey key = callKey();
+        ObjectCache cache = objectCache(key);
+        if (cache == null) return executeOnNetwork(key, null);
+
+        Response<RT, ET> cached = cache.get(key, false);
+        if (cached != null && serveFromCache(cache, key)) {
+            cache.recordHit();
+            if (!cache.isFresh(key)) revalidate(cache, key, cached);
+            return cached;
+        }
+
+        Response<RT, ET> response;
+        try {
+            response = executeOnNetwork(key, cached);
+        } catch (IOException e) {
+            if (cached == null || builder.cachePolicy != CachePolicy.NETWORK_FIRST) throw e;
+            cache.recordHit();
+            return cached;
+        }
+        cache.record(key, response, cached);
+        return response;
+    }
+
+    /**
+     * Executes the request. If {@code validated} is not {@code null} the request is conditional and {@code validated}
+     * is returned if the server answers with <strong>304 Not Modified</strong>.
+     */
+    private Response<RT, ET> executeOnNetwork(CallKey key, Response<RT, ET> validated) throws IOException {
+        SingleFlight.Flight<RT, ET> flight = joinFlight(key);
+        if (flight != null) {
+            if (flight.takeOff()) {
+                Call rawCall = createRawCall(validated);
+                flight.start(rawCall);
+                this.rawCall = rawCall;
+                try {
+                    flight.land(parseResponse(rawCall.execute(), validated), null);
+                } catch (Throwable t) {
+                    flight.land(null, t);
+                }
+            }
+            return flight.await();
+        }
+
+        Call rawCall = createRawCall(validated);
         if (canceled) rawCall.cancel();
         this.rawCall = rawCall;
 
-        return parseResponse(rawCall.execute());
+        return parseResponse(rawCall.execute(), validated);
+    }
+
+    @Override
+    public void enqueue(Callback<RT, ET> callback) {
+        enqueue(callback, api.callbackAdapter());
     }
 
     @Override
-    public void enqueue(final Callback<RT, ET> callback) {
+    public ResponseFuture<RT, ET> future() {
+        ResponseFuture<RT, ET> future = new ResponseFuture<>(this);
+        // Futures complete on the dispatcher thread, their callbacks are not adapted.
+        enqueue(future.completion(), new CallbackAdapter.Default());
+        return future;
+    }
+
+    private void enqueue(final Callback<RT, ET> callback, CallbackAdapter callbackAdapter) {
         synchronized (this) {
             if (executed) throw stateError("Call already executed");
             executed = true;
+            this.callbackAdapter = callbackAdapter;
+        }
+
+        final CallKey key = callKey();
+        final ObjectCache cache = objectCache(key);
+        if (cache == null) {
+            enqueueOnNetwork(key, callback, null);
+            return;
         }
 
-        Call rawCall = createRawCall();
+        Response<RT, ET> cached = cache.get(key, true);
+        if (cached == null && cache.hasDisk()) {
+            // Don't block the caller, which is likely the main thread, with disk reads.
+            api.client().dispatcher().executorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    enqueueWithCache(cache, key, callback, cache.<RT, ET>get(key, false));
+                }
+            });
+            return;
+        }
+        enqueueWithCache(cache, key, callback, cached);
+    }
+
+    private void enqueueWithCache(ObjectCache cache, CallKey key, Callback<RT, ET> callback, Response<RT, ET> cached) {
+        if (cached != null && serveFromCache(cache, key)) {
+            cache.recordHit();
+            try {
+                callbackAdapter.adapt(callback).onResponse(cached);
+            } catch (Throwable t) {
+                // TODO add some logging
+            }
+            if (!cache.isFresh(key)) revalidate(cache, key, cached);
+            return;
+        }
+        boolean fallback = builder.cachePolicy == CachePolicy.NETWORK_FIRST;
+        enqueueOnNetwork(key, new CachingCallback<>(callback, cache, key, cached, fallback), cached);
+    }
+
+    /** Returns {@code true} if the cached response for {@code key} can be returned without asking the network. */
+    private boolean serveFromCache(ObjectCache cache, CallKey key) {
+        return builder.cachePolicy == CachePolicy.STALE_WHILE_REVALIDATE
+              || builder.cachePolicy == CachePolicy.CACHE_FIRST && cache.isFresh(key);
+    }
+
+    /** Refreshes the stale {@code cached} response in the background. */
+    private void revalidate(final ObjectCache cache, final CallKey key, final Response<RT, ET> cached) {
+        enqueueOnNetwork(key, new Callback<RT, ET>() {
+            @Override
+            public void onResponse(Response<RT, ET> response) {
+                // Served already, so the outcome is neither a hit nor a miss.
+                cache.refresh(key, response, cached);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        }, cached);
+    }
+
+    /** Enqueues the request, conditional if {@code validated} is not {@code null}. */
+    private void enqueueOnNetwork(CallKey key, final Callback<RT, ET> callback, final Response<RT, ET> validated) {
+        final SingleFlight.Flight<RT, ET> flight = joinFlight(key);
+        if (flight != null) {
+            flight.subscribe(callback, callbackAdapter);
+            if (flight.takeOff()) {
+                Call rawCall = createRawCall(validated);
+                flight.start(rawCall);
+                this.rawCall = rawCall;
+                rawCall.enqueue(new okhttp3.Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        flight.land(null, e);
+                    }
+
+                    @Override
+                    public void onResponse(Call call, okhttp3.Response rawResponse) {
+                        Response<RT, ET> response;
+                        try {
+                            response = parseResponse(rawResponse, validated);
+                        } catch (Throwable e) {
+                            flight.land(null, e);
+                            return;
+                        }
+                        flight.land(response, null);
+                    }
+                });
+            }
+            return;
+        }
+
+        Call rawCall = createRawCall(validated);
         if (canceled) rawCall.cancel();
         this.rawCall = rawCall;
 
         rawCall.enqueue(new okhttp3.Callback() {
             private void callFailure(Throwable e) {
                 try {
-                    api.callbackAdapter().adapt(callback).onFailure(e);
+                    callbackAdapter.adapt(callback).onFailure(e);
                 } catch (Throwable t) {
                     // TODO add some logging
                 }
@@ -115,7 +280,7 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
 
             private void callSuccess(Response<RT, ET> response) {
                 try {
-                    api.callbackAdapter().adapt(callback).onResponse(response);
+                    callbackAdapter.adapt(callback).onResponse(response);
                 } catch (Throwable t) {
                     // TODO add some logging
                 }
@@ -130,7 +295,7 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
             public void onResponse(Call call, okhttp3.Response rawResponse) {
                 Response<RT, ET> response;
                 try {
-                    response = parseResponse(rawResponse);
+                    response = parseResponse(rawResponse, validated);
                 } catch (Throwable e) {
                     callFailure(e);
                     return;
@@ -142,19 +307,17 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
 
     @Override
     public Single<Response<RT, ET>> singleRawResponse() {
-        return Single.fromCallable(new ResponseCallable<>(this));
+        return RxAdapters.single(this);
     }
 
     @Override
     public Single<RT> singleResponse() {
-        ResponseCallable<RT, ET> responseCallable = new ResponseCallable<>(this);
-        return Single.fromCallable(new BodyCallable<>(responseCallable));
+        return RxAdapters.body(singleRawResponse());
     }
 
     @Override
     public Completable completableResponse() {
-        ResponseCallable<RT, ET> responseCallable = new ResponseCallable<>(this);
-        return Completable.fromCallable(new BodyCallable<>(responseCallable));
+        return RxAdapters.success(singleRawResponse());
     }
 
     @Override
@@ -169,7 +332,20 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
 
     @Override
     public void cancel() {
-        canceled = true;
+        SingleFlight.Flight<RT, ET> flight;
+        boolean leave;
+        synchronized (this) {
+            canceled = true;
+            flight = this.flight;
+            // Leave only once, cancelling again must not take the place of another participant.
+            leave = flight != null && !leftFlight;
+            if (leave) leftFlight = true;
+        }
+        if (flight != null) {
+            // The call may be shared, leave it to the flight to cancel.
+            if (leave) flight.leave();
+            return;
+        }
         Call rawCall = this.rawCall;
         if (rawCall != null) rawCall.cancel();
     }
@@ -234,6 +410,30 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         return this;
     }
 
+    @Override
+    public CallSpec<RT, ET> userFields(Set<UserField> userFields) {
+        builder.userFields(userFields);
+        responseType = builder.decodedResponseType();
+        return this;
+    }
+
+    @Override
+    public CallSpec<RT, ET> cachePolicy(CachePolicy cachePolicy) {
+        builder.cachePolicy(cachePolicy);
+        return this;
+    }
+
+    @Override
+    public CallSpec<RT, ET> asUser(OAuth1Credentials credentials) {
+        builder.asUser(credentials);
+        return this;
+    }
+
+    @Override
+    public Pager<RT, ET> pager(int pageSize) {
+        return new Pager<>(this, pageSize);
+    }
+
     @Override
     public CallSpec<RT, ET> connectTimeout(int connectTimeout) {
         this.connectTimeout = connectTimeout;
@@ -258,38 +458,82 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         return this;
     }
 
+    /**
+     * Returns the key identifying this call if it is a GET call and either shares in-flight calls or uses the object
+     * cache. Otherwise {@code null}.
+     */
+    private CallKey callKey() {
+        boolean cached = builder.cachePolicy != CachePolicy.NETWORK_ONLY && api.objectCache() != null;
+        if (api.singleFlight() == null && !cached) return null;
+        return CallKey.of(builder.request(), responseType, errorType, api.accessToken());
+    }
+
+    /** Returns the object cache if this call, identified by {@code key}, uses it. Otherwise {@code null}. */
+    private ObjectCache objectCache(CallKey key) {
+        return key != null && builder.cachePolicy != CachePolicy.NETWORK_ONLY ? api.objectCache() : null;
+    }
+
+    /**
+     * Joins the in-flight identical call, or starts a new flight, if {@linkplain XingApi.BuildStep#singleFlight(boolean)
+     * enabled}. Otherwise {@code null}.
+     */
+    private SingleFlight.Flight<RT, ET> joinFlight(CallKey key) {
+        SingleFlight singleFlight = api.singleFlight();
+        if (singleFlight == null || key == null) return null;
+        synchronized (this) {
+            // Checked under the lock, so that a concurrent cancel() either prevents joining or leaves the flight.
+            if (canceled) return null;
+            SingleFlight.Flight<RT, ET> flight = singleFlight.join(key);
+            this.flight = flight;
+            return flight;
+        }
+    }
+
+    /** Returns the client this call is made with, applying its timeout and verifier overrides. */
+    OkHttpClient client() {
+        return api.client(connectTimeout, readTimeout, writeTimeout, hostnameVerifier);
+    }
+
     /** Returns a raw {@link Call} pre-building the targeted request. */
-    private Call createRawCall() {
-        OkHttpClient client = api.client();
-        client = applyTimeouts(client);
-        client = applyHostnameVerifier(client);
-        return client.newCall(builder.request());
-    }
-
-    private OkHttpClient applyTimeouts(OkHttpClient client) {
-        if (connectTimeout >= 0 || readTimeout >= 0 || writeTimeout >= 0) {
-            OkHttpClient.Builder builder = client.newBuilder();
-            if (connectTimeout >= 0) {
-                builder.connectTimeout(connectTimeout, TimeUnit.SECONDS);
-            }
-            if (readTimeout >= 0) {
-                builder.readTimeout(readTimeout, TimeUnit.SECONDS);
-            }
-            if (writeTimeout >= 0) {
-                builder.writeTimeout(writeTimeout, TimeUnit.SECONDS);
-            }
-            return builder.build();
+    private Call createRawCall(Response<RT, ET> validated) {
+        OkHttpClient client = client();
+        Request request = builder.request();
+        if (validated != null) request = conditional(request, validated.headers());
+        return client.newCall(request);
+    }
+
+    /** Adds the validators of a previous response to {@code request}, if it had any. */
+    static Request conditional(Request request, Headers previous) {
+        String etag = previous.get("ETag");
+        String lastModified = previous.get("Last-Modified");
+        if (etag == null && lastModified == null) return request;
+
+        Request.Builder conditional = request.newBuilder();
+        if (etag != null) conditional.header("If-None-Match", etag);
+        if (lastModified != null) conditional.header("If-Modified-Since", lastModified);
+        return conditional.build();
+    }
+
+    /** Returns {@code validated} if the server confirmed it's still current, otherwise parses the response. */
+    Response<RT, ET> parseResponse(okhttp3.Response rawResponse, Response<RT, ET> validated) throws IOException {
+        if (validated != null && rawResponse.code() == HTTP_NOT_MODIFIED) {
+            closeQuietly(rawResponse.body());
+            return validated;
         }
-        return client;
+        return parseResponse(rawResponse);
     }
 
-    private OkHttpClient applyHostnameVerifier(OkHttpClient client) {
-        if (hostnameVerifier != null) {
-            OkHttpClient.Builder builder = client.newBuilder();
-            builder.hostnameVerifier(hostnameVerifier);
-            return builder.build();
+    /** Returns a raw {@link Call} made with {@code client} for the page at {@code offset}, leaving this call untouched. */
+    Call createPageCall(OkHttpClient client, int offset, int limit) {
+        Request request;
+        synchronized (builder) {
+            request = builder.request();
         }
-        return client;
+        HttpUrl url = request.url().newBuilder()
+              .setQueryParameter("offset", String.valueOf(offset))
+              .setQueryParameter("limit", String.valueOf(limit))
+              .build();
+        return client.newCall(request.newBuilder().url(url).build());
     }
 
     /** Parsers the OkHttp raw response and returns an response ready to be consumed by the caller. */
@@ -337,9 +581,10 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         }
 
         try {
-            RT body = api.converter().convertFromBody(responseType, catchingBody);
-            String contentRange = rawResponse.header(ContentRange.HEADER_NAME);
-            return Response.success(body, ContentRange.parse(contentRange), rawResponse);
+            ContentRange range = ContentRange.parse(rawResponse.header(ContentRange.HEADER_NAME));
+            int listSizeHint = listSizeHint(range, rawResponse.request().url());
+            RT body = api.converter().convertFromBody(responseType, catchingBody, listSizeHint);
+            return Response.success(body, range, rawResponse);
         } catch (RuntimeException e) {
             // If the underlying source threw an exception, propagate that, rather than indicating it was
             // a runtime exception.
@@ -351,6 +596,30 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         }
     }
 
+    /**
+     * Returns the number of elements a list response is expected to contain, based on the {@link ContentRange} or
+     * the {@code limit} query parameter of the request. Otherwise {@code -1}.
+     */
+    static int listSizeHint(ContentRange range, HttpUrl url) {
+        int hint = -1;
+        if (range != null && range.isEmpty()) {
+            hint = 0;
+        } else if (range != null && range.offset() >= 0 && range.last() >= range.offset()) {
+            hint = range.last() - range.offset() + 1;
+        } else {
+            String limit = url.queryParameter("limit");
+            if (limit != null) {
+                try {
+                    hint = Integer.parseInt(limit);
+                } catch (NumberFormatException ignored) {
+                    // Not a hint we can use.
+                }
+            }
+        }
+        // Don't trust the server or the caller with the allocation size, the list grows as usual past the cap.
+        return Math.min(hint, MAX_LIST_SIZE_HINT);
+    }
+
     static final class NoContentResponseBody extends ResponseBody {
         private final MediaType contentType;
         private final long contentLength;
@@ -420,17 +689,69 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         }
     }
 
-    /** Callable that returns the successful response body or throws an {@linkplain HttpException}. */
-    static final class BodyCallable<RT, ET> implements Callable<RT> {
-        private final Callable<Response<RT, ET>> callable;
+    /**
+     * Stores successful responses in the object cache. Optionally falls back to the previously {@code cached} response
+     * if the network fails.
+     */
+    static final class CachingCallback<RT, ET> implements Callback<RT, ET> {
+        private final Callback<RT, ET> delegate;
+        private final ObjectCache cache;
+        private final CallKey key;
+        private final Response<RT, ET> cached;
+        private final boolean fallback;
 
-        BodyCallable(Callable<Response<RT, ET>> callable) {
-            this.callable = callable;
+        CachingCallback(Callback<RT, ET> delegate, ObjectCache cache, CallKey key, Response<RT, ET> cached,
+              boolean fallback) {
+            this.delegate = delegate;
+            this.cache = cache;
+            this.key = key;
+            this.cached = cached;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void onResponse(Response<RT, ET> response) {
+            cache.record(key, response, cached);
+            delegate.onResponse(response);
         }
 
         @Override
-        public RT call() throws Exception {
-            Response<RT, ET> response = callable.call();
+        public void onFailure(Throwable t) {
+            if (fallback && cached != null && t instanceof IOException) {
+                cache.recordHit();
+                delegate.onResponse(cached);
+            } else {
+                delegate.onFailure(t);
+            }
+        }
+    }
+
+    /**
+     * Builds the Rx types. RxJava is an optional dependency, the functions handed to it are only referenced from here so
+     * that it is not loaded along with the call spec.
+     */
+    static final class RxAdapters {
+        private RxAdapters() {
+            // No instances.
+        }
+
+        static <RT, ET> Single<Response<RT, ET>> single(CallSpec<RT, ET> callSpec) {
+            return Single.create(new FutureOnSubscribe<>(callSpec));
+        }
+
+        static <RT, ET> Single<RT> body(Single<Response<RT, ET>> single) {
+            return single.map(new BodyFunction<RT, ET>());
+        }
+
+        static <RT, ET> Completable success(Single<Response<RT, ET>> single) {
+            return single.flatMapCompletable(new SuccessFunction<RT, ET>());
+        }
+    }
+
+    /** Yields the body of a successful response, fails with an {@link HttpException} otherwise. */
+    static final class BodyFunction<RT, ET> implements Function<Response<RT, ET>, RT> {
+        @Override
+        public RT apply(Response<RT, ET> response) throws HttpException {
             if (response.isSuccessful()) {
                 return response.body();
             }
@@ -438,18 +759,46 @@ final class RealCallSpec<RT, ET> implements CallSpec<RT, ET> {
         }
     }
 
-    /** Callable that executes the call spec and yields the response. */
-    static final class ResponseCallable<RT, ET> implements Callable<Response<RT, ET>> {
+    /** Completes for a successful response, fails with an {@link HttpException} otherwise. */
+    static final class SuccessFunction<RT, ET> implements Function<Response<RT, ET>, CompletableSource> {
+        @Override
+        public CompletableSource apply(Response<RT, ET> response) {
+            if (response.isSuccessful()) {
+                return Completable.complete();
+            }
+            return Completable.error(new HttpException(response));
+        }
+    }
+
+    /** Enqueues the call spec for each subscriber, disposing cancels the call. */
+    static final class FutureOnSubscribe<RT, ET> implements SingleOnSubscribe<Response<RT, ET>> {
         private final CallSpec<RT, ET> callSpec;
 
-        ResponseCallable(CallSpec<RT, ET> callSpec) {
+        FutureOnSubscribe(CallSpec<RT, ET> callSpec) {
             this.callSpec = callSpec;
         }
 
         @Override
-        public Response<RT, ET> call() throws IOException {
-            // Since CallSpec is a one-shot type, clone it for each new caller.
-            return callSpec.clone().execute();
+        public void subscribe(final SingleEmitter<Response<RT, ET>> emitter) {
+            // Since CallSpec is a one-shot type, clone it for each new subscriber.
+            final ResponseFuture<RT, ET> future = callSpec.clone().future();
+            emitter.setCancellable(new Cancellable() {
+                @Override
+                public void cancel() {
+                    future.cancel(true);
+                }
+            });
+            future.whenComplete(new Callback<RT, ET>() {
+                @Override
+                public void onResponse(Response<RT, ET> response) {
+                    emitter.onSuccess(response);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    emitter.tryOnError(t);
+                }
+            });
         }
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import okhttp3.Request;
+
+/**
+ * A compiled, immutable {@linkplain CallSpec call} for requests that are executed over and over with the same
+ * parameters, e.g. by polling jobs. The url, the body and the method, url and parameter part of the OAuth1 signature
+ * base string are computed once, each {@linkplain #newCall() call} only signs the nonce, the timestamp and the token.
+ *
+ * <pre>{@code
+ * RequestTemplate<List<ProfileVisit>, HttpError> visits = api.resource(ProfileVisitsResource.class)
+ *       .getUsersProfileVisits("me").template();
+ * // Then, every minute:
+ * Response<List<ProfileVisit>, HttpError> response = visits.newCall().execute();
+ * }</pre>
+ *
+ * <p>Altering a call created from a template, e.g. by adding a query parameter, drops the compiled request and the
+ * call is built and signed as usual. The call then copies the url and form it shares with the template, so neither
+ * the template nor other calls see the change. Templates are safe for use by multiple threads.
+ */
+public final class RequestTemplate<RT, ET> {
+    private final CallSpec.Builder<RT, ET> builder;
+
+    RequestTemplate(CallSpec.Builder<RT, ET> builder) {
+        this.builder = builder;
+    }
+
+    /** Returns a new, not yet executed call of the compiled request. */
+    public CallSpec<RT, ET> newCall() {
+        return new RealCallSpec<>(builder.newBuilder());
+    }
+
+    /** Returns the compiled {@linkplain Request}. */
+    public Request request() {
+        return builder.request();
+    }
+}
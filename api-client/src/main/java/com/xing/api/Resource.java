@@ -17,7 +17,13 @@ package com.xing.api;
 
 import java.lang.reflect.Type;
 
-/** Base class for all resources that provide access to various XING api endpoints. */
+/**
+ * Base class for all resources that provide access to various XING api endpoints.
+ *
+ * <p>Response types created with {@link #single(Type, String...)}, {@link #list(Type, String...)} and {@link
+ * #first(Type, String...)} remember the json adapter they resolve to. Resources should create them once per endpoint
+ * and keep them in constants, so that executing a call doesn't have to look the adapter up again.
+ */
 public abstract class Resource {
     protected static final String ME = "me";
 
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending {@linkplain Response response} of an {@linkplain CallSpec#future() enqueued call}. No thread is blocked
+ * while the call is in flight, unless one waits in {@link #get()}. Cancelling the future cancels the call.
+ *
+ * <p>Completion {@linkplain #whenComplete(Callback) callbacks} run on the thread that completes the future, usually
+ * one of OkHttp's dispatcher threads, and not through the {@linkplain
+ * XingApi.BuildStep#callbackExecutor(java.util.concurrent.Executor) callback executor}. They should be quick and must
+ * not block.
+ */
+public final class ResponseFuture<RT, ET> implements Future<Response<RT, ET>> {
+    private final CallSpec<RT, ET> spec;
+    private final List<Callback<RT, ET>> callbacks = new ArrayList<>(1); // Guarded by this.
+    private Response<RT, ET> response; // Guarded by this.
+    private Throwable failure; // Guarded by this.
+    private boolean done; // Guarded by this.
+    private boolean cancelled; // Guarded by this.
+
+    ResponseFuture(CallSpec<RT, ET> spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Calls {@code callback} once the future completes, or right away if it already did. A cancelled future fails with
+     * a {@link CancellationException}.
+     */
+    public ResponseFuture<RT, ET> whenComplete(Callback<RT, ET> callback) {
+        synchronized (this) {
+            if (!done) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        deliver(callback);
+        return this;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(null, new CancellationException("Call cancelled"), true)) return false;
+        spec.cancel();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized Response<RT, ET> get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return result();
+    }
+
+    @Override
+    public synchronized Response<RT, ET> get(long timeout, TimeUnit unit)
+          throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) throw new TimeoutException();
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return result();
+    }
+
+    /** The callback the call is enqueued with. */
+    Callback<RT, ET> completion() {
+        return new Callback<RT, ET>() {
+            @Override
+            public void onResponse(Response<RT, ET> response) {
+                complete(response, null, false);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                complete(null, t, false);
+            }
+        };
+    }
+
+    private Response<RT, ET> result() throws ExecutionException {
+        if (cancelled) throw (CancellationException) failure;
+        if (failure != null) throw new ExecutionException(failure);
+        return response;
+    }
+
+    private boolean complete(Response<RT, ET> response, Throwable failure, boolean cancelled) {
+        List<Callback<RT, ET>> callbacks;
+        synchronized (this) {
+            if (done) return false;
+            done = true;
+            this.response = response;
+            this.failure = failure;
+            this.cancelled = cancelled;
+            callbacks = new ArrayList<>(this.callbacks);
+            this.callbacks.clear();
+            notifyAll();
+        }
+        for (Callback<RT, ET> callback : callbacks) {
+            deliver(callback);
+        }
+        return true;
+    }
+
+    private void deliver(Callback<RT, ET> callback) {
+        Response<RT, ET> response;
+        Throwable failure;
+        synchronized (this) {
+            response = this.response;
+            failure = this.failure;
+        }
+        try {
+            if (failure != null) {
+                callback.onFailure(failure);
+            } else {
+                callback.onResponse(response);
+            }
+        } catch (Throwable t) {
+            // TODO add some logging
+        }
+    }
+}
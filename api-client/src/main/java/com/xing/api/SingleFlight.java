@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import okhttp3.Call;
+
+/**
+ * Lets concurrent identical GET calls share one HTTP call and one decoded response, see {@link CallKey}. A flight
+ * lands once its response arrives, calls made afterwards start a new one.
+ */
+final class SingleFlight {
+    private final Map<CallKey, Flight<?, ?>> flights = new HashMap<>();
+
+    /** Joins the flight for {@code key}, or starts a new one. */
+    synchronized <RT, ET> Flight<RT, ET> join(CallKey key) {
+        @SuppressWarnings("unchecked") // Keyed by the response type.
+        Flight<RT, ET> flight = (Flight<RT, ET>) flights.get(key);
+        if (flight == null) {
+            flight = new Flight<>(this, key);
+            flights.put(key, flight);
+        }
+        flight.join();
+        return flight;
+    }
+
+    synchronized void remove(Flight<?, ?> flight) {
+        if (flights.get(flight.key) == flight) flights.remove(flight.key);
+    }
+
+    /**
+     * One shared call. The first participant to {@link #takeOff()} executes it, all participants receive its response.
+     * The call is cancelled only once all participants left.
+     */
+    static final class Flight<RT, ET> {
+        final CallKey key;
+        private final SingleFlight singleFlight;
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        // Guarded by this.
+        private int participants;
+        private boolean started;
+        private boolean done;
+        private Call call;
+        private List<Callback<RT, ET>> callbacks = new ArrayList<>(2);
+        private Response<RT, ET> response;
+        private Throwable failure;
+
+        Flight(SingleFlight singleFlight, CallKey key) {
+            this.singleFlight = singleFlight;
+            this.key = key;
+        }
+
+        synchronized void join() {
+            participants++;
+        }
+
+        /** Returns {@code true} for the one participant that has to execute the call. */
+        synchronized boolean takeOff() {
+            if (started) return false;
+            started = true;
+            return true;
+        }
+
+        /** Sets the shared call, cancelling it right away if all participants already left. */
+        void start(Call call) {
+            boolean abandoned;
+            synchronized (this) {
+                this.call = call;
+                abandoned = participants == 0;
+            }
+            if (abandoned) call.cancel();
+        }
+
+        /**
+         * Leaves the flight. Once nobody else waits for it, the flight no longer takes new participants and its shared
+         * call is cancelled. Each participant leaves at most once.
+         */
+        void leave() {
+            Call abandoned;
+            // Locked like join(), so nobody joins a flight that is being abandoned.
+            synchronized (singleFlight) {
+                synchronized (this) {
+                    if (--participants > 0 || done) return;
+                    abandoned = call;
+                }
+                singleFlight.remove(this);
+            }
+            if (abandoned != null) abandoned.cancel();
+        }
+
+        /**
+         * Notifies {@code callback} once the response arrived, adapted by the {@code callbackAdapter} of the joining
+         * call. Participants may deliver on different executors.
+         */
+        void subscribe(Callback<RT, ET> callback, CallbackAdapter callbackAdapter) {
+            callback = callbackAdapter.adapt(callback);
+            synchronized (this) {
+                if (!done) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            deliver(callback);
+        }
+
+        /** Blocks until the response arrived and returns it. */
+        Response<RT, ET> await() throws IOException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (failure == null) return response;
+            if (failure instanceof IOException) throw (IOException) failure;
+            if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+            if (failure instanceof Error) throw (Error) failure;
+            throw new IOException(failure);
+        }
+
+        /** Hands the result of the shared call to all participants. */
+        void land(Response<RT, ET> response, Throwable failure) {
+            singleFlight.remove(this);
+            List<Callback<RT, ET>> callbacks;
+            synchronized (this) {
+                this.response = response;
+                this.failure = failure;
+                done = true;
+                callbacks = this.callbacks;
+                this.callbacks = null;
+            }
+            latch.countDown();
+            for (Callback<RT, ET> callback : callbacks) {
+                deliver(callback);
+            }
+        }
+
+        private void deliver(Callback<RT, ET> callback) {
+            try {
+                if (failure == null) {
+                    callback.onResponse(response);
+                } else {
+                    callback.onFailure(failure);
+                }
+            } catch (Throwable t) {
+                // TODO add some logging
+            }
+        }
+    }
+}
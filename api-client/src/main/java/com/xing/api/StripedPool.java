@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reusable instances of mutable state, at most one per stripe. The calling thread starts at a stripe picked by its
+ * id and borrows the first instance it finds, or creates a new one if all of them are in use. Releasing puts the
+ * instance back into the first empty stripe, or drops it.
+ *
+ * <p>Unlike a {@link ThreadLocal}, the number of retained instances is bounded by the number of stripes, however many
+ * threads there are. With virtual threads each call may run on a thread of its own, which would make a thread local
+ * create and keep an instance per call.
+ */
+abstract class StripedPool<T> {
+    private final AtomicReferenceArray<T> stripes;
+    private final int mask;
+
+    StripedPool() {
+        int count = 1;
+        while (count < 2 * Runtime.getRuntime().availableProcessors()) count <<= 1;
+        stripes = new AtomicReferenceArray<>(count);
+        mask = count - 1;
+    }
+
+    /** Creates a new instance, if the stripe of the calling thread is empty. */
+    abstract T create();
+
+    /** Borrows an instance, which should be {@linkplain #release(Object) released} once done with it. */
+    final T acquire() {
+        int stripe = stripe();
+        for (int i = 0; i <= mask; i++) {
+            int index = (stripe + i) & mask;
+            if (stripes.get(index) == null) continue;
+            T instance = stripes.getAndSet(index, null);
+            if (instance != null) return instance;
+        }
+        return create();
+    }
+
+    /** Returns a borrowed instance, which is dropped if all stripes already hold one. */
+    final void release(T instance) {
+        int stripe = stripe();
+        for (int i = 0; i <= mask; i++) {
+            if (stripes.compareAndSet((stripe + i) & mask, null, instance)) return;
+        }
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ id >>> 32) & mask;
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+/**
+ * Supplies the {@code oauth_timestamp} of OAuth1 signed requests, see {@link XingApi.OAuth1Step#timestampProvider}.
+ * Called concurrently for every request.
+ */
+public interface TimestampProvider {
+    /** Returns the current time in seconds since the epoch, as a decimal number. */
+    String timestamp();
+}
@@ -56,6 +56,11 @@ final class UrlEscapeUtils {
     private static final boolean[] SAFE_OCTETS =
           createSafeOctets(SAFE_CHARS + "abcdefghijklmnopqrstuvwxyz" + "ABCDEFGHIJKLMNOPQRSTUVWXYZ" + "0123456789");
 
+    /** Returns {@code true} if {@link #escape(String)} leaves {@code c} unmodified. */
+    static boolean isSafe(char c) {
+        return c < SAFE_OCTETS.length && SAFE_OCTETS[c];
+    }
+
     /**
      * Returns the escaped form of a given literal string.
      *
@@ -27,11 +27,19 @@ import com.xing.api.internal.json.PhoneJsonAdapter;
 import com.xing.api.internal.json.SafeCalendarJsonAdapter;
 import com.xing.api.internal.json.SafeEnumJsonAdapter;
 import com.xing.api.internal.json.TimeZoneJsonAdapter;
+import com.xing.api.internal.json.XingUserJsonAdapter;
 
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.net.ssl.HostnameVerifier;
+
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.ResponseBody;
@@ -49,21 +57,38 @@ import static com.xing.api.Utils.stateNull;
  * @since 2.0.0
  */
 public final class XingApi {
+    /** Upper bound of clients derived for per call overrides, see {@link #client(int, int, int, HostnameVerifier)}. */
+    private static final int MAX_DERIVED_CLIENTS = 32;
+
     private final List<AuthErrorCallback> authErrorCallbacks = new LinkedList<>();
+    private final Map<ClientOverrides, OkHttpClient> derivedClients =
+          new LinkedHashMap<ClientOverrides, OkHttpClient>(MAX_DERIVED_CLIENTS, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<ClientOverrides, OkHttpClient> eldest) {
+                  return size() > MAX_DERIVED_CLIENTS;
+              }
+          };
 
     private final OkHttpClient client;
     private final HttpUrl apiEndpoint;
     private final Converter converter;
     private final CallbackAdapter callbackAdapter;
     private final Executor callbackExecutor;
+    private final SingleFlight singleFlight;
+    private final ObjectCache objectCache;
+    /** The access token calls are signed with unless they carry their own credentials, or {@code null}. */
+    private final String accessToken;
 
     XingApi(OkHttpClient client, HttpUrl apiEndpoint, Converter converter, CallbackAdapter callbackAdapter,
-          Executor callbackExecutor) {
+          Executor callbackExecutor, SingleFlight singleFlight, ObjectCache objectCache, String accessToken) {
         this.client = client;
         this.apiEndpoint = apiEndpoint;
         this.converter = converter;
         this.callbackAdapter = callbackAdapter;
         this.callbackExecutor = callbackExecutor;
+        this.singleFlight = singleFlight;
+        this.objectCache = objectCache;
+        this.accessToken = accessToken;
     }
 
     /** Returns the api endpoint for <strong>this</strong> client instance. */
@@ -81,6 +106,11 @@ public final class XingApi {
         return callbackExecutor;
     }
 
+    /** Returns the {@linkplain ObjectCache object cache} of <strong>this</strong> instance, or {@code null}. */
+    public ObjectCache objectCache() {
+        return objectCache;
+    }
+
     /** Returns the {@linkplain OkHttpClient} associated with <strong>this</strong> instance. */
     public OkHttpClient client() {
         return client;
@@ -98,14 +128,45 @@ public final class XingApi {
         return this;
     }
 
+    /**
+     * Returns a client that applies the per call overrides on top of {@link #client()}. Values {@code < 0} and a
+     * {@code null} verifier mean "not overridden".
+     *
+     * <p>Derived clients are built once per distinct combination of overrides and cached afterwards. They share the
+     * connection pool, dispatcher and interceptors of {@link #client()}.
+     */
+    OkHttpClient client(int connectTimeout, int readTimeout, int writeTimeout, HostnameVerifier hostnameVerifier) {
+        if (connectTimeout < 0 && readTimeout < 0 && writeTimeout < 0 && hostnameVerifier == null) return client;
+
+        ClientOverrides overrides = new ClientOverrides(connectTimeout, readTimeout, writeTimeout, hostnameVerifier);
+        synchronized (derivedClients) {
+            OkHttpClient derived = derivedClients.get(overrides);
+            if (derived == null) {
+                derived = overrides.applyTo(client);
+                derivedClients.put(overrides, derived);
+            }
+            return derived;
+        }
+    }
+
     CallbackAdapter callbackAdapter() {
         return callbackAdapter;
     }
 
+    /** Returns the shared in-flight GET calls, or {@code null} if calls are not deduplicated. */
+    SingleFlight singleFlight() {
+        return singleFlight;
+    }
+
     Converter converter() {
         return converter;
     }
 
+    /** Returns the access token of the default user, which keeps cached calls apart per account. */
+    String accessToken() {
+        return accessToken;
+    }
+
     /** Notify all callbacks that the server returned an auth error. */
     void notifyAuthError(Response<?, ResponseBody> rawResponse) {
         for (int i = 0, size = authErrorCallbacks.size(); i < size; i++) {
@@ -114,6 +175,52 @@ public final class XingApi {
         }
     }
 
+    /** Key of a client derived from {@link #client()} with per call timeouts and hostname verifier. */
+    private static final class ClientOverrides {
+        final int connectTimeout;
+        final int readTimeout;
+        final int writeTimeout;
+        final HostnameVerifier hostnameVerifier;
+
+        ClientOverrides(int connectTimeout, int readTimeout, int writeTimeout, HostnameVerifier hostnameVerifier) {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.writeTimeout = writeTimeout;
+            this.hostnameVerifier = hostnameVerifier;
+        }
+
+        OkHttpClient applyTo(OkHttpClient client) {
+            OkHttpClient.Builder builder = client.newBuilder();
+            if (connectTimeout >= 0) builder.connectTimeout(connectTimeout, TimeUnit.SECONDS);
+            if (readTimeout >= 0) builder.readTimeout(readTimeout, TimeUnit.SECONDS);
+            if (writeTimeout >= 0) builder.writeTimeout(writeTimeout, TimeUnit.SECONDS);
+            if (hostnameVerifier != null) builder.hostnameVerifier(hostnameVerifier);
+            return builder.build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ClientOverrides that = (ClientOverrides) o;
+            return connectTimeout == that.connectTimeout
+                  && readTimeout == that.readTimeout
+                  && writeTimeout == that.writeTimeout
+                  && (hostnameVerifier != null ? hostnameVerifier.equals(that.hostnameVerifier)
+                  : that.hostnameVerifier == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = connectTimeout;
+            result = 31 * result + readTimeout;
+            result = 31 * result + writeTimeout;
+            result = 31 * result + (hostnameVerifier != null ? hostnameVerifier.hashCode() : 0);
+            return result;
+        }
+    }
+
     /**
      * Build a new {@link XingApi}.
      * <p>
@@ -130,6 +237,14 @@ public final class XingApi {
             return new LoggedOutStep();
         }
 
+        /**
+         * Returns a step building a {@link XingApi} that makes calls on behalf of many users, sharing one client,
+         * connection pool and converter among them. See {@link MultiUserStep}.
+         */
+        public MultiUserStep multiUser() {
+            return new MultiUserStep();
+        }
+
         @Experimental
         public CustomStep custom() {
             return new CustomStep();
@@ -147,6 +262,7 @@ public final class XingApi {
      */
     public static final class OAuth1Step extends BuildStep<OAuth1Step> {
         private final OAuth1SigningInterceptor.Builder oauth1Builder = new OAuth1SigningInterceptor.Builder();
+        private String accessToken;
 
         OAuth1Step() {
         }
@@ -166,6 +282,7 @@ public final class XingApi {
         /** Sets the access token. Value must not be {@code null}. */
         public OAuth1Step accessToken(String accessToken) {
             oauth1Builder.accessToken(accessToken);
+            this.accessToken = accessToken;
             return this;
         }
 
@@ -175,6 +292,74 @@ public final class XingApi {
             return this;
         }
 
+        /**
+         * Sets the source of request nonces. By default they are drawn from a small pool of pseudo random generators,
+         * seeded by the platform.
+         */
+        public OAuth1Step nonceProvider(NonceProvider nonceProvider) {
+            oauth1Builder.nonceProvider(nonceProvider);
+            return this;
+        }
+
+        /** Sets the source of request timestamps. By default the system time is used. */
+        public OAuth1Step timestampProvider(TimestampProvider timestampProvider) {
+            oauth1Builder.timestampProvider(timestampProvider);
+            return this;
+        }
+
+        @Override
+        OkHttpClient.Builder clientBuilder() {
+            OkHttpClient.Builder builder = super.clientBuilder();
+            builder.addInterceptor(oauth1Builder.build());
+            return builder;
+        }
+
+        @Override
+        String accessToken() {
+            return accessToken;
+        }
+    }
+
+    /**
+     * Builds a {@link XingApi} for one consumer and many users. Only the consumer key and secret are set here, each
+     * call selects the user it is made for with {@link CallSpec#asUser(OAuth1Credentials)}. Calls without credentials
+     * fail with an {@link java.io.IOException}.
+     *
+     * <p>Cached and deduplicated calls are kept apart per user. Helpers that make calls on their own take the
+     * credentials as well, see {@link com.xing.api.resources.UserLoader}, {@link
+     * com.xing.api.resources.IndustryReference} and {@link BatchLoader}.
+     */
+    public static final class MultiUserStep extends BuildStep<MultiUserStep> {
+        private final OAuth1SigningInterceptor.Builder oauth1Builder = new OAuth1SigningInterceptor.Builder()
+              .multiUser();
+
+        MultiUserStep() {
+        }
+
+        /** Sets the consumer key. Value must not be {@code null}. */
+        public MultiUserStep consumerKey(String consumerKey) {
+            oauth1Builder.consumerKey(consumerKey);
+            return this;
+        }
+
+        /** Sets the consumer secret. Value must not be {@code null}. */
+        public MultiUserStep consumerSecret(String consumerSecret) {
+            oauth1Builder.consumerSecret(consumerSecret);
+            return this;
+        }
+
+        /** Sets the source of request nonces, see {@link OAuth1Step#nonceProvider(NonceProvider)}. */
+        public MultiUserStep nonceProvider(NonceProvider nonceProvider) {
+            oauth1Builder.nonceProvider(nonceProvider);
+            return this;
+        }
+
+        /** Sets the source of request timestamps. By default the system time is used. */
+        public MultiUserStep timestampProvider(TimestampProvider timestampProvider) {
+            oauth1Builder.timestampProvider(timestampProvider);
+            return this;
+        }
+
         @Override
         OkHttpClient.Builder clientBuilder() {
             OkHttpClient.Builder builder = super.clientBuilder();
@@ -213,6 +398,10 @@ public final class XingApi {
         private Moshi.Builder moshiBuilder;
         private Executor callbackExecutor;
         private HttpUrl apiEndpoint;
+        private boolean lazyUsers;
+        private boolean singleFlight;
+        private ObjectCache objectCache;
+        private boolean virtualThreads;
 
         BuildStep() {
             apiEndpoint = HttpUrl.parse("https://api.xing.com/");
@@ -267,6 +456,61 @@ public final class XingApi {
             return self();
         }
 
+        /**
+         * Decode the nested blocks of {@linkplain com.xing.api.data.profile.XingUser users} (professional experience,
+         * education, photos, addresses and the like) only when their getters are called for the first time. Until
+         * then a block is kept as raw json, which saves time and memory for large user lists of which only a few
+         * fields are shown.
+         * <p>
+         * Errors in a block are thrown as {@link com.squareup.moshi.JsonDataException} by its getter, instead of
+         * failing the call.
+         */
+        public final T lazyUsers(boolean lazyUsers) {
+            this.lazyUsers = lazyUsers;
+            return self();
+        }
+
+        /**
+         * Let concurrent identical GET calls share one HTTP call. A call that is executed or enqueued while an
+         * identical one (same url, headers and response type) is still in flight waits for that call's response
+         * instead of sending its own request. All of them receive the same decoded response body, which therefore
+         * must not be modified.
+         * <p>
+         * Cancelling one of the calls only cancels the shared request once all calls sharing it were cancelled. Until
+         * then a cancelled call still receives the shared response.
+         */
+        public final T singleFlight(boolean singleFlight) {
+            this.singleFlight = singleFlight;
+            return self();
+        }
+
+        /**
+         * Sets an in-memory cache of decoded responses. Calls use it according to their {@linkplain
+         * CallSpec#cachePolicy(CachePolicy) cache policy}.
+         *
+         * <p>Entries are kept apart per access token, so instances for different accounts may share a cache and its
+         * disk directory. Clients signing calls on their own, e.g. via {@link #client(OkHttpClient)}, should use one
+         * cache per account instead.
+         */
+        public final T objectCache(ObjectCache objectCache) {
+            this.objectCache = checkNotNull(objectCache, "objectCache == null");
+            return self();
+        }
+
+        /**
+         * Run enqueued calls on virtual threads instead of the platform threads of OkHttp's dispatcher, if the JVM
+         * supports them (Java 21+). Has no effect otherwise. The dispatcher keeps its default limits of concurrent
+         * requests, which may be raised on the {@linkplain XingApi#client() client} of the built instance. See {@link
+         * CallScope} for running blocking calls on virtual threads.
+         * <p>
+         * Can't be combined with {@link #client(OkHttpClient)}, as it replaces the client's dispatcher. Give that
+         * client a {@link Dispatcher} running on virtual threads instead.
+         */
+        public final T virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return self();
+        }
+
         public final T client(OkHttpClient client) {
             clientBuilder = checkNotNull(client, "client == null").newBuilder();
             return self();
@@ -276,14 +520,23 @@ public final class XingApi {
             return clientBuilder != null ? clientBuilder : new OkHttpClient.Builder();
         }
 
+        /** Returns the access token calls are signed with by default, or {@code null}. */
+        String accessToken() {
+            return null;
+        }
+
         private T self() {
             //noinspection unchecked Protected by class definition.
             return (T) this;
         }
 
         public final XingApi build() {
+            if (virtualThreads && clientBuilder != null) {
+                throw new IllegalStateException("virtualThreads(true) would replace the dispatcher of the client");
+            }
             // Add the custom JSON Adapters to Moshi
             if (moshiBuilder == null) moshiBuilder = new Moshi.Builder();
+            if (lazyUsers) moshiBuilder.add(XingUserJsonAdapter.LAZY_FACTORY);
             moshiBuilder.add(FallbackOnNull.ADAPTER_FACTORY);
             moshiBuilder.add(FallbackEnum.ADAPTER_FACTORY);
             moshiBuilder.add(SafeEnumJsonAdapter.FACTORY);
@@ -299,7 +552,13 @@ public final class XingApi {
             CallbackAdapter adapter = Platform.get().callbackAdapter(callbackExecutor);
             Converter converter = new Converter(moshiBuilder.build());
 
-            return new XingApi(clientBuilder().build(), apiEndpoint, converter, adapter, callbackExecutor);
+            OkHttpClient.Builder builder = clientBuilder();
+            ExecutorService virtualThreadExecutor = virtualThreads ? Platform.get().virtualThreadExecutor() : null;
+            if (virtualThreadExecutor != null) builder.dispatcher(new Dispatcher(virtualThreadExecutor));
+            OkHttpClient client = builder.build();
+
+            return new XingApi(client, apiEndpoint, converter, adapter, callbackExecutor,
+                  singleFlight ? new SingleFlight() : null, objectCache, accessToken());
         }
     }
 }
@@ -17,8 +17,11 @@ package com.xing.api.data.edit;
 
 import com.squareup.moshi.Json;
 
+import java.io.File;
 import java.util.Arrays;
 
+import okio.Source;
+
 /**
  * Represents a profile picture upload model containing required information for the upload.
  * <p>
@@ -36,6 +39,9 @@ import java.util.Arrays;
  * }
  * }
  * </pre>
+ * <p>
+ * Uploads created from a {@link File} or a {@link Source} never hold the image in memory. The image is read and
+ * Base64 encoded in small chunks while the request is written.
  *
  * @author daniel.hartwich
  * @author serj.lotutovici
@@ -55,17 +61,68 @@ public final class PictureUpload {
         return new PictureUpload(fileName, MIME_TYPE_PNG, content);
     }
 
+    /** Creates a {@link PictureUpload} object with the mimetype set to JPEG, that streams the content of {@code file}. */
+    public static PictureUpload pictureUploadJPEG(String fileName, File file) {
+        return new PictureUpload(fileName, MIME_TYPE_JPEG, null, file, null);
+    }
+
+    /** Creates a {@link PictureUpload} object with the mimetype set to PNG, that streams the content of {@code file}. */
+    public static PictureUpload pictureUploadPNG(String fileName, File file) {
+        return new PictureUpload(fileName, MIME_TYPE_PNG, null, file, null);
+    }
+
+    /**
+     * Creates a {@link PictureUpload} object with the mimetype set to JPEG, that streams the content of {@code source}.
+     * The source is consumed and closed by the first request attempt, so the upload can't be retried.
+     */
+    public static PictureUpload pictureUploadJPEG(String fileName, Source source) {
+        return new PictureUpload(fileName, MIME_TYPE_JPEG, null, null, source);
+    }
+
+    /**
+     * Creates a {@link PictureUpload} object with the mimetype set to PNG, that streams the content of {@code source}.
+     * The source is consumed and closed by the first request attempt, so the upload can't be retried.
+     */
+    public static PictureUpload pictureUploadPNG(String fileName, Source source) {
+        return new PictureUpload(fileName, MIME_TYPE_PNG, null, null, source);
+    }
+
     @Json(name = "file_name")
     private final String fileName;
     @Json(name = "mime_type")
     private final String mimeType;
     @Json(name = "content")
     private final byte[] content;
+    // Streamed contents are written by PictureUploadBody and never picked up by moshi.
+    private final transient File file;
+    private final transient Source source;
 
     private PictureUpload(String fileName, String mimeType, byte[] content) {
+        this(fileName, mimeType, content, null, null);
+    }
+
+    private PictureUpload(String fileName, String mimeType, byte[] content, File file, Source source) {
         this.fileName = fileName;
         this.mimeType = mimeType;
         this.content = content;
+        this.file = file;
+        this.source = source;
+    }
+
+    String fileName() {
+        return fileName;
+    }
+
+    String mimeType() {
+        return mimeType;
+    }
+
+    File file() {
+        return file;
+    }
+
+    Source source() {
+        return source;
     }
 
     @Override
@@ -73,7 +130,7 @@ public final class PictureUpload {
         return "PictureUpload{"
               + "fileName='" + fileName + '\''
               + ", mimeType='" + mimeType + '\''
-              + ", content=" + Arrays.toString(content)
+              + ", content=" + (file != null ? file : source != null ? source : Arrays.toString(content))
               + '}';
     }
 }
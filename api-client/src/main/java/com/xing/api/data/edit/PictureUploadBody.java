@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.data.edit;
+
+import com.squareup.moshi.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Json {@link RequestBody} for a streamed {@link PictureUpload}. The envelope is written as is, while the picture is
+ * read and Base64 encoded in fixed size chunks straight into the sink, so that only one chunk is held in memory.
+ *
+ * <p>Created by {@link com.xing.api.resources.ProfileEditingResource#updateProfilePicture(PictureUpload)
+ * ProfileEditingResource}, there should be no need to use it directly.
+ */
+public final class PictureUploadBody extends RequestBody {
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=utf-8");
+    /** Raw bytes read per chunk. A multiple of 3, so that only the last chunk needs padding. */
+    static final int CHUNK_SIZE = 8190;
+    private static final byte[] BASE64 =
+          ByteString.encodeUtf8("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/").toByteArray();
+
+    /**
+     * Returns a body that streams the content of {@code upload} Base64 encoded and wrapped in {@code root}, or {@code
+     * null} if the content is held in memory and is written by the converter instead.
+     */
+    public static PictureUploadBody of(PictureUpload upload, String root) {
+        if (upload.file() == null && upload.source() == null) return null;
+        return new PictureUploadBody(root, upload.fileName(), upload.mimeType(), upload.file(), upload.source());
+    }
+
+    private final Buffer prefix;
+    private final File file;
+    private final Source source;
+
+    private PictureUploadBody(String root, String fileName, String mimeType, File file, Source source) {
+        this.file = file;
+        this.source = source;
+
+        prefix = new Buffer().writeUtf8("{");
+        writeString(prefix, root);
+        prefix.writeUtf8(":{\"file_name\":");
+        writeString(prefix, fileName);
+        prefix.writeUtf8(",\"mime_type\":");
+        writeString(prefix, mimeType);
+        prefix.writeUtf8(",\"content\":\"");
+    }
+
+    @Override
+    public MediaType contentType() {
+        return MEDIA_TYPE_JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        if (file == null) return -1L;
+        // Suffix is '"}}'.
+        return prefix.size() + encodedLength(file.length()) + 3L;
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return source != null;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Source content = file != null ? Okio.source(file) : source;
+
+        try (BufferedSource in = Okio.buffer(content)) {
+            sink.write(prefix.clone(), prefix.size());
+            byte[] chunk = new byte[CHUNK_SIZE];
+            byte[] encoded = new byte[CHUNK_SIZE / 3 * 4];
+            int count;
+            while ((count = readChunk(in, chunk)) > 0) {
+                sink.write(encoded, 0, encode(chunk, count, encoded));
+                sink.emitCompleteSegments();
+            }
+            sink.writeUtf8("\"}}");
+        }
+    }
+
+    /** Returns the length of {@code byteCount} bytes once Base64 encoded, with padding. */
+    static long encodedLength(long byteCount) {
+        return (byteCount + 2) / 3 * 4;
+    }
+
+    /** Fills {@code chunk} unless the source is exhausted first. Returns the number of bytes read. */
+    private static int readChunk(BufferedSource in, byte[] chunk) throws IOException {
+        int count = 0;
+        while (count < chunk.length) {
+            int read = in.read(chunk, count, chunk.length - count);
+            if (read == -1) break;
+            count += read;
+        }
+        return count;
+    }
+
+    /** Base64 encodes the first {@code count} bytes of {@code in} into {@code out}. Returns the encoded length. */
+    static int encode(byte[] in, int count, byte[] out) {
+        int i = 0;
+        int o = 0;
+        for (int end = count - count % 3; i < end; i += 3) {
+            int bits = (in[i] & 0xff) << 16 | (in[i + 1] & 0xff) << 8 | in[i + 2] & 0xff;
+            out[o++] = BASE64[bits >> 18 & 0x3f];
+            out[o++] = BASE64[bits >> 12 & 0x3f];
+            out[o++] = BASE64[bits >> 6 & 0x3f];
+            out[o++] = BASE64[bits & 0x3f];
+        }
+        int remaining = count - i;
+        if (remaining > 0) {
+            int bits = (in[i] & 0xff) << 16 | (remaining == 2 ? (in[i + 1] & 0xff) << 8 : 0);
+            out[o++] = BASE64[bits >> 18 & 0x3f];
+            out[o++] = BASE64[bits >> 12 & 0x3f];
+            out[o++] = remaining == 2 ? BASE64[bits >> 6 & 0x3f] : (byte) '=';
+            out[o++] = '=';
+        }
+        return o;
+    }
+
+    /** Writes {@code value} as an escaped json string. */
+    private static void writeString(Buffer buffer, String value) {
+        try {
+            JsonWriter writer = JsonWriter.of(buffer);
+            writer.value(value);
+            writer.flush();
+        } catch (IOException e) {
+            throw new AssertionError(e); // Buffer doesn't throw.
+        }
+    }
+}
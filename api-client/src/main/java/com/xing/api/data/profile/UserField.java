@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.data.profile;
+
+/**
+ * Attributes of a {@linkplain XingUser user} that can be requested via the <strong>user_fields</strong> parameter.
+ *
+ * @see com.xing.api.CallSpec#userFields(java.util.Set)
+ * @see <a href="https://dev.xing.com/docs/get/users/:id">User Profile Resource</a>
+ */
+public enum UserField {
+    ID("id"),
+    ACADEMIC_TITLE("academic_title"),
+    FIRST_NAME("first_name"),
+    LAST_NAME("last_name"),
+    DISPLAY_NAME("display_name"),
+    PAGE_NAME("page_name"),
+    PERMALINK("permalink"),
+    EMPLOYMENT_STATUS("employment_status"),
+    GENDER("gender"),
+    BIRTH_DATE("birth_date"),
+    ACTIVE_EMAIL("active_email"),
+    TIME_ZONE("time_zone"),
+    PREMIUM_SERVICES("premium_services"),
+    BADGES("badges"),
+    WANTS("wants"),
+    HAVES("haves"),
+    TOP_HAVES("top_haves"),
+    INTERESTS("interests"),
+    ORGANISATION_MEMBER("organisation_member"),
+    LANGUAGES("languages"),
+    PRIVATE_ADDRESS("private_address"),
+    BUSINESS_ADDRESS("business_address"),
+    WEB_PROFILES("web_profiles"),
+    INSTANT_MESSAGING_ACCOUNTS("instant_messaging_accounts"),
+    PROFESSIONAL_EXPERIENCE("professional_experience"),
+    EDUCATIONAL_BACKGROUND("educational_background"),
+    PHOTO_URLS("photo_urls"),
+    LEGAL_INFORMATION("legal_information");
+
+    /** Name of the field in the json response. */
+    private final String value;
+
+    UserField(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
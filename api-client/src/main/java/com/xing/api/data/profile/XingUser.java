@@ -19,7 +19,12 @@ import com.squareup.moshi.Json;
 import com.xing.api.data.SafeCalendar;
 import com.xing.api.internal.json.BirthDate;
 import com.xing.api.internal.json.CsvCollection;
+import com.xing.api.internal.json.LazyBlock;
+import com.xing.api.internal.json.LazyFields;
+import com.xing.api.internal.json.XingUserJsonAdapter;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -30,12 +35,27 @@ import java.util.Set;
 
 /**
  * A XING user.
+ * <p>
+ * If the api was built with {@link com.xing.api.XingApi.BuildStep#lazyUsers(boolean) lazy users}, nested blocks like
+ * the professional experience are decoded when they are accessed for the first time.
  *
  * @see <a href="https://dev.xing.com/docs/get/users/:id">User Profile Resource</a>
  */
 @SuppressWarnings({"unused", "CollectionWithoutInitialCapacity"}) // Public api
 public class XingUser implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Json names of the lazy blocks that XingUserJsonAdapter may leave undecoded.
+    private static final String PREMIUM_SERVICES = "premium_services";
+    private static final String BADGES = "badges";
+    private static final String LANGUAGES = "languages";
+    private static final String PRIVATE_ADDRESS = "private_address";
+    private static final String BUSINESS_ADDRESS = "business_address";
+    private static final String WEB_PROFILES = "web_profiles";
+    private static final String MESSAGING_ACCOUNTS = "instant_messaging_accounts";
+    private static final String PROFESSIONAL_EXPERIENCE = "professional_experience";
+    private static final String EDUCATIONAL_BACKGROUND = "educational_background";
+    private static final String PHOTO_URLS = "photo_urls";
+    private static final String LEGAL_INFORMATION = "legal_information";
 
     @Json(name = "id")
     private /* TODO: make final */ String id;
@@ -62,9 +82,11 @@ public class XingUser implements Serializable {
     private String activeEmail;
     @Json(name = "time_zone")
     private TimeZone timeZone;
-    @Json(name = "premium_services")
+    @LazyBlock
+    @Json(name = PREMIUM_SERVICES)
     private List<PremiumService> premiumServices;
-    @Json(name = "badges")
+    @LazyBlock
+    @Json(name = BADGES)
     private List<Badge> badges;
     @CsvCollection
     @Json(name = "wants")
@@ -81,24 +103,35 @@ public class XingUser implements Serializable {
     @CsvCollection
     @Json(name = "organisation_member")
     private List<String> organizations;
-    @Json(name = "languages")
+    @LazyBlock
+    @Json(name = LANGUAGES)
     private Map<Language, LanguageSkill> languages;
-    @Json(name = "private_address")
+    @LazyBlock
+    @Json(name = PRIVATE_ADDRESS)
     private Address privateAddress;
-    @Json(name = "business_address")
+    @LazyBlock
+    @Json(name = BUSINESS_ADDRESS)
     private Address businessAddress;
-    @Json(name = "web_profiles")
+    @LazyBlock
+    @Json(name = WEB_PROFILES)
     private Map<WebProfile, Set<String>> webProfiles;
-    @Json(name = "instant_messaging_accounts")
+    @LazyBlock
+    @Json(name = MESSAGING_ACCOUNTS)
     private Map<MessagingAccount, String> messagingAccounts;
-    @Json(name = "professional_experience")
+    @LazyBlock
+    @Json(name = PROFESSIONAL_EXPERIENCE)
     private ProfessionalExperience professionalExperience;
-    @Json(name = "educational_background")
+    @LazyBlock
+    @Json(name = EDUCATIONAL_BACKGROUND)
     private EducationalBackground educationBackground;
-    @Json(name = "photo_urls")
+    @LazyBlock
+    @Json(name = PHOTO_URLS)
     private PhotoUrls photoUrls;
-    @Json(name = "legal_information")
+    @LazyBlock
+    @Json(name = LEGAL_INFORMATION)
     private LegalInformationPreview legalInformationPreview;
+    /** Blocks that were not decoded yet, if this user was read by {@link XingUserJsonAdapter}. */
+    private transient LazyFields lazyFields;
 
     /**
      * Create an instance of {@linkplain XingUser}.
@@ -118,10 +151,12 @@ public class XingUser implements Serializable {
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
     public boolean equals(Object o) {
+        decodeAll();
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
         XingUser xingUser = (XingUser) o;
+        xingUser.decodeAll();
 
         if (id != null ? !id.equals(xingUser.id) : xingUser.id != null) return false;
         if (academicTitle != null ? !academicTitle.equals(xingUser.academicTitle) : xingUser.academicTitle != null) {
@@ -187,6 +222,7 @@ public class XingUser implements Serializable {
 
     @Override
     public int hashCode() {
+        decodeAll();
         int result = id != null ? id.hashCode() : 0;
         result = 31 * result + (academicTitle != null ? academicTitle.hashCode() : 0);
         result = 31 * result + (firstName != null ? firstName.hashCode() : 0);
@@ -220,6 +256,7 @@ public class XingUser implements Serializable {
 
     @Override
     public String toString() {
+        decodeAll();
         return "XingUser{"
               + "id='" + id + '\''
               + ", academicTitle='" + academicTitle + '\''
@@ -252,6 +289,27 @@ public class XingUser implements Serializable {
               + '}';
     }
 
+    private void decode(String name) {
+        LazyFields lazy = lazyFields;
+        if (lazy != null) lazy.decode(this, name);
+    }
+
+    private void discard(String name) {
+        LazyFields lazy = lazyFields;
+        if (lazy != null) lazy.discard(name);
+    }
+
+    private void decodeAll() {
+        LazyFields lazy = lazyFields;
+        if (lazy != null) lazy.decodeAll(this);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // Lazy blocks don't survive serialization.
+        decodeAll();
+        out.defaultWriteObject();
+    }
+
     public String id() {
         return id;
     }
@@ -354,36 +412,43 @@ public class XingUser implements Serializable {
     }
 
     public List<PremiumService> premiumServices() {
+        decode(PREMIUM_SERVICES);
         return premiumServices;
     }
 
     public XingUser premiumServices(List<PremiumService> premiumServices) {
+        discard(PREMIUM_SERVICES);
         this.premiumServices = premiumServices;
         return this;
     }
 
     public XingUser addPremiumService(PremiumService premiumService) {
+        decode(PREMIUM_SERVICES);
         if (premiumServices == null) premiumServices = new ArrayList<>(1);
         premiumServices.add(premiumService);
         return this;
     }
 
     public List<Badge> badges() {
+        decode(BADGES);
         return badges;
     }
 
     public XingUser badges(List<Badge> badges) {
+        discard(BADGES);
         this.badges = badges;
         return this;
     }
 
     public XingUser addToBadges(Badge badge) {
+        decode(BADGES);
         if (badges == null) badges = new ArrayList<>(1);
         badges.add(badge);
         return this;
     }
 
     public XingUser addAllToBadges(List<Badge> badges) {
+        decode(BADGES);
         if (this.badges == null) {
             this.badges = badges;
         } else {
@@ -513,58 +578,70 @@ public class XingUser implements Serializable {
     }
 
     public Map<Language, LanguageSkill> languages() {
+        decode(LANGUAGES);
         return languages;
     }
 
     public XingUser languages(Map<Language, LanguageSkill> languages) {
+        discard(LANGUAGES);
         this.languages = languages;
         return this;
     }
 
     public LanguageSkill languageSkill(Language language) {
+        decode(LANGUAGES);
         return languages.get(language);
     }
 
     public XingUser addLanguage(Language language, LanguageSkill languageSkill) {
+        decode(LANGUAGES);
         if (languages == null) languages = new LinkedHashMap<>();
         languages.put(language, languageSkill);
         return this;
     }
 
     public Address privateAddress() {
+        decode(PRIVATE_ADDRESS);
         return privateAddress;
     }
 
     public XingUser privateAddress(Address privateAddress) {
+        discard(PRIVATE_ADDRESS);
         this.privateAddress = privateAddress;
         return this;
     }
 
     public Address businessAddress() {
+        decode(BUSINESS_ADDRESS);
         return businessAddress;
     }
 
     public XingUser businessAddress(Address businessAddress) {
+        discard(BUSINESS_ADDRESS);
         this.businessAddress = businessAddress;
         return this;
     }
 
     public Map<WebProfile, Set<String>> webProfiles() {
+        decode(WEB_PROFILES);
         return webProfiles;
     }
 
     public XingUser webProfiles(Map<WebProfile, Set<String>> webProfiles) {
+        discard(WEB_PROFILES);
         this.webProfiles = webProfiles;
         return this;
     }
 
     public XingUser webProfiles(WebProfile webProfile, Set<String> profiles) {
+        decode(WEB_PROFILES);
         if (webProfiles == null) webProfiles = new LinkedHashMap<>();
         webProfiles.put(webProfile, profiles);
         return this;
     }
 
     public XingUser addToWebProfile(WebProfile webProfile, String accountName) {
+        decode(WEB_PROFILES);
         if (webProfiles == null) webProfiles = new LinkedHashMap<>();
         if (!webProfiles.containsKey(webProfile)) webProfiles.put(webProfile, new LinkedHashSet<String>());
         webProfiles.get(webProfile).add(accountName);
@@ -572,6 +649,7 @@ public class XingUser implements Serializable {
     }
 
     public XingUser addAllToWebProfile(WebProfile webProfile, Set<String> profiles) {
+        decode(WEB_PROFILES);
         if (webProfiles == null) webProfiles = new LinkedHashMap<>();
         if (!webProfiles.containsKey(webProfile)) webProfiles.put(webProfile, new LinkedHashSet<String>());
         if (profiles != null) webProfiles.get(webProfile).addAll(profiles);
@@ -579,19 +657,23 @@ public class XingUser implements Serializable {
     }
 
     public EducationalBackground educationBackground() {
+        decode(EDUCATIONAL_BACKGROUND);
         return educationBackground;
     }
 
     public XingUser educationBackground(EducationalBackground educationBackground) {
+        discard(EDUCATIONAL_BACKGROUND);
         this.educationBackground = educationBackground;
         return this;
     }
 
     public PhotoUrls photoUrls() {
+        decode(PHOTO_URLS);
         return photoUrls;
     }
 
     public XingUser photoUrls(PhotoUrls photoUrls) {
+        discard(PHOTO_URLS);
         this.photoUrls = photoUrls;
         return this;
     }
@@ -606,34 +688,41 @@ public class XingUser implements Serializable {
     }
 
     public Map<MessagingAccount, String> messagingAccounts() {
+        decode(MESSAGING_ACCOUNTS);
         return messagingAccounts;
     }
 
     public XingUser messagingAccounts(Map<MessagingAccount, String> messagingAccounts) {
+        discard(MESSAGING_ACCOUNTS);
         this.messagingAccounts = messagingAccounts;
         return this;
     }
 
     public XingUser addMessagingAccount(MessagingAccount account, String accountValue) {
+        decode(MESSAGING_ACCOUNTS);
         if (messagingAccounts == null) messagingAccounts = new LinkedHashMap<>();
         messagingAccounts.put(account, accountValue);
         return this;
     }
 
     public ProfessionalExperience professionalExperience() {
+        decode(PROFESSIONAL_EXPERIENCE);
         return professionalExperience;
     }
 
     public XingUser professionalExperience(ProfessionalExperience professionalExperience) {
+        discard(PROFESSIONAL_EXPERIENCE);
         this.professionalExperience = professionalExperience;
         return this;
     }
 
     public LegalInformationPreview legalInformationPreview() {
+        decode(LEGAL_INFORMATION);
         return legalInformationPreview;
     }
 
     public XingUser legalInformationPreview(LegalInformationPreview legalInformationPreview) {
+        discard(LEGAL_INFORMATION);
         this.legalInformationPreview = legalInformationPreview;
         return this;
     }
@@ -643,6 +732,8 @@ public class XingUser implements Serializable {
      * user is a student.
      */
     public String primaryInstitutionName() {
+        decode(PROFESSIONAL_EXPERIENCE);
+        decode(EDUCATIONAL_BACKGROUND);
         String primaryInstitution = null;
 
         // Check if we have a primary company
@@ -667,6 +758,8 @@ public class XingUser implements Serializable {
      * student.
      */
     public String primaryOccupationName() {
+        decode(PROFESSIONAL_EXPERIENCE);
+        decode(EDUCATIONAL_BACKGROUND);
         String primaryOccupation = null;
 
         // Check if we have a primary company
@@ -691,6 +784,7 @@ public class XingUser implements Serializable {
      * is that each premium user has at least one {@linkplain PremiumService premium service} enabled.
      */
     public boolean isPremium() {
+        decode(PREMIUM_SERVICES);
         return premiumServices != null && !premiumServices.isEmpty();
     }
 
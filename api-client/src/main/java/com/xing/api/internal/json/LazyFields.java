@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.internal.json;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Json blocks of an object that are kept as raw bytes and decoded into their fields on first access. Models that
+ * support lazy decoding hold an instance of this class and call {@link #decode(Object, String)} before reading a lazy
+ * field.
+ *
+ * @see XingUserJsonAdapter
+ */
+public final class LazyFields {
+    /** A field of the target object together with the adapter that decodes it. */
+    static final class LazyField {
+        final Field field;
+        final JsonAdapter<Object> adapter;
+
+        LazyField(Field field, JsonAdapter<Object> adapter) {
+            this.field = field;
+            this.adapter = adapter;
+        }
+    }
+
+    private final Map<String, LazyField> fields;
+    private final Map<String, ByteString> blocks; // Guarded by this.
+
+    LazyFields(Map<String, LazyField> fields, Map<String, ByteString> blocks) {
+        this.fields = fields;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Decodes the block with the json {@code name} into its field of {@code target}, if it wasn't decoded yet.
+     *
+     * @throws JsonDataException If the block does not match the field's type.
+     */
+    public synchronized void decode(Object target, String name) {
+        ByteString block = blocks.remove(name);
+        if (block == null) return;
+
+        LazyField lazyField = fields.get(name);
+        try {
+            lazyField.field.set(target, lazyField.adapter.fromJson(new Buffer().write(block)));
+        } catch (IOException | JsonDataException e) {
+            // The reader's path starts at the block, so name the block.
+            throw new JsonDataException("Failed to decode " + name, e);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** Drops the block with the json {@code name}, because its field was set explicitly. */
+    public synchronized void discard(String name) {
+        blocks.remove(name);
+    }
+
+    /** Decodes all remaining blocks into their fields of {@code target}. */
+    public synchronized void decodeAll(Object target) {
+        while (!blocks.isEmpty()) {
+            decode(target, blocks.keySet().iterator().next());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.internal.json;
+
+import com.squareup.moshi.Json;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonQualifier;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import com.xing.api.data.profile.XingUser;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Adapter for {@linkplain XingUser} objects that can do two things the reflective adapter can't:
+ * <ul>
+ * <li>{@link #LAZY_FACTORY} decodes the flat fields right away, but keeps the nested blocks (experience, education,
+ * photos, addresses and the like) as raw json. A block is decoded when its getter is called for the first time, so
+ * that list screens showing only a name and a photo don't pay for the full profile. Enabled via
+ * {@link com.xing.api.XingApi.BuildStep#lazyUsers(boolean)}.</li>
+ * <li>{@link #projection(Moshi, Set)} decodes only the selected fields and skips all others, see
+ * {@link com.xing.api.CallSpec#userFields(Set)}.</li>
+ * </ul>
+ */
+public final class XingUserJsonAdapter extends JsonAdapter<XingUser> {
+    public static final JsonAdapter.Factory LAZY_FACTORY = new JsonAdapter.Factory() {
+        @Override
+        public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+            if (!annotations.isEmpty() || type != XingUser.class) return null;
+            JsonAdapter<XingUser> delegate = moshi.nextAdapter(this, type, annotations);
+            return new XingUserJsonAdapter(moshi, delegate, null, true).nullSafe();
+        }
+    };
+
+    /** Returns an adapter that decodes only the fields with the json {@code names} and skips all others. */
+    public static JsonAdapter<XingUser> projection(Moshi moshi, Set<String> names) {
+        return new XingUserJsonAdapter(moshi, moshi.adapter(XingUser.class), names, false).nullSafe();
+    }
+
+    private final JsonAdapter<XingUser> delegate;
+    private final Field lazyFieldsField;
+    private final Field[] eagerFields;
+    private final List<JsonAdapter<Object>> eagerAdapters;
+    private final String[] lazyNames;
+    private final Map<String, LazyFields.LazyField> lazyFields;
+    /** Names of the eager fields, followed by {@link #lazyNames}. */
+    private final JsonReader.Options options;
+
+    /**
+     * Creates an adapter that decodes the fields with the json {@code selected} names, or all fields if {@code null}.
+     * If {@code lazy} is {@code true} the fields marked as {@link LazyBlock} are kept as raw json.
+     */
+    private XingUserJsonAdapter(Moshi moshi, JsonAdapter<XingUser> delegate, Set<String> selected, boolean lazy) {
+        this.delegate = delegate;
+
+        List<String> names = new ArrayList<>();
+        List<String> lazyNames = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        List<JsonAdapter<Object>> adapters = new ArrayList<>();
+        lazyFields = new HashMap<>();
+        Field lazyFieldsField = null;
+        for (Field field : XingUser.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (field.getType() == LazyFields.class) lazyFieldsField = field;
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) continue;
+
+            Json json = field.getAnnotation(Json.class);
+            String name = json != null ? json.name() : field.getName();
+            if (selected != null && !selected.contains(name)) continue;
+
+            field.setAccessible(true);
+            JsonAdapter<Object> adapter = moshi.adapter(field.getGenericType(), qualifiers(field));
+            if (lazy && field.isAnnotationPresent(LazyBlock.class)) {
+                lazyNames.add(name);
+                lazyFields.put(name, new LazyFields.LazyField(field, adapter));
+            } else {
+                names.add(name);
+                fields.add(field);
+                adapters.add(adapter);
+            }
+        }
+        if (lazyFieldsField == null) throw new AssertionError("XingUser does not support lazy decoding.");
+        lazyFieldsField.setAccessible(true);
+        this.lazyFieldsField = lazyFieldsField;
+
+        eagerFields = fields.toArray(new Field[fields.size()]);
+        eagerAdapters = adapters;
+        this.lazyNames = lazyNames.toArray(new String[lazyNames.size()]);
+        names.addAll(lazyNames);
+        options = JsonReader.Options.of(names.toArray(new String[names.size()]));
+    }
+
+    @Override
+    public XingUser fromJson(JsonReader reader) throws IOException {
+        XingUser user = new XingUser((String) null);
+        Map<String, ByteString> blocks = null;
+
+        reader.beginObject();
+        try {
+            while (reader.hasNext()) {
+                int index = reader.selectName(options);
+                if (index == -1) {
+                    reader.skipName();
+                    reader.skipValue();
+                } else if (index < eagerFields.length) {
+                    eagerFields[index].set(user, eagerAdapters.get(index).fromJson(reader));
+                } else if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.skipValue();
+                } else {
+                    if (blocks == null) blocks = new HashMap<>();
+                    blocks.put(lazyNames[index - eagerFields.length], readBlock(reader));
+                }
+            }
+            reader.endObject();
+
+            if (blocks != null) lazyFieldsField.set(user, new LazyFields(lazyFields, blocks));
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+        return user;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, XingUser value) throws IOException {
+        try {
+            LazyFields lazy = (LazyFields) lazyFieldsField.get(value);
+            if (lazy != null) lazy.decodeAll(value);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+        delegate.toJson(writer, value);
+    }
+
+    @Override
+    public String toString() {
+        return "JsonAdapter(XingUser)" + (lazyNames.length > 0 ? ".lazy()" : ".projection()");
+    }
+
+    /** Returns the next value of {@code reader} as raw json. */
+    static ByteString readBlock(JsonReader reader) throws IOException {
+        Buffer block = new Buffer();
+        JsonWriter writer = JsonWriter.of(block);
+        writer.setSerializeNulls(true);
+        copyValue(reader, writer);
+        writer.flush();
+        return block.readByteString();
+    }
+
+    /** Copies the next value of {@code reader} to {@code writer}, without decoding it into objects. */
+    static void copyValue(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copyValue(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                // Keeps the number exactly as it was sent.
+                writer.value(new BigDecimal(reader.nextString()));
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new IllegalStateException("Unexpected token " + reader.peek() + " at " + reader.getPath());
+        }
+    }
+
+    /** Returns the {@link JsonQualifier} annotations of {@code field}. */
+    private static Set<Annotation> qualifiers(Field field) {
+        Set<Annotation> qualifiers = null;
+        for (Annotation annotation : field.getAnnotations()) {
+            if (annotation.annotationType().isAnnotationPresent(JsonQualifier.class)) {
+                if (qualifiers == null) qualifiers = new LinkedHashSet<>();
+                qualifiers.add(annotation);
+            }
+        }
+        return qualifiers != null ? qualifiers : Collections.<Annotation>emptySet();
+    }
+}
@@ -21,6 +21,7 @@ import com.xing.api.Resource;
 import com.xing.api.XingApi;
 import com.xing.api.data.profile.Bookmark;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -30,6 +31,8 @@ import java.util.List;
  * Provides methods which allow access to a {@linkplain com.xing.api.data.profile.XingUser user's} bookmarks.
  */
 public class BookmarksResource extends Resource {
+    private static final Type BOOKMARKS = list(Bookmark.class, "bookmarks", "items");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public BookmarksResource(XingApi api) {
         super(api);
@@ -65,7 +68,7 @@ public class BookmarksResource extends Resource {
      */
     public CallSpec<List<Bookmark>, HttpError> getListOfOwnBookmarks() {
         return Resource.<List<Bookmark>, HttpError>newGetSpec(api, "/v1/users/me/bookmarks")
-              .responseAs(list(Bookmark.class, "bookmarks", "items"))
+              .responseAs(BOOKMARKS)
               .build();
     }
 
@@ -26,6 +26,7 @@ import com.xing.api.data.contact.PendingContactRequest;
 import com.xing.api.data.profile.XingUser;
 import com.xing.api.internal.Experimental;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -35,6 +36,16 @@ import java.util.List;
  * respond to contact requests.
  */
 public class ContactsResource extends Resource {
+    private static final Type CONTACTS = list(XingUser.class, "contacts", "users");
+    private static final Type CONTACT_IDS = list(String.class, "contact_ids", "items");
+    private static final Type TAGS = list(single(String.class, "tag"), "tags", "items");
+    private static final Type SHARED_CONTACTS = list(XingUser.class, "shared_contacts", "users");
+    private static final Type USERS = list(XingUser.class, "users");
+    private static final Type CONTACT_REQUESTS = list(ContactRequest.class, "contact_requests");
+    private static final Type PENDING_CONTACT_REQUESTS = list(PendingContactRequest.class, "contact_requests");
+    private static final Type CONTACT_PATHS = single(ContactPaths.class, "contact_paths");
+    private static final Type INVITATION_STATS = single(InvitationStats.class, "invitation_stats");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public ContactsResource(XingApi api) {
         super(api);
@@ -87,7 +98,7 @@ public class ContactsResource extends Resource {
     public CallSpec<List<XingUser>, HttpError> getUserContacts(String userId) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/{user_id}/contacts")
               .pathParam("user_id", userId)
-              .responseAs(list(XingUser.class, "contacts", "users"))
+              .responseAs(CONTACTS)
               .build();
     }
 
@@ -157,7 +168,7 @@ public class ContactsResource extends Resource {
      */
     public CallSpec<List<String>, HttpError> getOwnContactsIds() {
         return Resource.<List<String>, HttpError>newGetSpec(api, "/v1/users/me/contact_ids")
-              .responseAs(list(String.class, "contact_ids", "items"))
+              .responseAs(CONTACT_IDS)
               .build();
     }
 
@@ -172,7 +183,7 @@ public class ContactsResource extends Resource {
         return Resource.<List<String>, HttpError>newGetSpec(api, "/v1/users/{user_id}/contacts/{contact_id}/tags")
               .pathParam("user_id", userId)
               .pathParam("contact_id", contactId)
-              .responseAs(list(single(String.class, "tag"), "tags", "items"))
+              .responseAs(TAGS)
               .build();
     }
 
@@ -231,7 +242,7 @@ public class ContactsResource extends Resource {
     public CallSpec<List<XingUser>, HttpError> getSharedContacts(String userId) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/{user_id}/contacts/shared")
               .pathParam("user_id", userId)
-              .responseAs(list(XingUser.class, "shared_contacts", "users"))
+              .responseAs(SHARED_CONTACTS)
               .build();
     }
 
@@ -255,7 +266,7 @@ public class ContactsResource extends Resource {
     @Experimental
     public CallSpec<List<XingUser>, HttpError> getUpcomingBirthdays() {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/me/contacts/upcoming_birthdays")
-              .responseAs(list(XingUser.class, "users"))
+              .responseAs(USERS)
               .build();
     }
 
@@ -289,7 +300,7 @@ public class ContactsResource extends Resource {
      */
     public CallSpec<List<ContactRequest>, HttpError> getIncomingContactRequests() {
         return Resource.<List<ContactRequest>, HttpError>newGetSpec(api, "/v1/users/me/contact_requests")
-              .responseAs(list(ContactRequest.class, "contact_requests"))
+              .responseAs(CONTACT_REQUESTS)
               .build();
     }
 
@@ -320,7 +331,7 @@ public class ContactsResource extends Resource {
      */
     public CallSpec<List<PendingContactRequest>, HttpError> getPendingContactRequests() {
         return Resource.<List<PendingContactRequest>, HttpError>newGetSpec(api, " /v1/users/me/contact_requests/sent")
-              .responseAs(list(PendingContactRequest.class, "contact_requests"))
+              .responseAs(PENDING_CONTACT_REQUESTS)
               .build();
     }
 
@@ -420,7 +431,7 @@ public class ContactsResource extends Resource {
         return Resource.<ContactPaths, HttpError>newGetSpec(api, "/v1/users/{user_id}/network/{other_user_id}/paths")
               .pathParam("user_id", userId)
               .pathParam("other_user_id", otherUserId)
-              .responseAs(single(ContactPaths.class, "contact_paths"))
+              .responseAs(CONTACT_PATHS)
               .build();
     }
 
@@ -454,7 +465,7 @@ public class ContactsResource extends Resource {
     public CallSpec<InvitationStats, HttpError> inviteByMail(String... emails) {
         return Resource.<InvitationStats, HttpError>newPostSpec(api, "/v1/users/invite", true)
               .queryParam("to_emails", emails)
-              .responseAs(single(InvitationStats.class, "invitation_stats"))
+              .responseAs(INVITATION_STATS)
               .build();
     }
 }
@@ -28,12 +28,23 @@ import com.xing.api.data.groups.Post;
 import com.xing.api.data.profile.XingUser;
 import com.xing.api.internal.Experimental;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
  * Resource for all the possible groups calls.
  */
 public class GroupsResource extends Resource {
+    private static final Type GROUPS = list(Group.class, "groups", "items");
+    private static final Type FOUND_GROUPS = list(single(Group.class, "group"), "groups", "items");
+    private static final Type FORUMS = list(Forum.class, "forums", "items");
+    private static final Type POSTS = list(Post.class, "posts", "items");
+    private static final Type POST = single(Post.class, "post");
+    private static final Type LIKERS = list(XingUser.class, "likes", "users");
+    private static final Type COMMENTS = list(Comment.class, "comments", "items");
+    private static final Type MEMBER_STATE = single(Membership.class, "membership", "member_state");
+    private static final Type MEDIA_PREVIEW = single(MediaPreview.class, "media_preview");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public GroupsResource(XingApi api) {
         super(api);
@@ -83,7 +94,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<Group>, HttpError> getUsersGroups(String userId) {
         return Resource.<List<Group>, HttpError>newGetSpec(api, "/v1/users/{user_id}/groups")
-              .responseAs(list(Group.class, "groups", "items"))
+              .responseAs(GROUPS)
               .pathParam("user_id", userId)
               .build();
     }
@@ -161,7 +172,7 @@ public class GroupsResource extends Resource {
     @Experimental
     public CallSpec<List<Group>, HttpError> findGroupByKeyword(String keywords) {
         return Resource.<List<Group>, HttpError>newGetSpec(api, "/v1/groups/find")
-              .responseAs(list(single(Group.class, "group"), "groups", "items"))
+              .responseAs(FOUND_GROUPS)
               .queryParam("keywords", keywords)
               .build();
     }
@@ -193,7 +204,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<Forum>, HttpError> getForumsOfGroup(String groupId) {
         return Resource.<List<Forum>, HttpError>newGetSpec(api, "/v1/groups/{group_id}/forums")
-              .responseAs(list(Forum.class, "forums", "items"))
+              .responseAs(FORUMS)
               .pathParam("group_id", groupId)
               .build();
     }
@@ -235,7 +246,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<Post>, HttpError> getPostsOfForum(String forumId) {
         return Resource.<List<Post>, HttpError>newGetSpec(api, "/v1/groups/forums/{forum_id}/posts")
-              .responseAs(list(Post.class, "posts", "items"))
+              .responseAs(POSTS)
               .pathParam("forum_id", forumId)
               .build();
     }
@@ -267,7 +278,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<Post, HttpError> getPostInGroup(String postId) {
         return Resource.<Post, HttpError>newGetSpec(api, "/v1/groups/forums/posts/{post_id}")
-              .responseAs(single(Post.class, "post"))
+              .responseAs(POST)
               .pathParam("post_id", postId)
               .build();
     }
@@ -311,7 +322,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<Post>, HttpError> getAllPostsOfGroup(String groupId) {
         return Resource.<List<Post>, HttpError>newGetSpec(api, "/v1/groups/{group_id}/posts")
-              .responseAs(list(Post.class, "posts", "items"))
+              .responseAs(POSTS)
               .pathParam("group_id", groupId)
               .build();
     }
@@ -346,7 +357,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<XingUser>, HttpError> getLikersOfPost(String postId) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/groups/forums/posts/{post_id}")
-              .responseAs(list(XingUser.class, "likes", "users"))
+              .responseAs(LIKERS)
               .pathParam("post_id", postId)
               .build();
     }
@@ -414,7 +425,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<Comment>, HttpError> getCommentsOfPost(String postId) {
         return Resource.<List<Comment>, HttpError>newGetSpec(api, "/v1/groups/forums/posts/{post_id}/comments")
-              .responseAs(list(Comment.class, "comments", "items"))
+              .responseAs(COMMENTS)
               .pathParam("post_id", postId)
               .build();
     }
@@ -507,7 +518,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<List<XingUser>, HttpError> getLikersOfComment(String commentId) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/groups/forums/posts/comments/{comment_id}/likes")
-              .responseAs(list(XingUser.class, "likes", "users"))
+              .responseAs(LIKERS)
               .pathParam("comment_id", commentId)
               .build();
     }
@@ -561,7 +572,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<Membership, HttpError> joinGroup(String groupId) {
         return Resource.<Membership, HttpError>newPostSpec(api, "/v1/groups/{group_id}/memberships", false)
-              .responseAs(single(Membership.class, "membership", "member_state"))
+              .responseAs(MEMBER_STATE)
               .pathParam("group_id", groupId)
               .build();
     }
@@ -612,7 +623,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<Post, HttpError> createPost(String title, String content, String forumId) {
         return Resource.<Post, HttpError>newPostSpec(api, "/v1/groups/forums/{forum_id}/posts", false)
-              .responseAs(single(Post.class, "post"))
+              .responseAs(POST)
               .pathParam("forum_id", forumId)
               .queryParam("title", title)
               .queryParam("content", content)
@@ -663,7 +674,7 @@ public class GroupsResource extends Resource {
      */
     public CallSpec<MediaPreview, HttpError> createMediaPreview(String url) {
         return Resource.<MediaPreview, HttpError>newPostSpec(api, "/v1/groups/media_previews", false)
-              .responseAs(single(MediaPreview.class, "media_preview"))
+              .responseAs(MEDIA_PREVIEW)
               .queryParam("url", url)
               .build();
     }
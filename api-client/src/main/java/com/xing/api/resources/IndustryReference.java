@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.resources;
+
+import com.xing.api.CallSpec;
+import com.xing.api.HttpError;
+import com.xing.api.HttpException;
+import com.xing.api.OAuth1Credentials;
+import com.xing.api.Response;
+import com.xing.api.data.profile.Industry;
+import com.xing.api.data.profile.Language;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the {@linkplain MiscellaneousResource#getTranslatedIndustries(Language) translated industries} from an
+ * {@link IndustrySnapshot} on disk, instead of fetching and decoding them for every client. The network is only
+ * requested once the snapshot is older than its maximum age, and then only with a conditional request for the version
+ * of the snapshot: a <strong>304 Not Modified</strong> just renews the snapshot, anything else replaces it.
+ *
+ * <p>A snapshot bundled with the app can be used as a starting point, see {@link #seed(InputStream)}. If the network
+ * fails, a stale snapshot is served rather than failing the lookup.
+ */
+public final class IndustryReference {
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final MiscellaneousResource resource;
+    private final OAuth1Credentials credentials;
+    private final File file;
+    private final long maxAgeMillis;
+    private IndustrySnapshot snapshot;
+
+    public IndustryReference(MiscellaneousResource resource, File file, long maxAge, TimeUnit unit) {
+        this(resource, null, file, maxAge, unit);
+    }
+
+    /**
+     * Creates a reference that refreshes the snapshot as the user of {@code credentials}, see {@link
+     * CallSpec#asUser(OAuth1Credentials)}. Required with a {@linkplain com.xing.api.XingApi.MultiUserStep multi user}
+     * api. The industries don't depend on the user, so one reference can serve all users.
+     */
+    public IndustryReference(MiscellaneousResource resource, OAuth1Credentials credentials, File file, long maxAge,
+          TimeUnit unit) {
+        if (maxAge < 0L) throw new IllegalArgumentException("maxAge < 0: " + maxAge);
+        this.resource = resource;
+        this.credentials = credentials;
+        this.file = file;
+        this.maxAgeMillis = unit.toMillis(maxAge);
+    }
+
+    /**
+     * Copies a prebuilt snapshot, e.g. an asset bundled with the app, unless there already is a snapshot. The seed
+     * counts as written now. Does not close the stream.
+     */
+    public synchronized void seed(InputStream in) throws IOException {
+        if (file.exists()) return;
+        IndustrySnapshot seed = IndustrySnapshot.read(in);
+        Map<Language, List<Industry>> industries = new EnumMap<>(Language.class);
+        Map<Language, String> versions = new EnumMap<>(Language.class);
+        for (Language language : seed.languages()) {
+            industries.put(language, seed.industries(language));
+            versions.put(language, seed.version(language));
+        }
+        replace(industries, versions);
+    }
+
+    /** Returns the industries in {@code language}, refreshing the snapshot first if it is stale. */
+    public synchronized List<Industry> industries(Language language) throws IOException, HttpException {
+        return snapshot(language).industries(language);
+    }
+
+    /**
+     * Returns the top level industry with {@code id} in {@code language}, or {@code null} if there is none. Refreshes
+     * the snapshot first if it is stale.
+     */
+    public synchronized Industry industry(Language language, int id) throws IOException, HttpException {
+        return snapshot(language).industry(language, id);
+    }
+
+    /** Returns a snapshot that contains {@code language}. */
+    private IndustrySnapshot snapshot(Language language) throws IOException, HttpException {
+        if (snapshot == null && file.exists()) snapshot = IndustrySnapshot.open(file);
+        boolean contained = snapshot != null && snapshot.languages().contains(language);
+        if (contained && System.currentTimeMillis() - file.lastModified() < maxAgeMillis) return snapshot;
+
+        CallSpec<Map<Language, List<Industry>>, HttpError> spec = resource.getTranslatedIndustries(language);
+        String version = contained ? snapshot.version(language) : null;
+        if (version != null) spec.header("If-None-Match", version);
+        if (credentials != null) spec.asUser(credentials);
+        Response<Map<Language, List<Industry>>, HttpError> response;
+        try {
+            response = spec.execute();
+        } catch (IOException e) {
+            if (contained) return snapshot;
+            throw e;
+        }
+
+        if (contained && response.code() == HTTP_NOT_MODIFIED) {
+            if (!file.setLastModified(System.currentTimeMillis())) throw new IOException("Failed to touch " + file);
+            return snapshot;
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            if (contained) return snapshot;
+            throw new HttpException(response);
+        }
+
+        Map<Language, List<Industry>> industries = new EnumMap<>(Language.class);
+        Map<Language, String> versions = new EnumMap<>(Language.class);
+        if (snapshot != null) {
+            for (Language existing : snapshot.languages()) {
+                industries.put(existing, snapshot.industries(existing));
+                versions.put(existing, snapshot.version(existing));
+            }
+        }
+        String etag = response.headers().get("ETag");
+        for (Map.Entry<Language, List<Industry>> entry : response.body().entrySet()) {
+            industries.put(entry.getKey(), entry.getValue());
+            versions.put(entry.getKey(), etag);
+        }
+        if (!industries.containsKey(language)) throw new IOException("No industries for " + language);
+        return replace(industries, versions);
+    }
+
+    /** Writes a new snapshot next to the current one and moves it into place. */
+    private IndustrySnapshot replace(Map<Language, List<Industry>> industries, Map<Language, String> versions)
+          throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            IndustrySnapshot.write(industries, versions, out);
+        } finally {
+            out.close();
+        }
+        // Some platforms can't rename onto an existing file.
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Failed to replace " + file);
+        }
+        snapshot = IndustrySnapshot.open(file);
+        return snapshot;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.resources;
+
+import com.xing.api.data.profile.Industry;
+import com.xing.api.data.profile.Language;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okio.Okio;
+
+/**
+ * A compact, read only snapshot of the {@linkplain MiscellaneousResource#getTranslatedIndustries(Language) translated
+ * industries}. Opening a snapshot only reads its index; the industries of a language are decoded when they are asked
+ * for, and a single industry can be looked up without decoding the others. Snapshots are usually {@linkplain
+ * #write(Map, Map, OutputStream) written} at build time and bundled with the app, see {@link IndustryReference}.
+ *
+ * <p>Layout: {@code magic, language count, (language, version, block offset)*} followed by one block per language:
+ * {@code industry count, (id, record offset)*} sorted by id, then the records in their original order. A record is
+ * {@code id, name, segment count} followed by the segment records; a segment count of {@code -1} stands for no segments.
+ */
+public final class IndustrySnapshot {
+    private static final int MAGIC = 0x58495301; // "XIS" v1
+    private static final int NO_SEGMENTS = -1;
+
+    /** Opens the snapshot in {@code file} by mapping it into memory. */
+    public static IndustrySnapshot open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // The mapping stays valid after the channel is closed.
+            return new IndustrySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /** Reads the snapshot from {@code in}, e.g. an asset bundled with the app. Does not close the stream. */
+    public static IndustrySnapshot read(InputStream in) throws IOException {
+        byte[] bytes = Okio.buffer(Okio.source(in)).readByteArray();
+        return new IndustrySnapshot(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    /**
+     * Writes a snapshot of {@code industries} to {@code out}. {@code versions} holds the version of each language, e.g.
+     * the ETag it was served with, and may omit languages without a version. Does not close the stream.
+     */
+    public static void write(Map<Language, List<Industry>> industries, Map<Language, String> versions,
+          OutputStream out) throws IOException {
+        List<byte[]> blocks = new ArrayList<>(industries.size());
+        for (List<Industry> languageIndustries : industries.values()) {
+            blocks.add(encodeBlock(languageIndustries));
+        }
+        // The index length doesn't depend on the offsets, so it can be measured with placeholders.
+        int offset = 4 + 4 + encodeIndex(industries, versions, new int[blocks.size()]).length;
+        int[] offsets = new int[blocks.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = offset;
+            offset += blocks.get(i).length;
+        }
+        byte[] index = encodeIndex(industries, versions, offsets);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(blocks.size());
+        data.write(index);
+        for (byte[] block : blocks) {
+            data.write(block);
+        }
+        data.flush();
+    }
+
+    private final ByteBuffer buffer;
+    private final Map<Language, Integer> blocks = new EnumMap<>(Language.class);
+    private final Map<Language, String> versions = new EnumMap<>(Language.class);
+
+    private IndustrySnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer.duplicate()));
+        if (in.readInt() != MAGIC) throw new IOException("Not an industry snapshot");
+        for (int i = 0, count = in.readInt(); i < count; i++) {
+            Language language = language(in.readUTF());
+            String version = in.readUTF();
+            int offset = in.readInt();
+            if (language == null) continue;
+            blocks.put(language, offset);
+            if (!version.isEmpty()) versions.put(language, version);
+        }
+    }
+
+    /** Returns the languages contained in this snapshot. */
+    public Set<Language> languages() {
+        return Collections.unmodifiableSet(blocks.keySet());
+    }
+
+    /** Returns the version the industries in {@code language} were written with, or {@code null}. */
+    public String version(Language language) {
+        return versions.get(language);
+    }
+
+    /** Decodes the industries in {@code language}, or returns {@code null} if the snapshot doesn't contain them. */
+    public List<Industry> industries(Language language) throws IOException {
+        Integer block = blocks.get(language);
+        if (block == null) return null;
+
+        int count = buffer.getInt(block);
+        DataInputStream in = stream(block + 4 + count * 8);
+        List<Industry> industries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            industries.add(decode(in));
+        }
+        return Collections.unmodifiableList(industries);
+    }
+
+    /**
+     * Decodes the top level industry with {@code id} in {@code language}, or returns {@code null} if the snapshot
+     * doesn't contain it. Only this industry is read.
+     */
+    public Industry industry(Language language, int id) throws IOException {
+        Integer block = blocks.get(language);
+        if (block == null) return null;
+
+        int low = 0;
+        int high = buffer.getInt(block) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = block + 4 + middle * 8;
+            int middleId = buffer.getInt(entry);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return decode(stream(block + buffer.getInt(entry + 4)));
+            }
+        }
+        return null;
+    }
+
+    private DataInputStream stream(int position) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        return new DataInputStream(new ByteBufferInputStream(duplicate));
+    }
+
+    private static Industry decode(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String name = in.readUTF();
+        int segmentCount = in.readInt();
+        if (segmentCount == NO_SEGMENTS) return new Industry(id, name);
+
+        List<Industry> segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(decode(in));
+        }
+        return new Industry(id, name, segments);
+    }
+
+    private static byte[] encodeIndex(Map<Language, List<Industry>> industries, Map<Language, String> versions,
+          int[] offsets) throws IOException {
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        int i = 0;
+        for (Language language : industries.keySet()) {
+            String version = versions.get(language);
+            indexOut.writeUTF(language.name());
+            indexOut.writeUTF(version != null ? version : "");
+            indexOut.writeInt(offsets[i++]);
+        }
+        return index.toByteArray();
+    }
+
+    private static byte[] encodeBlock(List<Industry> industries) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        int size = industries.size();
+        int indexLength = 4 + size * 8;
+        long[] entries = new long[size];
+        for (int i = 0; i < size; i++) {
+            Industry industry = industries.get(i);
+            // Sorting the id in the upper half keeps the record offset along with it.
+            entries[i] = ((long) industry.id() << 32) | (indexLength + records.size());
+            encode(industry, recordsOut);
+        }
+        Arrays.sort(entries);
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream(indexLength + records.size());
+        DataOutputStream blockOut = new DataOutputStream(block);
+        blockOut.writeInt(size);
+        for (long entry : entries) {
+            blockOut.writeLong(entry);
+        }
+        records.writeTo(blockOut);
+        return block.toByteArray();
+    }
+
+    private static void encode(Industry industry, DataOutputStream out) throws IOException {
+        out.writeInt(industry.id());
+        out.writeUTF(industry.name() != null ? industry.name() : "");
+        List<Industry> segments = industry.segments();
+        out.writeInt(segments != null ? segments.size() : NO_SEGMENTS);
+        if (segments == null) return;
+        for (Industry segment : segments) {
+            encode(segment, out);
+        }
+    }
+
+    private static Language language(String name) {
+        try {
+            return Language.valueOf(name);
+        } catch (IllegalArgumentException ignored) {
+            // Written by a newer version of the library.
+            return null;
+        }
+    }
+
+    /** Reads a {@link ByteBuffer} from its position on. */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+    }
+}
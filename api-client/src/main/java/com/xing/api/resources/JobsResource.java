@@ -22,6 +22,7 @@ import com.xing.api.XingApi;
 import com.xing.api.data.jobs.Job;
 import com.xing.api.data.jobs.PartialJob;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -31,6 +32,10 @@ import java.util.List;
  * criteria or recommended to a user by id.
  */
 public class JobsResource extends Resource {
+    private static final Type JOB = single(Job.class, "job");
+    private static final Type JOBS = list(PartialJob.class, "jobs", "items");
+    private static final Type RECOMMENDED_JOBS = list(PartialJob.class, "job_recommendations", "items");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public JobsResource(XingApi api) {
         super(api);
@@ -49,7 +54,7 @@ public class JobsResource extends Resource {
     public CallSpec<Job, HttpError> getJobById(String jobId) {
         return Resource.<Job, HttpError>newGetSpec(api, "/v1/jobs/{id}")
               .pathParam("id", jobId)
-              .responseAs(single(Job.class, "job"))
+              .responseAs(JOB)
               .build();
     }
 
@@ -63,7 +68,7 @@ public class JobsResource extends Resource {
     public CallSpec<List<PartialJob>, HttpError> getJobsByCriteria(String criteria) {
         return Resource.<List<PartialJob>, HttpError>newGetSpec(api, "/v1/jobs/find")
               .queryParam("query", criteria)
-              .responseAs(list(PartialJob.class, "jobs", "items"))
+              .responseAs(JOBS)
               .build();
     }
 
@@ -78,7 +83,7 @@ public class JobsResource extends Resource {
     public CallSpec<List<PartialJob>, HttpError> getJobsRecommendationsForUser(String userId) {
         return Resource.<List<PartialJob>, HttpError>newGetSpec(api, "/v1/users/{user_id}/jobs/recommendations")
               .pathParam("user_id", userId)
-              .responseAs(list(PartialJob.class, "job_recommendations", "items"))
+              .responseAs(RECOMMENDED_JOBS)
               .build();
     }
 }
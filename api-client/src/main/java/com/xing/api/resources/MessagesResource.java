@@ -23,6 +23,7 @@ import com.xing.api.data.messages.Conversation;
 import com.xing.api.data.messages.ConversationMessage;
 import com.xing.api.data.messages.MessageAttachment;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -31,6 +32,13 @@ import java.util.List;
  * Provides methods which allow access to user's {@linkplain Conversation conversations}.
  */
 public class MessagesResource extends Resource {
+    private static final Type CONVERSATIONS = list(Conversation.class, "conversations", "items");
+    private static final Type CONVERSATION = single(Conversation.class, "conversation");
+    private static final Type ATTACHMENTS = list(MessageAttachment.class, "attachments", "items");
+    private static final Type DOWNLOAD_URL = single(String.class, "download", "url");
+    private static final Type MESSAGES = list(ConversationMessage.class, "messages", "items");
+    private static final Type MESSAGE = single(ConversationMessage.class, "message");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public MessagesResource(XingApi api) {
         super(api);
@@ -80,7 +88,7 @@ public class MessagesResource extends Resource {
     public CallSpec<List<Conversation>, HttpError> getConversationsByUserId(String userId) {
         return Resource.<List<Conversation>, HttpError>newGetSpec(api, "/v1/users/{id}/conversations")
               .pathParam("id", userId)
-              .responseAs(list(Conversation.class, "conversations", "items"))
+              .responseAs(CONVERSATIONS)
               .build();
     }
 
@@ -106,7 +114,7 @@ public class MessagesResource extends Resource {
               .queryParam("content", content)
               .queryParam("recipient_ids", recipientIds)
               .queryParam("subject", subject)
-              .responseAs(single(Conversation.class, "conversation"))
+              .responseAs(CONVERSATION)
               .build();
     }
 
@@ -163,7 +171,7 @@ public class MessagesResource extends Resource {
         return Resource.<Conversation, HttpError>newGetSpec(api, "/v1/users/{user_id}/conversations/{conversation_id}")
               .pathParam("user_id", userId)
               .pathParam("conversation_id", conversationId)
-              .responseAs(single(Conversation.class, "conversation"))
+              .responseAs(CONVERSATION)
               .build();
     }
 
@@ -202,7 +210,7 @@ public class MessagesResource extends Resource {
         return Resource.<List<MessageAttachment>, HttpError>newGetSpec(api,
               "/v1/users/me/conversations/{conversation_id}/attachments")
               .pathParam("conversation_id", conversationId)
-              .responseAs(list(MessageAttachment.class, "attachments", "items"))
+              .responseAs(ATTACHMENTS)
               .build();
     }
 
@@ -222,7 +230,7 @@ public class MessagesResource extends Resource {
               "/v1/users/me/conversations/{conversation_id}/attachments/{attachment_id}/download", false)
               .pathParam("conversation_id", conversationId)
               .pathParam("attachment_id", attachmentId)
-              .responseAs(single(String.class, "download", "url"))
+              .responseAs(DOWNLOAD_URL)
               .build();
     }
 
@@ -308,7 +316,7 @@ public class MessagesResource extends Resource {
               "/v1/users/{user_id}/conversations/{conversation_id}/messages")
               .pathParam("user_id", userId)
               .pathParam("conversation_id", conversationId)
-              .responseAs(list(ConversationMessage.class, "messages", "items"))
+              .responseAs(MESSAGES)
               .build();
     }
 
@@ -348,7 +356,7 @@ public class MessagesResource extends Resource {
               .pathParam("user_id", userId)
               .pathParam("conversation_id", conversationId)
               .pathParam("message_id", messageId)
-              .responseAs(single(ConversationMessage.class, "message"))
+              .responseAs(MESSAGE)
               .build();
     }
 
@@ -412,7 +420,7 @@ public class MessagesResource extends Resource {
               .pathParam("user_id", userId)
               .pathParam("conversation_id", conversationId)
               .queryParam("content", messageContent)
-              .responseAs(single(ConversationMessage.class, "message"))
+              .responseAs(MESSAGE)
               .build();
     }
 
@@ -22,6 +22,7 @@ import com.xing.api.XingApi;
 import com.xing.api.data.profile.Industry;
 import com.xing.api.data.profile.Language;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +32,9 @@ import static com.squareup.moshi.Types.newParameterizedType;
  * Represents the <a href="https://dev.xing.com/docs/resources#miscellaneous">Miscellaneous</a> resource.
  */
 public class MiscellaneousResource extends Resource {
+    private static final Type INDUSTRIES =
+          newParameterizedType(Map.class, Language.class, newParameterizedType(List.class, Industry.class));
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public MiscellaneousResource(XingApi api) {
         super(api);
@@ -44,6 +48,9 @@ public class MiscellaneousResource extends Resource {
      * <p>
      * For more information, please see the <a href="https://dev.xing.com/docs/industries">industries
      * documentation</a>.
+     * <p>
+     * The industries rarely change. Use an {@link IndustryReference} to keep them in a snapshot on disk instead of
+     * fetching them for every client.
      *
      * @param language The requested language.
      * @return A {@linkplain CallSpec callSpec} object ready to execute the request.
@@ -53,8 +60,7 @@ public class MiscellaneousResource extends Resource {
      */
     public CallSpec<Map<Language, List<Industry>>, HttpError> getTranslatedIndustries(Language language) {
         return Resource.<Map<Language, List<Industry>>, HttpError>newGetSpec(api, "/v1/misc/industries")
-              .responseAs(newParameterizedType(Map.class, Language.class,
-                    newParameterizedType(List.class, Industry.class)))
+              .responseAs(INDUSTRIES)
               .queryParam("languages", language)
               .build();
     }
@@ -20,6 +20,7 @@ import com.xing.api.HttpError;
 import com.xing.api.Resource;
 import com.xing.api.XingApi;
 import com.xing.api.data.edit.PictureUpload;
+import com.xing.api.data.edit.PictureUploadBody;
 import com.xing.api.data.edit.UploadProgress;
 import com.xing.api.data.profile.Address;
 import com.xing.api.data.profile.Award;
@@ -34,6 +35,7 @@ import com.xing.api.data.profile.WebProfile;
 import com.xing.api.data.profile.XingUser;
 import com.xing.api.internal.Experimental;
 
+import java.lang.reflect.Type;
 import java.util.Calendar;
 import java.util.List;
 
@@ -46,6 +48,14 @@ import okhttp3.RequestBody;
  * Provides methods which allow to edit the authorizing {@linkplain XingUser user's} profile information.
  */
 public class ProfileEditingResource extends Resource {
+    private static final Type FIRST_USER = first(XingUser.class, "users");
+    private static final Type PHOTO = single(PictureUpload.class, "photo");
+    private static final Type UPLOAD_PROGRESS = single(UploadProgress.class, "progress");
+    private static final Type SCHOOL = single(School.class, "school");
+    private static final Type QUALIFICATIONS = list(String.class, "qualifications");
+    private static final Type COMPANY = single(Company.class, "company");
+    private static final Type AWARDS = list(Award.class, "awards");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public ProfileEditingResource(XingApi api) {
         super(api);
@@ -103,7 +113,7 @@ public class ProfileEditingResource extends Resource {
      */
     public CallSpec<XingUser, HttpError> updateGeneralInformation() {
         return Resource.<XingUser, HttpError>newPutSpec(api, "v1/users/me", false)
-              .responseAs(first(XingUser.class, "users"))
+              .responseAs(FIRST_USER)
               .build();
     }
 
@@ -117,16 +127,21 @@ public class ProfileEditingResource extends Resource {
      * { "photo": { "file_name": "test.jpg", "mime_type": "image/jpeg", "content": "Base64 encoded image data" } }
      * <p>
      * The required PictureUpload Object can be generated by using {@link PictureUpload#pictureUploadJPEG(String,
-     * byte[])} or {@link PictureUpload#pictureUploadPNG(String, byte[])}
+     * byte[])} or {@link PictureUpload#pictureUploadPNG(String, byte[])}. For large pictures prefer the variants that
+     * take a {@link java.io.File File} or an {@link okio.Source Source}, which stream the picture instead of holding it
+     * in memory.
      *
      * @return A {@linkplain CallSpec callSpec object} ready to execute the request.
      *
      * @see <a href="https://dev.xing.com/docs/put/users/me/photo">'Update users profile picture' resource page</a>
      */
     public CallSpec<Void, HttpError> updateProfilePicture(PictureUpload pictureUpload) {
+        RequestBody streamed = PictureUploadBody.of(pictureUpload, "photo");
+        if (streamed != null) return updateProfilePicture(streamed);
+
         return Resource.<Void, HttpError>newPutSpec(api, "v1/users/me/photo", false)
               .responseAs(Void.class)
-              .body(single(PictureUpload.class, "photo"), pictureUpload)
+              .body(PHOTO, pictureUpload)
               .build();
     }
 
@@ -178,7 +193,7 @@ public class ProfileEditingResource extends Resource {
     @Experimental
     public CallSpec<UploadProgress, HttpError> getPictureUploadProgress() {
         return Resource.<UploadProgress, HttpError>newGetSpec(api, "/v1/users/me/photo/progress")
-              .responseAs(single(UploadProgress.class, "progress"))
+              .responseAs(UPLOAD_PROGRESS)
               .build();
     }
 
@@ -388,7 +403,7 @@ public class ProfileEditingResource extends Resource {
      */
     public CallSpec<School, HttpError> addSchool(String name) {
         return Resource.<School, HttpError>newPostSpec(api, "/v1/users/me/educational_background/schools", true)
-              .responseAs(single(School.class, "school"))
+              .responseAs(SCHOOL)
               .formField("name", name)
               .build();
     }
@@ -406,7 +421,7 @@ public class ProfileEditingResource extends Resource {
      */
     public CallSpec<School, HttpError> addSchool(School school) {
         return Resource.<School, HttpError>newPostSpec(api, "/v1/users/me/educational_background/schools", false)
-              .responseAs(single(School.class, "school"))
+              .responseAs(SCHOOL)
               .body(School.class, school)
               .build();
     }
@@ -460,7 +475,7 @@ public class ProfileEditingResource extends Resource {
      */
     public CallSpec<School, HttpError> updateSchool(String schoolId) {
         return Resource.<School, HttpError>newPutSpec(api, "/v1/users/me/educational_background/schools/{id}", true)
-              .responseAs(single(School.class, "school"))
+              .responseAs(SCHOOL)
               .pathParam("id", schoolId)
               .build();
     }
@@ -519,7 +534,7 @@ public class ProfileEditingResource extends Resource {
     public CallSpec<List<String>, HttpError> addQualification(String description) {
         return Resource.<List<String>, HttpError>newPostSpec(
               api, "/v1/users/me/educational_background/qualifications", false)
-              .responseAs(list(String.class, "qualifications"))
+              .responseAs(QUALIFICATIONS)
               .queryParam("description", description)
               .build();
     }
@@ -586,7 +601,7 @@ public class ProfileEditingResource extends Resource {
      */
     public CallSpec<Company, HttpError> addCompany(String name, String title, FormOfEmployment formOfEmployment) {
         return Resource.<Company, HttpError>newPostSpec(api, "/v1/users/me/professional_experience/companies", true)
-              .responseAs(single(Company.class, "company"))
+              .responseAs(COMPANY)
               .formField("name", name)
               .formField("title", title)
               .formField("form_of_employment", formOfEmployment)
@@ -671,7 +686,7 @@ public class ProfileEditingResource extends Resource {
      */
     public CallSpec<Company, HttpError> updateCompany(String companyId) {
         return Resource.<Company, HttpError>newPutSpec(api, "/v1/users/me/professional_experience/companies/{id}", true)
-              .responseAs(single(Company.class, "company"))
+              .responseAs(COMPANY)
               .pathParam("id", companyId)
               .build();
     }
@@ -729,7 +744,7 @@ public class ProfileEditingResource extends Resource {
     public CallSpec<Void, HttpError> updateAwards(List<Award> awards) {
         return Resource.<Void, HttpError>newPutSpec(api, "/v1/users/me/professional_experience/awards", false)
               .responseAs(Void.class)
-              .body(list(Award.class, "awards"), awards)
+              .body(AWARDS, awards)
               .build();
     }
 
@@ -21,6 +21,7 @@ import com.xing.api.Resource;
 import com.xing.api.XingApi;
 import com.xing.api.data.profile.ProfileVisit;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -29,6 +30,8 @@ import java.util.List;
  * Provides methods which allow access to a {@linkplain com.xing.api.data.profile.XingUser user's} profile visits.
  */
 public class ProfileVisitsResource extends Resource {
+    private static final Type VISITS = list(ProfileVisit.class, "visits");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public ProfileVisitsResource(XingApi api) {
         super(api);
@@ -90,7 +93,7 @@ public class ProfileVisitsResource extends Resource {
      */
     public CallSpec<List<ProfileVisit>, HttpError> getUsersProfileVisits(String userId) {
         return Resource.<List<ProfileVisit>, HttpError>newGetSpec(api, "/v1/users/{user_id}/visits")
-              .responseAs(list(ProfileVisit.class, "visits"))
+              .responseAs(VISITS)
               .pathParam("user_id", userId)
               .build();
     }
@@ -21,6 +21,7 @@ import com.xing.api.Resource;
 import com.xing.api.XingApi;
 import com.xing.api.data.profile.XingUser;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -30,6 +31,9 @@ import java.util.List;
  * Allows access to the specified user's contacts recommendations.
  */
 public class RecommendationsResource extends Resource {
+    private static final Type USER_RECOMMENDATIONS =
+          list(single(XingUser.class, "user"), "user_recommendations", "recommendations");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public RecommendationsResource(XingApi api) {
         super(api);
@@ -65,7 +69,7 @@ public class RecommendationsResource extends Resource {
      */
     public CallSpec<List<XingUser>, HttpError> getOwnRecommendations() {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/me/network/recommendations")
-              .responseAs(list(single(XingUser.class, "user"), "user_recommendations", "recommendations"))
+              .responseAs(USER_RECOMMENDATIONS)
               .build();
     }
 
@@ -102,7 +106,7 @@ public class RecommendationsResource extends Resource {
     public CallSpec<List<XingUser>, HttpError> getRecommendations(String userId) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/{user_id}/network/recommendations")
               .pathParam("user_id", userId)
-              .responseAs(list(single(XingUser.class, "user"), "user_recommendations", "recommendations"))
+              .responseAs(USER_RECOMMENDATIONS)
               .build();
     }
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.resources;
+
+import com.xing.api.BatchLoader;
+import com.xing.api.CallSpec;
+import com.xing.api.Callback;
+import com.xing.api.HttpError;
+import com.xing.api.OAuth1Credentials;
+import com.xing.api.data.profile.XingUser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+
+/**
+ * Coalesces single user lookups into {@link UserProfilesResource#getUsersById(List)} calls. Ids loaded within a few
+ * milliseconds of each other are requested together, up to 100 ids per call. Use this instead of {@link
+ * UserProfilesResource#getUserById(String)} when many profiles are needed at once, e.g. for the authors of a feed.
+ *
+ * <p>Each caller receives the {@linkplain XingUser user} it asked for, or a {@code null} body if the user is not
+ * available. Users are matched to callers by their id, so a missing user only affects the callers of that id.
+ */
+public final class UserLoader {
+    /** Upper bound of ids per call. */
+    private static final int MAX_BATCH_SIZE = 100;
+    /** How long to wait for more ids before sending a batch. */
+    private static final long BATCH_WINDOW_MILLIS = 10L;
+
+    private final BatchLoader<String, XingUser, HttpError> loader;
+
+    public UserLoader(UserProfilesResource resource) {
+        this(resource, null);
+    }
+
+    /**
+     * Creates a loader whose calls are made for the user of {@code credentials}, see {@link
+     * CallSpec#asUser(OAuth1Credentials)}. Use one loader per user with a {@linkplain
+     * com.xing.api.XingApi.MultiUserStep multi user} api, since a batch is signed for one user only.
+     */
+    public UserLoader(final UserProfilesResource resource, final OAuth1Credentials credentials) {
+        loader = new BatchLoader<>(new BatchLoader.BatchCall<String, XingUser, HttpError>() {
+            @Override
+            public CallSpec<List<XingUser>, HttpError> call(List<String> ids) {
+                CallSpec<List<XingUser>, HttpError> spec = resource.getUsersById(ids);
+                return credentials != null ? spec.asUser(credentials) : spec;
+            }
+        }, new BatchLoader.KeyOf<String, XingUser>() {
+            @Override
+            public String keyOf(XingUser user) {
+                return user.id();
+            }
+        }, MAX_BATCH_SIZE, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Loads the user with the given {@code id} as part of the next batch. */
+    public void load(String id, Callback<XingUser, HttpError> callback) {
+        loader.load(id, callback);
+    }
+
+    /**
+     * Loads the user with the given {@code id} as part of the next batch. Signals a {@link
+     * java.util.NoSuchElementException} if the user is not available.
+     */
+    public Single<XingUser> load(String id) {
+        return loader.load(id);
+    }
+
+    /** Sends the pending ids right away. */
+    public void flush() {
+        loader.flush();
+    }
+}
@@ -23,6 +23,7 @@ import com.xing.api.data.profile.ProfileMessage;
 import com.xing.api.data.profile.XingUser;
 import com.xing.api.internal.Experimental;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -32,6 +33,14 @@ import java.util.List;
  * Provides methods which allow access a {@linkplain XingUser user's} profile information.
  */
 public class UserProfilesResource extends Resource {
+    private static final Type USERS = list(XingUser.class, "users");
+    private static final Type FIRST_USER = first(XingUser.class, "users");
+    private static final Type ID_CARD = single(XingUser.class, "id_card");
+    private static final Type FOUND_BY_EMAIL = list(single(XingUser.class, "user"), "results", "items");
+    private static final Type FOUND_BY_KEYWORD = list(single(XingUser.class, "user"), "users", "items");
+    private static final Type PROFILE_MESSAGE = single(ProfileMessage.class, "profile_message");
+    private static final Type LEGAL_INFORMATION = single(String.class, "legal_information", "content");
+
     /** Creates a resource instance. This should be the only constructor declared by child classes. */
     public UserProfilesResource(XingApi api) {
         super(api);
@@ -62,7 +71,7 @@ public class UserProfilesResource extends Resource {
     public CallSpec<List<XingUser>, HttpError> getUsersById(List<String> ids) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/{ids}")
               .pathParam("ids", ids)
-              .responseAs(list(XingUser.class, "users"))
+              .responseAs(USERS)
               .build();
     }
 
@@ -91,7 +100,7 @@ public class UserProfilesResource extends Resource {
     public CallSpec<XingUser, HttpError> getUserById(String id) {
         return Resource.<XingUser, HttpError>newGetSpec(api, "/v1/users/{id}")
               .pathParam("id", id)
-              .responseAs(first(XingUser.class, "users"))
+              .responseAs(FIRST_USER)
               .build();
     }
 
@@ -131,7 +140,7 @@ public class UserProfilesResource extends Resource {
      */
     public CallSpec<XingUser, HttpError> getOwnIdCard() {
         return Resource.<XingUser, HttpError>newGetSpec(api, "/v1/users/me/id_card")
-              .responseAs(single(XingUser.class, "id_card"))
+              .responseAs(ID_CARD)
               .build();
     }
 
@@ -164,7 +173,7 @@ public class UserProfilesResource extends Resource {
      */
     public CallSpec<List<XingUser>, HttpError> findUsersByEmail(List<String> emails) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/find_by_emails")
-              .responseAs(list(single(XingUser.class, "user"), "results", "items"))
+              .responseAs(FOUND_BY_EMAIL)
               .queryParam("emails", emails)
               .build();
     }
@@ -207,7 +216,7 @@ public class UserProfilesResource extends Resource {
     @Experimental
     public CallSpec<List<XingUser>, HttpError> findUsersByKeyword(String keywords) {
         return Resource.<List<XingUser>, HttpError>newGetSpec(api, "/v1/users/find")
-              .responseAs(list(single(XingUser.class, "user"), "users", "items"))
+              .responseAs(FOUND_BY_KEYWORD)
               .queryParam("keywords", keywords)
               .build();
     }
@@ -223,7 +232,7 @@ public class UserProfilesResource extends Resource {
     public CallSpec<ProfileMessage, HttpError> getUserProfileMessage(String userId) {
         return Resource.<ProfileMessage, HttpError>newGetSpec(api, "/v1/{user_id}/profile_message")
               .pathParam("user_id", userId)
-              .responseAs(single(ProfileMessage.class, "profile_message"))
+              .responseAs(PROFILE_MESSAGE)
               .build();
     }
 
@@ -251,7 +260,7 @@ public class UserProfilesResource extends Resource {
     public CallSpec<String, HttpError> getUserLegalInformation(String userId) {
         return Resource.<String, HttpError>newGetSpec(api, "/v1/users/{user_id}/legal_information")
               .pathParam("user_id", userId)
-              .responseAs(single(String.class, "legal_information", "content"))
+              .responseAs(LEGAL_INFORMATION)
               .build();
     }
 
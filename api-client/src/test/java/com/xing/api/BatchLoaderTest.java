@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.squareup.moshi.Types;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("MagicNumber")
+public class BatchLoaderTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+
+    private XingApi mockApi;
+
+    @Before
+    public void setUp() {
+        mockApi = new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .build();
+    }
+
+    @Test
+    public void loadsWithinWindowAreCoalesced() throws Exception {
+        server.enqueue(new MockResponse().setBody("[\"A\",null,\"C\"]"));
+
+        BatchLoader<String, String, HttpError> loader = loader(10, 1, TimeUnit.HOURS);
+        RecordingCallback callback = new RecordingCallback(4);
+        loader.load("a", callback);
+        loader.load("b", callback);
+        loader.load("a", callback);
+        loader.load("c", callback);
+        loader.flush();
+
+        assertThat(callback.await()).isTrue();
+        assertThat(callback.values).containsEntry("a", "A").containsEntry("c", "C").doesNotContainKey("b");
+        assertThat(callback.nulls).isEqualTo(1);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(server.takeRequest().getPath()).isEqualTo("/items/a,b,c");
+    }
+
+    @Test
+    public void fullBatchIsSentRightAway() throws Exception {
+        server.enqueue(new MockResponse().setBody("[\"A\",\"B\"]"));
+        server.enqueue(new MockResponse().setBody("[\"C\"]"));
+
+        BatchLoader<String, String, HttpError> loader = loader(2, 1, TimeUnit.HOURS);
+        RecordingCallback callback = new RecordingCallback(2);
+        loader.load("a", callback);
+        loader.load("b", callback);
+        loader.load("c", callback);
+
+        assertThat(callback.await()).isTrue();
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(request.getPath()).isEqualTo("/items/a,b");
+        // The remaining key waits for its window.
+        assertThat(server.takeRequest(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void windowSendsPendingKeys() throws Exception {
+        server.enqueue(new MockResponse().setBody("[\"A\"]"));
+
+        TestObserver<String> observer = loader(10, 10, TimeUnit.MILLISECONDS).load("a").test();
+
+        observer.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        observer.assertValue("A");
+    }
+
+    @Test
+    public void singleSignalsMissingValueAndErrors() throws Exception {
+        server.enqueue(new MockResponse().setBody("[null]"));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("{}"));
+
+        BatchLoader<String, String, HttpError> loader = loader(1, 1, TimeUnit.HOURS);
+        TestObserver<String> missing = loader.load("a").test();
+        missing.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        missing.assertError(NoSuchElementException.class);
+
+        TestObserver<String> failed = loader.load("b").test();
+        failed.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        failed.assertError(HttpException.class);
+    }
+
+    @Test
+    public void keyedValuesAreMatchedByKey() throws Exception {
+        server.enqueue(new MockResponse().setBody("[\"C\",\"A\"]"));
+
+        BatchLoader<String, String, HttpError> loader = new BatchLoader<>(batchCall(),
+              new BatchLoader.KeyOf<String, String>() {
+                  @Override
+                  public String keyOf(String value) {
+                      return value.toLowerCase();
+                  }
+              }, 10, 1, TimeUnit.HOURS);
+        TestObserver<String> a = loader.load("a").test();
+        TestObserver<String> b = loader.load("b").test();
+        TestObserver<String> c = loader.load("c").test();
+        loader.flush();
+
+        a.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        b.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        c.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        a.assertValue("A");
+        b.assertError(NoSuchElementException.class);
+        c.assertValue("C");
+    }
+
+    private BatchLoader<String, String, HttpError> loader(int maxBatchSize, long window, TimeUnit unit) {
+        return new BatchLoader<>(batchCall(), maxBatchSize, window, unit);
+    }
+
+    private BatchLoader.BatchCall<String, String, HttpError> batchCall() {
+        return new BatchLoader.BatchCall<String, String, HttpError>() {
+            @Override
+            public CallSpec<List<String>, HttpError> call(List<String> keys) {
+                return new CallSpec.Builder<List<String>, HttpError>(mockApi, HttpMethod.GET, "/items/{keys}", false)
+                      .pathParam("keys", keys)
+                      .responseAs(Types.newParameterizedType(List.class, String.class))
+                      .build();
+            }
+        };
+    }
+
+    /** Records the values of successful responses, keyed by their value in lower case. */
+    static final class RecordingCallback implements Callback<String, HttpError> {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final List<Throwable> failures = new ArrayList<>();
+        final CountDownLatch latch;
+        volatile int nulls;
+
+        RecordingCallback(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public synchronized void onResponse(Response<String, HttpError> response) {
+            String value = response.body();
+            if (value != null) {
+                values.put(value.toLowerCase(), value);
+            } else {
+                nulls++;
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public synchronized void onFailure(Throwable t) {
+            failures.add(t);
+            latch.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(2, TimeUnit.SECONDS);
+        }
+    }
+}
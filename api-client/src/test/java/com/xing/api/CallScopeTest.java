@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@SuppressWarnings("MagicNumber")
+public class CallScopeTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+
+    @Test
+    public void joinWaitsForAllCalls() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+        XingApi api = api();
+
+        try (CallScope scope = new CallScope(api)) {
+            CallScope.Task<String, HttpError> first = scope.fork(spec(api, "/a"));
+            CallScope.Task<String, HttpError> second = scope.fork(spec(api, "/b"));
+            scope.join();
+
+            assertThat(first.response().isSuccessful()).isTrue();
+            assertThat(second.response().isSuccessful()).isTrue();
+            assertThat(first.response().body() + second.response().body()).isIn("ab", "ba");
+        }
+    }
+
+    @Test
+    public void failureCancelsSiblings() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        XingApi api = api();
+
+        CallScope scope = new CallScope(api, 10, TimeUnit.SECONDS);
+        CallSpec<String, HttpError> failing = spec(api, "/a");
+        scope.fork(failing);
+        server.takeRequest();
+        CallSpec<String, HttpError> hanging = spec(api, "/b");
+        scope.fork(hanging);
+        try {
+            scope.join();
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected).isNotInstanceOf(InterruptedIOException.class);
+        }
+        assertThat(hanging.isCanceled()).isTrue();
+        scope.close();
+    }
+
+    @Test
+    public void deadlineCancelsRemainingCalls() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        XingApi api = api();
+
+        CallScope scope = new CallScope(api, 100, TimeUnit.MILLISECONDS);
+        CallSpec<String, HttpError> hanging = spec(api, "/a");
+        CallScope.Task<String, HttpError> task = scope.fork(hanging);
+        try {
+            scope.join();
+            fail("InterruptedIOException expected");
+        } catch (InterruptedIOException expected) {
+            assertThat(expected).hasMessage("Deadline exceeded");
+        }
+        assertThat(hanging.isCanceled()).isTrue();
+        scope.close();
+        try {
+            task.response();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void closedScopeRejectsForks() throws Exception {
+        XingApi api = api();
+        CallScope scope = new CallScope(api);
+        scope.close();
+        try {
+            scope.fork(spec(api, "/a"));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            assertThat(expected).hasMessage("Scope already closed");
+        }
+    }
+
+    @Test
+    public void virtualThreadsFallBackToDispatcher() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        XingApi api = new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .virtualThreads(true)
+              .build();
+
+        // Works on every JVM, with or without virtual threads.
+        assertThat(spec(api, "/a").execute().body()).isEqualTo("a");
+        assertThat(api.client().dispatcher().getMaxRequestsPerHost()).isEqualTo(5);
+    }
+
+    private XingApi api() {
+        return new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .build();
+    }
+
+    private static CallSpec<String, HttpError> spec(XingApi api, String path) {
+        return new CallSpec.Builder<String, HttpError>(api, HttpMethod.GET, path, false)
+              .responseAs(String.class)
+              .build();
+    }
+}
@@ -17,6 +17,8 @@ package com.xing.api;
 
 import com.xing.api.CallSpec.Builder;
 import com.xing.api.HttpError.Error.Reason;
+import com.xing.api.data.profile.UserField;
+import com.xing.api.data.profile.XingUser;
 
 import org.junit.After;
 import org.junit.Before;
@@ -27,6 +29,7 @@ import org.junit.rules.ExpectedException;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -517,6 +520,7 @@ public class CallSpecTest {
                 .build()
                 .completableResponse()
                 .test()
+                .awaitDone(5, TimeUnit.SECONDS)
                 .assertError(SSLPeerUnverifiedException.class);
     }
 
@@ -544,6 +548,7 @@ public class CallSpecTest {
               .build()
               .completableResponse()
               .test()
+              .awaitDone(5, TimeUnit.SECONDS)
               .assertNoErrors();
     }
 
@@ -557,6 +562,53 @@ public class CallSpecTest {
         assertThat(response.range()).isNotNull().isEqualTo(new ContentRange(1, 10, 20));
     }
 
+    @Test
+    public void listSizeHintFromRangeOrLimit() throws Exception {
+        HttpUrl url = HttpUrl.get("https://api.xing.com/v1/users/me/contacts?limit=25");
+        HttpUrl noLimit = HttpUrl.get("https://api.xing.com/v1/users/me/contacts");
+
+        assertThat(RealCallSpec.listSizeHint(new ContentRange(20, 29, 42), url)).isEqualTo(10);
+        assertThat(RealCallSpec.listSizeHint(new ContentRange(-1, -1, 0), url)).isEqualTo(0);
+        assertThat(RealCallSpec.listSizeHint(null, url)).isEqualTo(25);
+        assertThat(RealCallSpec.listSizeHint(null, noLimit)).isEqualTo(-1);
+        assertThat(RealCallSpec.listSizeHint(null, HttpUrl.get("https://api.xing.com/?limit=abc"))).isEqualTo(-1);
+        assertThat(RealCallSpec.listSizeHint(new ContentRange(0, 99999, -1), noLimit))
+              .isEqualTo(RealCallSpec.MAX_LIST_SIZE_HINT);
+    }
+
+    @Test
+    public void userFieldsProjectRequestAndDecoding() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"users\":[" + TestUtils.file("user.json") + "]}"));
+
+        CallSpec<XingUser, HttpError> spec = this.<XingUser, HttpError>builder(HttpMethod.GET, "/", false)
+              .responseAs(Converter.first(XingUser.class, "users"))
+              .build()
+              .userFields(EnumSet.of(UserField.DISPLAY_NAME, UserField.PHOTO_URLS));
+        XingUser user = spec.execute().body();
+
+        assertThat(spec.request().url().queryParameter("user_fields")).isEqualTo("id,display_name,photo_urls");
+        assertThat(user.id()).isNotNull();
+        assertThat(user.displayName()).isNotNull();
+        assertThat(user.photoUrls()).isNotNull();
+        assertThat(user.firstName()).isNull();
+        assertThat(user.professionalExperience()).isNull();
+
+        // Clones keep the projection.
+        server.enqueue(new MockResponse().setBody("{\"users\":[" + TestUtils.file("user.json") + "]}"));
+        assertThat(spec.clone().execute().body().firstName()).isNull();
+    }
+
+    @Test
+    public void userFieldsReplacePreviousUserFields() throws Exception {
+        CallSpec<XingUser, HttpError> spec = this.<XingUser, HttpError>builder(HttpMethod.GET, "/", false)
+              .responseAs(Converter.first(XingUser.class, "users"))
+              .build()
+              .userFields(EnumSet.of(UserField.DISPLAY_NAME))
+              .userFields(EnumSet.of(UserField.FIRST_NAME));
+
+        assertThat(spec.request().url().queryParameterValues("user_fields")).containsExactly("id,first_name");
+    }
+
     @Test
     public void specHandlesSuccessResponseAsVoid() throws Exception {
         server.enqueue(new MockResponse().setBody("Hello"));
@@ -1022,6 +1074,7 @@ public class CallSpecTest {
 
         spec.completableResponse()
               .test()
+              .awaitDone(5, TimeUnit.SECONDS)
               .assertComplete();
     }
 
@@ -1044,6 +1097,7 @@ public class CallSpecTest {
 
         spec.completableResponse()
               .test()
+              .awaitDone(5, TimeUnit.SECONDS)
               .assertNotComplete()
               .assertError(new Predicate<Throwable>() {
                   @Override
@@ -1075,6 +1129,7 @@ public class CallSpecTest {
 
         spec.completableResponse()
               .test()
+              .awaitDone(5, TimeUnit.SECONDS)
               .assertError(IOException.class);
     }
 
@@ -1088,6 +1143,7 @@ public class CallSpecTest {
 
         spec.completableResponse()
               .test()
+              .awaitDone(5, TimeUnit.SECONDS)
               .assertError(IOException.class)
               .assertError(new Predicate<Throwable>() {
                   @Override
@@ -1126,7 +1182,7 @@ public class CallSpecTest {
                     .build().singleResponse();
 
         long before = System.currentTimeMillis();
-        TestObserver<ResponseBody> testObserver = singleResponse.test();
+        TestObserver<ResponseBody> testObserver = singleResponse.test().awaitDone(5, TimeUnit.SECONDS);
         long diff = System.currentTimeMillis() - before;
 
         testObserver.assertError(SocketTimeoutException.class);
@@ -1166,7 +1222,7 @@ public class CallSpecTest {
                     .build().singleResponse();
 
         long before = System.currentTimeMillis();
-        TestObserver<ResponseBody> testObserver = singleResponse.test();
+        TestObserver<ResponseBody> testObserver = singleResponse.test().awaitDone(5, TimeUnit.SECONDS);
         long diff = System.currentTimeMillis() - before;
 
         testObserver.assertError(SocketTimeoutException.class);
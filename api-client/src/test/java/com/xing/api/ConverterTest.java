@@ -18,14 +18,27 @@ package com.xing.api;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.JsonDataException;
 import com.squareup.moshi.Moshi;
+import com.xing.api.data.profile.XingUser;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
@@ -108,6 +121,27 @@ public class ConverterTest {
         assertThat(toJson).isEqualTo("{\"findMe\":{\"andMe\":{\"str\":\"test2\",\"val\":44}}}");
     }
 
+    @Test
+    public void singleObjectsSkipSiblingsOfRoots() throws Exception {
+        Type type = Converter.single(TestData.class, "findMe", "andMe");
+        TestData fromJson = fromJson(type, "{\n"
+              + "  \"find\": {\"andMe\": {\"val\": 1}},\n"
+              + "  \"findMe\": {\n"
+              + "    \"andMeToo\": [1, {\"andMe\": 2}],\n"
+              + "    \"andMe\": {\n"
+              + "      \"str\": \"test3\",\n"
+              + "      \"val\": 45\n"
+              + "    },\n"
+              + "    \"total\": 1\n"
+              + "  },\n"
+              + "  \"findMeNot\": null\n"
+              + '}');
+
+        assertThat(fromJson).isNotNull();
+        assertThat(fromJson.str).isEqualTo("test3");
+        assertThat(fromJson.val).isEqualTo(45);
+    }
+
     @Test
     public void singleObjectsWithNullObjectInside() throws Exception {
         Type type = Converter.single(TestData.class, "findMe", "andMe");
@@ -262,6 +296,22 @@ public class ConverterTest {
         assertThat(data.val).isEqualTo(0);
     }
 
+    @Test
+    public void firstInListSkipsRemainingElements() throws Exception {
+        Type compositeType = Converter.first(TestData.class, "content");
+        // The second element can't be decoded as TestData, but it's never decoded.
+        TestData data = fromJson(compositeType, "{\n"
+              + "  \"content\": [\n"
+              + "    {\"str\": \"zero\", \"val\": 0},\n"
+              + "    {\"str\": [\"one\"], \"val\": \"1\"}\n"
+              + "  ],\n"
+              + "  \"total\": 2\n"
+              + '}');
+
+        assertThat(data).isNotNull();
+        assertThat(data.str).isEqualTo("zero");
+    }
+
     @Test
     public void firstAsNullIfListEmpty() throws Exception {
         Type compositeType1 = Converter.first(TestData.class, "empty");
@@ -311,6 +361,23 @@ public class ConverterTest {
               + "]}");
     }
 
+    @Test
+    public void requestBodiesCanBeWrittenRepeatedly() throws Exception {
+        TestData data = new TestData();
+        data.str = "body";
+        data.val = 46;
+        RequestBody body = converter.convertToBody(Converter.single(TestData.class, "root"), data);
+        String expected = "{\"root\":{\"str\":\"body\",\"val\":46}}";
+
+        assertThat(body.contentType()).isEqualTo(Converter.MEDIA_TYPE_JSON);
+        assertThat(body.contentLength()).isEqualTo(expected.length());
+        for (int i = 0; i < 2; i++) {
+            Buffer sink = new Buffer();
+            body.writeTo(sink);
+            assertThat(sink.readUtf8()).isEqualTo(expected);
+        }
+    }
+
     @Test
     public void cachingJsonAdapters() throws Exception {
         Type type = Converter.list(String.class, "one", "two");
@@ -319,6 +386,70 @@ public class ConverterTest {
         assertThat(adapter1).isSameAs(adapter2);
     }
 
+    @Test
+    public void projectionsAreInterned() throws Exception {
+        Type type = Converter.list(XingUser.class, "users");
+        Type projected = Converter.project(type, new LinkedHashSet<>(Arrays.asList("id", "display_name")));
+
+        assertThat(projected).isNotEqualTo(type);
+        assertThat(Converter.project(Converter.list(XingUser.class, "users"),
+              new LinkedHashSet<>(Arrays.asList("id", "display_name")))).isSameAs(projected);
+        assertThat(Converter.project(type, new LinkedHashSet<>(Arrays.asList("id")))).isNotEqualTo(projected);
+        assertThat(Converter.project(TestData.class, new LinkedHashSet<>(Arrays.asList("id")))).isSameAs(TestData.class);
+    }
+
+    @Test
+    public void adaptersAreCachedPerConverter() throws Exception {
+        Type type = Converter.first(TestData.class, "content");
+        Converter other = new Converter(moshi);
+
+        JsonAdapter<TestData> adapter = converter.findAdapter(type);
+        JsonAdapter<TestData> otherAdapter = other.findAdapter(type);
+        assertThat(otherAdapter).isNotSameAs(adapter);
+        // Switching between converters must not leak adapters from one to the other.
+        assertThat(converter.findAdapter(type)).isSameAs(adapter);
+        assertThat(converter.findAdapter(Converter.first(TestData.class, "content"))).isSameAs(adapter);
+        assertThat(other.findAdapter(type)).isSameAs(otherAdapter);
+    }
+
+    @Test
+    public void concurrentLookupsCreateAdaptersOnce() throws Exception {
+        final AtomicInteger creations = new AtomicInteger();
+        final Converter converter = new Converter(new Moshi.Builder()
+              .add(new JsonAdapter.Factory() {
+                  @Override
+                  public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+                      if (type != TestData.class) return null;
+                      creations.incrementAndGet();
+                      return moshi.nextAdapter(this, type, annotations);
+                  }
+              })
+              .build());
+        final Type type = Converter.first(TestData.class, "users");
+
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<JsonAdapter<Object>>> results = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<JsonAdapter<Object>>() {
+                @Override
+                public JsonAdapter<Object> call() throws Exception {
+                    start.await();
+                    return converter.findAdapter(Converter.first(TestData.class, "users"));
+                }
+            }));
+        }
+        start.countDown();
+
+        JsonAdapter<Object> expected = converter.findAdapter(type);
+        for (Future<JsonAdapter<Object>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(expected);
+        }
+        executor.shutdown();
+        assertThat(creations.get()).isEqualTo(1);
+    }
+
     @SuppressWarnings("unchecked") // This is the callers responsibility.
     private <T> T fromJson(Type type, String json) throws Exception {
         if (json == null) return null;
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("MagicNumber")
+public class DiskStoreTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveReopening() throws Exception {
+        File directory = folder.newFolder();
+        DiskStore store = store(directory, 1024 * 1024);
+        store.write("users", new ArrayList<>(Arrays.asList("a", "b")), new ContentRange(0, 1, 2), "\"v1\"", null, 42L);
+        store.write("me", "profile", null, null, null, 7L);
+        store.write("me", "updated profile", null, null, null, 8L);
+        store.awaitWrites();
+
+        DiskStore reopened = store(directory, 1024 * 1024);
+        DiskStore.Record users = reopened.read("users");
+        assertThat(users.body).isEqualTo(Arrays.asList("a", "b"));
+        assertThat(users.range).isEqualTo(new ContentRange(0, 1, 2));
+        assertThat(users.etag).isEqualTo("\"v1\"");
+        assertThat(users.lastModified).isNull();
+        assertThat(users.expiresAt).isEqualTo(42L);
+        DiskStore.Record me = reopened.read("me");
+        assertThat(me.body).isEqualTo("updated profile");
+        assertThat(me.range).isNull();
+        assertThat(reopened.read("unknown")).isNull();
+    }
+
+    @Test
+    public void corruptedRecordsAreMissing() throws Exception {
+        File directory = folder.newFolder();
+        DiskStore store = store(directory, 1024 * 1024);
+        store.write("first", "first value", null, null, null, 1L);
+        store.awaitWrites();
+        File segment = directory.listFiles()[0];
+        long secondStart = segment.length();
+        store.write("second", "second value", null, null, null, 1L);
+        store.awaitWrites();
+
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            // Flip the last byte of the first record's payload, then cut the second record in half.
+            file.seek(secondStart - 9);
+            int value = file.read();
+            file.seek(secondStart - 9);
+            file.write(value ^ 0xff);
+            file.setLength(secondStart + 10);
+        } finally {
+            file.close();
+        }
+
+        DiskStore reopened = store(directory, 1024 * 1024);
+        assertThat(reopened.read("first")).isNull();
+        assertThat(reopened.read("second")).isNull();
+
+        // New records go after the last intact one.
+        reopened.write("third", "third value", null, null, null, 1L);
+        reopened.awaitWrites();
+        assertThat(store(directory, 1024 * 1024).read("third").body).isEqualTo("third value");
+    }
+
+    @Test
+    public void recordsAfterABadMagicAreKept() throws Exception {
+        File directory = folder.newFolder();
+        File segment = threeRecords(directory);
+
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.seek(0L);
+            file.writeInt(0);
+        } finally {
+            file.close();
+        }
+
+        DiskStore reopened = store(directory, 1024 * 1024);
+        assertThat(reopened.read("first")).isNull();
+        assertThat(reopened.read("second").body).isEqualTo("second value");
+        assertThat(reopened.read("third").body).isEqualTo("third value");
+        assertThat(reopened.garbage()).isGreaterThan(0L);
+        assertThat(reopened.size()).isEqualTo(segment.length());
+    }
+
+    @Test
+    public void recordsAfterABadHeaderAreKept() throws Exception {
+        File directory = folder.newFolder();
+        File segment = threeRecords(directory);
+
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            // The payload length of "first", which now runs past the end of the segment.
+            file.seek(4 + 2 + 5 + 8 + 3 * 4 + 2 + 2);
+            file.writeInt(Integer.MAX_VALUE);
+        } finally {
+            file.close();
+        }
+
+        DiskStore reopened = store(directory, 1024 * 1024);
+        assertThat(reopened.read("first")).isNull();
+        assertThat(reopened.read("second").body).isEqualTo("second value");
+        assertThat(reopened.read("third").body).isEqualTo("third value");
+
+        reopened.write("fourth", "fourth value", null, null, null, 1L);
+        reopened.awaitWrites();
+        DiskStore again = store(directory, 1024 * 1024);
+        assertThat(again.read("third").body).isEqualTo("third value");
+        assertThat(again.read("fourth").body).isEqualTo("fourth value");
+    }
+
+    @Test
+    public void oldestSegmentsAreEvicted() throws Exception {
+        File directory = folder.newFolder();
+        long maxSize = 256 * 1024;
+        DiskStore store = store(directory, maxSize);
+        char[] chars = new char[10 * 1024];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("key" + i);
+            store.write("key" + i, value, null, null, null, 1L);
+        }
+        store.awaitWrites();
+
+        assertThat(store.size()).isLessThanOrEqualTo(maxSize);
+        assertThat(store.read(keys.get(0))).isNull();
+        assertThat(store.read(keys.get(99)).body).isEqualTo(value);
+    }
+
+    @Test
+    public void renewRewritesOnlyTheExpiry() throws Exception {
+        File directory = folder.newFolder();
+        DiskStore store = store(directory, 1024 * 1024);
+        store.write("me", "profile", null, "\"v1\"", null, 1L);
+        store.awaitWrites();
+        long size = store.size();
+
+        store.renew("me", 42L);
+        store.renew("unknown", 42L);
+        store.awaitWrites();
+
+        assertThat(store.size()).isEqualTo(size);
+        assertThat(store.garbage()).isEqualTo(0L);
+        DiskStore.Record me = store(directory, 1024 * 1024).read("me");
+        assertThat(me.expiresAt).isEqualTo(42L);
+        assertThat(me.body).isEqualTo("profile");
+        assertThat(me.etag).isEqualTo("\"v1\"");
+    }
+
+    @Test
+    public void readsDuringRenewalsKeepTheRecord() throws Exception {
+        DiskStore store = store(folder.newFolder(), 1024 * 1024);
+        store.write("me", "profile", null, null, null, 1L);
+        store.awaitWrites();
+
+        for (int i = 0; i < 2000; i++) {
+            store.renew("me", i);
+            assertThat(store.read("me")).isNotNull();
+        }
+        store.awaitWrites();
+        assertThat(store.read("me").expiresAt).isEqualTo(1999L);
+    }
+
+    @Test
+    public void supersededRecordsAreCompacted() throws Exception {
+        File directory = folder.newFolder();
+        long maxSize = 1024 * 1024;
+        DiskStore store = store(directory, maxSize);
+        char[] chars = new char[10 * 1024];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        store.write("kept", "kept value", null, null, null, 1L);
+        for (int i = 0; i < 200; i++) {
+            store.write("updated", value + i, null, null, null, 1L);
+        }
+        store.awaitWrites();
+
+        // Without compaction the oldest segment, holding the kept record, would have been evicted.
+        assertThat(store.read("kept").body).isEqualTo("kept value");
+        assertThat(store.read("updated").body).isEqualTo(value + 199);
+        assertThat(store.size()).isLessThan(maxSize / 2);
+
+        DiskStore reopened = store(directory, maxSize);
+        assertThat(reopened.garbage()).isEqualTo(store.garbage());
+        assertThat(reopened.read("kept").body).isEqualTo("kept value");
+    }
+
+    @Test
+    public void onlyAllowedTypesAreRead() throws Exception {
+        File directory = folder.newFolder();
+        DiskStore store = store(directory, 1024 * 1024);
+        store.write("file", new File("not/a/model"), null, null, null, 1L);
+        store.write("note", new Note("allowed"), null, null, null, 1L);
+        store.write("notes", new ArrayList<>(Collections.singletonList(new Note("nested"))), null, null, null, 1L);
+        store.awaitWrites();
+
+        assertThat(store.read("file")).isNull();
+        assertThat(store.read("note")).isNull();
+        Set<String> allowed = Collections.singleton(Note.class.getName());
+        DiskStore allowing = new DiskStore(directory, 1024 * 1024, allowed);
+        assertThat(((Note) allowing.read("note").body).text).isEqualTo("allowed");
+        assertThat(allowing.read("notes").body).isInstanceOf(List.class);
+        assertThat(allowing.read("file")).isNull();
+    }
+
+    /** Writes the records "first", "second" and "third" and returns the segment holding them. */
+    private static File threeRecords(File directory) throws Exception {
+        DiskStore store = store(directory, 1024 * 1024);
+        store.write("first", "first value", null, null, null, 1L);
+        store.write("second", "second value", null, null, null, 1L);
+        store.write("third", "third value", null, null, null, 1L);
+        store.awaitWrites();
+        return directory.listFiles()[0];
+    }
+
+    private static DiskStore store(File directory, long maxSize) {
+        return new DiskStore(directory, maxSize, Collections.<String>emptySet());
+    }
+
+    static final class Note implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String text;
+
+        Note(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -19,49 +19,51 @@ package com.xing.api;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Random;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 import okhttp3.FormBody;
 import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import okio.ByteString;
+import okio.Buffer;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.assertj.core.api.Assertions.fail;
 
 @SuppressWarnings("ClassNamingConvention")
 public final class OAuth1SigningInterceptorTest {
     OAuth1SigningInterceptor oauth1;
+    NonceProvider notRandom;
+    TimestampProvider clock;
 
     @Before
     public void setUp() throws Exception {
         // Data from https://dev.twitter.com/oauth/overview/authorizing-requests.
         // Tested via http://www.oauth-signatur.de/en
-        Random notRandom = new Random() {
+        notRandom = new NonceProvider() {
             @Override
-            public void nextBytes(byte[] bytes) {
-                if (bytes.length != 32) {
-                    throw new AssertionError();
-                }
-                ByteString hex = ByteString.decodeBase64("kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4c+g");
-                byte[] nonce = hex.toByteArray();
-                System.arraycopy(nonce, 0, bytes, 0, nonce.length);
+            public String nonce() {
+                return "kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg";
             }
         };
 
         // Mock the time :)
-        OAuth1SigningInterceptor.Clock clock = mock(OAuth1SigningInterceptor.Clock.class);
-        when(clock.millis()).thenReturn("1318622958");
+        clock = new TimestampProvider() {
+            @Override
+            public String timestamp() {
+                return "1318622958";
+            }
+        };
 
         oauth1 = new OAuth1SigningInterceptor.Builder()
               .consumerKey("xvz1evFS4wEEPTGEFPHBog")
               .consumerSecret("kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw")
               .accessToken("370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb")
               .accessSecret("LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE")
-              .random(notRandom)
-              .clock(clock)
+              .nonceProvider(notRandom)
+              .timestampProvider(clock)
               .build();
     }
 
@@ -79,6 +81,25 @@ public final class OAuth1SigningInterceptorTest {
         assertAuthHeader(signed, "tnnArxj06cWHq44gCs1OSKk%2FjLY%3D");
     }
 
+    @Test
+    public void withOpaqueFormEncodedBody() throws Exception {
+        FormBody form = new FormBody.Builder()
+              .add("status", "Hello Ladies + Gentlemen, a signed OAuth request!")
+              .build();
+        Buffer encoded = new Buffer();
+        form.writeTo(encoded);
+        // Not a FormBody, the parameters are read from the serialized body.
+        RequestBody body = RequestBody.create(MediaType.parse("application/x-www-form-urlencoded"),
+              encoded.readByteString());
+        Request request = new Request.Builder()
+              .url("https://api.twitter.com/1/statuses/update.json?include_entities=true")
+              .post(body)
+              .build();
+
+        Request signed = oauth1.signRequest(request);
+        assertAuthHeader(signed, "tnnArxj06cWHq44gCs1OSKk%2FjLY%3D");
+    }
+
     @Test
     public void withJsonBody() throws Exception {
         RequestBody body = RequestBody.create(MediaType.parse("application/json"), "{\"key\":\"value\"}");
@@ -131,6 +152,127 @@ public final class OAuth1SigningInterceptorTest {
         assertAuthHeader(signed, "Z3saYRlzqfBzE%2BWTEzZtolIhJkc%3D");
     }
 
+    @Test
+    public void signerIsReusedAcrossRequests() throws Exception {
+        Request large = new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/?a=1&b=2&c=3&d=4&e=5&f=6&g=7&h=8&i=9&j=10&k=11")
+              .build();
+        oauth1.signRequest(large);
+
+        // Parameters and buffers of the previous request must not leak into the next one.
+        Request request = new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/mentions_timeline.json?count=100&include_entities=false")
+              .build();
+        assertAuthHeader(oauth1.signRequest(request), "hn5jxegoQxNM6SXvQgVhK15yQL8%3D");
+    }
+
+    @Test
+    public void defaultNoncesAreAlphanumericAndUnique() throws Exception {
+        NonceProvider nonces = new OAuth1SigningInterceptor.RandomNonceProvider();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String nonce = nonces.nonce();
+            assertThat(nonce).matches("[A-Za-z0-9]{32}");
+            assertThat(seen.add(nonce)).isTrue();
+        }
+    }
+
+    @Test
+    public void defaultTimestampIsCurrentSecond() throws Exception {
+        TimestampProvider timestamps = new OAuth1SigningInterceptor.SystemTimestampProvider();
+        long before = System.currentTimeMillis() / 1000L;
+        long timestamp = Long.parseLong(timestamps.timestamp());
+        long after = System.currentTimeMillis() / 1000L;
+        assertThat(timestamp).isBetween(before, after);
+    }
+
+    @Test
+    public void templatedRequestsSignAlike() throws Exception {
+        RequestBody body = new FormBody.Builder()
+              .add("status", "Hello Ladies + Gentlemen, a signed OAuth request!")
+              .build();
+        Request post = new Request.Builder()
+              .url("https://api.twitter.com/1/statuses/update.json?include_entities=true")
+              .post(body)
+              .build();
+        assertAuthHeader(oauth1.signRequest(compiled(post)), "tnnArxj06cWHq44gCs1OSKk%2FjLY%3D");
+
+        Request get = new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/home_timeline.json?since_id=12&since_id=13")
+              .build();
+        assertAuthHeader(oauth1.signRequest(compiled(get)), "R8m%2BYY%2FZG5GJ%2F%2F3zCrE65DkTdCk%3D");
+    }
+
+    @Test
+    public void templatedRequestParameterReplacesOauthParameter() throws Exception {
+        Request request = new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/?oauth_version=2.0&a=b&zzz=z")
+              .build();
+
+        assertThat(oauth1.signRequest(compiled(request)).header("Authorization"))
+              .isEqualTo(oauth1.signRequest(request).header("Authorization"));
+    }
+
+    @Test
+    public void alteredTemplatedRequestIsSignedInFull() throws Exception {
+        Request compiled = compiled(new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/?keywords=Someone")
+              .build());
+        Request altered = compiled.newBuilder()
+              .url("https://api.twitter.com/1.1/statuses/?keywords=JohnKramer")
+              .build();
+
+        assertAuthHeader(oauth1.signRequest(altered), "kGp3zke%2Fv6IfGi%2B6eVmORqej4Wg%3D");
+    }
+
+    @Test
+    public void signsWithRequestCredentials() throws Exception {
+        OAuth1SigningInterceptor multiUser = new OAuth1SigningInterceptor.Builder()
+              .consumerKey("xvz1evFS4wEEPTGEFPHBog")
+              .consumerSecret("kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw")
+              .nonceProvider(notRandom)
+              .timestampProvider(clock)
+              .multiUser()
+              .build();
+        OAuth1Credentials credentials = new OAuth1Credentials("370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb",
+              "LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE");
+        Request request = new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/mentions_timeline.json?count=100&include_entities=false")
+              .tag(OAuth1Credentials.class, credentials)
+              .build();
+
+        assertAuthHeader(multiUser.signRequest(request), "hn5jxegoQxNM6SXvQgVhK15yQL8%3D");
+        OAuth1Signer signer = credentials.signer;
+        assertAuthHeader(multiUser.signRequest(request), "hn5jxegoQxNM6SXvQgVhK15yQL8%3D");
+        assertThat(credentials.signer).isSameAs(signer);
+
+        try {
+            multiUser.signRequest(request.newBuilder().tag(OAuth1Credentials.class, null).build());
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected).hasMessageContaining("No OAuth1 credentials");
+        }
+    }
+
+    @Test
+    public void requestCredentialsOverrideDefaultCredentials() throws Exception {
+        Request request = new Request.Builder()
+              .url("https://api.twitter.com/1.1/statuses/mentions_timeline.json?count=100&include_entities=false")
+              .tag(OAuth1Credentials.class, new OAuth1Credentials("other_token", "other_secret"))
+              .build();
+
+        assertThat(oauth1.signRequest(request).header("Authorization"))
+              .contains("oauth_token=\"other_token\"")
+              .doesNotContain("hn5jxegoQxNM6SXvQgVhK15yQL8%3D");
+        // The default credentials sign as before on the same thread.
+        assertAuthHeader(oauth1.signRequest(request.newBuilder().tag(OAuth1Credentials.class, null).build()),
+              "hn5jxegoQxNM6SXvQgVhK15yQL8%3D");
+    }
+
+    private static Request compiled(Request request) throws Exception {
+        return request.newBuilder().tag(OAuth1Signer.Template.class, OAuth1Signer.compile(request)).build();
+    }
+
     /** Asserts that the provided request contains an expected header, with provided oauth signature. */
     private static void assertAuthHeader(Request request, String signature) {
         assertThat(request.header("Authorization")).isEqualTo(
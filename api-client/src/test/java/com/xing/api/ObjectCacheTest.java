@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@SuppressWarnings("MagicNumber")
+public class ObjectCacheTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cacheFirstServesDecodedBody() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"cached\"}"));
+        ObjectCache cache = new ObjectCache.Builder().build();
+        XingApi api = api(cache);
+
+        Message first = spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+        Message second = spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+
+        assertThat(second).isSameAs(first);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1L);
+        assertThat(cache.stats().missCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void cacheFirstServesEnqueuedCalls() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"cached\"}"));
+        XingApi api = api(new ObjectCache.Builder().build());
+        Message first = spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+
+        final AtomicReference<Message> second = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).enqueue(new Callback<Message, HttpError>() {
+            @Override
+            public void onResponse(Response<Message, HttpError> response) {
+                second.set(response.body());
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail("unexpected #onFailure() call");
+            }
+        });
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get()).isSameAs(first);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void cacheIsKeptApartPerUser() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"first\"}"));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"second\"}"));
+        XingApi api = api(new ObjectCache.Builder().build());
+        OAuth1Credentials user = new OAuth1Credentials("token", "secret");
+
+        Message first = spec(api, "/msg").asUser(user).cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+        Message other = spec(api, "/msg").asUser(new OAuth1Credentials("other_token", "secret"))
+              .cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+        Message again = spec(api, "/msg").asUser(new OAuth1Credentials("token", "secret"))
+              .cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+
+        assertThat(first.msg).isEqualTo("first");
+        assertThat(other.msg).isEqualTo("second");
+        assertThat(again).isSameAs(first);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void networkOnlyBypassesCache() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"first\"}"));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"second\"}"));
+        ObjectCache cache = new ObjectCache.Builder().build();
+        XingApi api = api(cache);
+
+        spec(api, "/msg").execute();
+        assertThat(spec(api, "/msg").execute().body().msg).isEqualTo("second");
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void endpointTtlOverridesDefault() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"first\"}"));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"second\"}"));
+        XingApi api = api(new ObjectCache.Builder()
+              .ttl(1, TimeUnit.HOURS)
+              .ttl("/volatile", 0, TimeUnit.SECONDS)
+              .build());
+
+        spec(api, "/volatile/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        Message second = spec(api, "/volatile/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+
+        assertThat(second.msg).isEqualTo("second");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedByWeight() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody("{\"msg\":\"" + i + "\"}"));
+        }
+        ObjectCache cache = new ObjectCache.Builder().maxWeight(2).build();
+        XingApi api = api(cache);
+
+        spec(api, "/a").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        spec(api, "/b").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        // Touch "a", so that "b" is the least recently used.
+        spec(api, "/a").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        spec(api, "/c").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.weight()).isEqualTo(2L);
+        assertThat(cache.stats().evictionCount()).isEqualTo(1L);
+        assertThat(spec(api, "/a").cachePolicy(CachePolicy.CACHE_FIRST).execute().body().msg).isEqualTo("0");
+    }
+
+    @Test
+    public void networkFirstFallsBackToStaleEntry() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"stale\"}"));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        XingApi api = api(new ObjectCache.Builder().ttl(0, TimeUnit.SECONDS).build());
+
+        spec(api, "/msg").cachePolicy(CachePolicy.NETWORK_FIRST).execute();
+        Message fallback = spec(api, "/msg").cachePolicy(CachePolicy.NETWORK_FIRST).execute().body();
+
+        assertThat(fallback.msg).isEqualTo("stale");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void staleEntryIsRevalidatedWithConditionalRequest() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("{\"msg\":\"cached\"}"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        ObjectCache cache = new ObjectCache.Builder().ttl(0, TimeUnit.SECONDS).build();
+        XingApi api = api(cache);
+
+        Message first = spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute().body();
+        Response<Message, HttpError> revalidated = spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+
+        assertThat(revalidated.code()).isEqualTo(200);
+        assertThat(revalidated.body()).isSameAs(first);
+        assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+        assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"v1\"");
+        assertThat(cache.stats().hitCount()).isEqualTo(1L);
+        assertThat(cache.stats().missCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void notModifiedDoesNotRewriteDiskRecord() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("{\"msg\":\"cached\"}"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        File directory = folder.newFolder();
+        ObjectCache cache = new ObjectCache.Builder()
+              .ttl(0, TimeUnit.SECONDS)
+              .diskCache(directory, 1024 * 1024)
+              .diskCacheType(Message.class)
+              .build();
+        XingApi api = api(cache);
+
+        spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        cache.awaitDiskWrites();
+        long diskSize = cache.diskSize();
+        spec(api, "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        cache.awaitDiskWrites();
+
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(cache.diskSize()).isEqualTo(diskSize);
+        Response<Message, HttpError> restarted = spec(api(diskCache(directory)), "/msg")
+              .cachePolicy(CachePolicy.STALE_WHILE_REVALIDATE).execute();
+        assertThat(restarted.body().msg).isEqualTo("cached");
+    }
+
+    @Test
+    public void staleWhileRevalidateServesStaleEntryAndRefreshes() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Last-Modified", "Mon, 01 Jan 2018 00:00:00 GMT")
+              .setBody("{\"msg\":\"stale\"}"));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"refreshed\"}"));
+        ObjectCache cache = new ObjectCache.Builder()
+              .ttl(0, TimeUnit.SECONDS)
+              .weigher(new ObjectCache.Weigher() {
+                  @Override
+                  public int weigh(HttpUrl url, Object body) {
+                      return ((Message) body).msg.length();
+                  }
+              })
+              .build();
+        XingApi api = api(cache);
+
+        spec(api, "/msg").cachePolicy(CachePolicy.STALE_WHILE_REVALIDATE).execute();
+        Message stale = spec(api, "/msg").cachePolicy(CachePolicy.STALE_WHILE_REVALIDATE).execute().body();
+        assertThat(stale.msg).isEqualTo("stale");
+
+        server.takeRequest();
+        assertThat(server.takeRequest().getHeader("If-Modified-Since")).isEqualTo("Mon, 01 Jan 2018 00:00:00 GMT");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.weight() != "refreshed".length() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.weight()).isEqualTo("refreshed".length());
+        // The background revalidation counts neither as a hit nor as a miss.
+        assertThat(cache.stats().hitCount()).isEqualTo(1L);
+        assertThat(cache.stats().missCount()).isEqualTo(1L);
+
+        server.enqueue(new MockResponse().setResponseCode(304));
+        Message refreshed = spec(api, "/msg").cachePolicy(CachePolicy.STALE_WHILE_REVALIDATE).execute().body();
+        assertThat(refreshed.msg).isEqualTo("refreshed");
+        server.takeRequest();
+        Thread.sleep(100);
+        assertThat(cache.stats().hitCount()).isEqualTo(2L);
+        assertThat(cache.stats().missCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void diskCacheServesAfterRestart() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"persisted\"}"));
+        File directory = folder.newFolder();
+        ObjectCache cache = diskCache(directory);
+        spec(api(cache), "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        cache.awaitDiskWrites();
+
+        ObjectCache restarted = diskCache(directory);
+        Response<Message, HttpError> response =
+              spec(api(restarted), "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+
+        assertThat(response.body().msg).isEqualTo("persisted");
+        assertThat(response.code()).isEqualTo(200);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(restarted.stats().hitCount()).isEqualTo(1L);
+        // Promoted to memory.
+        assertThat(restarted.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void diskCacheIsKeptApartPerAccount() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"first\"}"));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"second\"}"));
+        File directory = folder.newFolder();
+        ObjectCache cache = diskCache(directory);
+        spec(api(cache, "first_token"), "/msg").cachePolicy(CachePolicy.CACHE_FIRST).execute();
+        cache.awaitDiskWrites();
+
+        // Another account logs in on the same device.
+        ObjectCache restarted = diskCache(directory);
+        Message other = spec(api(restarted, "second_token"), "/msg").cachePolicy(CachePolicy.CACHE_FIRST)
+              .execute().body();
+
+        assertThat(other.msg).isEqualTo("second");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(restarted.stats().hitCount()).isEqualTo(0L);
+    }
+
+    private XingApi api(ObjectCache cache, String accessToken) {
+        return new XingApi.Builder()
+              .oauth1()
+              .consumerKey("consumer_key")
+              .consumerSecret("consumer_secret")
+              .accessToken(accessToken)
+              .accessSecret("access_secret")
+              .apiEndpoint(server.url("/"))
+              .objectCache(cache)
+              .build();
+    }
+
+    private static ObjectCache diskCache(File directory) {
+        return new ObjectCache.Builder().diskCache(directory, 1024 * 1024).diskCacheType(Message.class).build();
+    }
+
+    private XingApi api(ObjectCache cache) {
+        return new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .objectCache(cache)
+              .build();
+    }
+
+    private static CallSpec<Message, HttpError> spec(XingApi api, String path) {
+        return new CallSpec.Builder<Message, HttpError>(api, HttpMethod.GET, path, false)
+              .responseAs(Message.class)
+              .build();
+    }
+
+    static final class Message implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        String msg;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import com.squareup.moshi.Types;
+import com.xing.api.Pager.PageCallback;
+import com.xing.api.Pager.PageIterator;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@SuppressWarnings("MagicNumber")
+public class PagerTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+
+    private XingApi mockApi;
+
+    @Before
+    public void setUp() {
+        mockApi = new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .build();
+    }
+
+    @Test
+    public void iteratorStopsAtTotal() throws Exception {
+        server.setDispatcher(new ItemsDispatcher(5, true));
+
+        PageIterator<List<Integer>> pages = spec().pager(2).prefetch(3).iterator();
+        List<List<Integer>> received = new ArrayList<>();
+        while (pages.hasNext()) {
+            received.add(pages.next());
+        }
+
+        assertThat(received).isEqualTo(pagesOf(listOf(0, 1), listOf(2, 3), listOf(4)));
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void iteratorStopsOnShortPageWithoutTotal() throws Exception {
+        server.setDispatcher(new ItemsDispatcher(3, false));
+
+        PageIterator<List<Integer>> pages = spec().pager(2).prefetch(0).iterator();
+        List<List<Integer>> received = new ArrayList<>();
+        while (pages.hasNext()) {
+            received.add(pages.next());
+        }
+
+        assertThat(received).isEqualTo(pagesOf(listOf(0, 1), listOf(2)));
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(server.takeRequest().getRequestUrl().queryParameter("offset")).isEqualTo("0");
+        assertThat(server.takeRequest().getRequestUrl().queryParameter("offset")).isEqualTo("2");
+    }
+
+    @Test
+    public void iteratorFailsOnErrorResponse() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("{}"));
+
+        PageIterator<List<Integer>> pages = spec().pager(2).iterator();
+        assertThat(pages.hasNext()).isTrue();
+        try {
+            pages.next();
+            fail("HttpException expected");
+        } catch (HttpException e) {
+            assertThat(e.code()).isEqualTo(500);
+        }
+        assertThat(pages.hasNext()).isFalse();
+    }
+
+    @Test
+    public void flowableEmitsPagesInOrder() {
+        server.setDispatcher(new ItemsDispatcher(7, true));
+
+        TestSubscriber<List<Integer>> subscriber = spec().pager(3).prefetch(2).flowable().test();
+        subscriber.awaitTerminalEvent(2, TimeUnit.SECONDS);
+
+        subscriber.assertValueSequence(pagesOf(listOf(0, 1, 2), listOf(3, 4, 5), listOf(6)));
+        subscriber.assertComplete();
+    }
+
+    @Test
+    public void enqueueDeliversPagesInOrder() throws Exception {
+        server.setDispatcher(new ItemsDispatcher(6, true));
+
+        final List<List<Integer>> received = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        final CountDownLatch latch = new CountDownLatch(1);
+        spec().pager(2).prefetch(2).enqueue(new PageCallback<List<Integer>>() {
+            @Override
+            public boolean onPage(List<Integer> page) {
+                received.add(page);
+                return true;
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail("unexpected #onFailure() call");
+            }
+        });
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).isEqualTo(pagesOf(listOf(0, 1), listOf(2, 3), listOf(4, 5)));
+    }
+
+    @Test
+    public void parallelRefillsWhileHeadIsPending() throws Exception {
+        final CountDownLatch lastRequested = new CountDownLatch(1);
+        final AtomicBoolean refilled = new AtomicBoolean();
+        server.setDispatcher(new ItemsDispatcher(10, true) {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String offset = request.getRequestUrl().queryParameter("offset");
+                try {
+                    // Hold back the second page until the last one was requested.
+                    if ("2".equals(offset)) refilled.set(lastRequested.await(2, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                if ("8".equals(offset)) lastRequested.countDown();
+                return super.dispatch(request);
+            }
+        });
+
+        List<List<Integer>> pages = spec().pager(2).parallel(3).all();
+
+        assertThat(refilled.get()).isTrue();
+        assertThat(pages).isEqualTo(pagesOf(listOf(0, 1), listOf(2, 3), listOf(4, 5), listOf(6, 7), listOf(8, 9)));
+        assertThat(server.getRequestCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void parallelLeavesApiDispatcherAlone() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        server.setDispatcher(new ItemsDispatcher(20, true) {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int now = running.incrementAndGet();
+                while (maxRunning.get() < now) maxRunning.compareAndSet(maxRunning.get(), now);
+                try {
+                    if (!"0".equals(request.getRequestUrl().queryParameter("offset"))) Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return super.dispatch(request);
+            }
+        });
+
+        assertThat(spec().pager(2).parallel(8).all()).hasSize(10);
+
+        // More than the api's dispatcher runs per host, but never more than asked for.
+        assertThat(maxRunning.get()).isGreaterThan(5).isLessThanOrEqualTo(8);
+        okhttp3.Dispatcher dispatcher = mockApi.client().dispatcher();
+        assertThat(dispatcher.getMaxRequestsPerHost()).isEqualTo(5);
+        assertThat(dispatcher.getMaxRequests()).isEqualTo(64);
+    }
+
+    @Test
+    public void pagerLeavesCallUntouched() throws Exception {
+        server.setDispatcher(new ItemsDispatcher(1, true));
+
+        CallSpec<List<Integer>, HttpError> spec = spec();
+        PageIterator<List<Integer>> pages = spec.pager(10).iterator();
+        assertThat(pages.next()).containsExactly(0);
+
+        assertThat(spec.isExecuted()).isFalse();
+        assertThat(spec.request().url().queryParameter("offset")).isNull();
+    }
+
+    private CallSpec<List<Integer>, HttpError> spec() {
+        return new CallSpec.Builder<List<Integer>, HttpError>(mockApi, HttpMethod.GET, "/items", false)
+              .responseAs(Types.newParameterizedType(List.class, Integer.class))
+              .build();
+    }
+
+    @SafeVarargs
+    private static List<List<Integer>> pagesOf(List<Integer>... pages) {
+        List<List<Integer>> list = new ArrayList<>(pages.length);
+        Collections.addAll(list, pages);
+        return list;
+    }
+
+    private static List<Integer> listOf(Integer... items) {
+        List<Integer> list = new ArrayList<>(items.length);
+        Collections.addAll(list, items);
+        return list;
+    }
+
+    /** Answers with the requested slice of {@code total} numbered items. */
+    private static class ItemsDispatcher extends Dispatcher {
+        private final int total;
+        private final boolean knownTotal;
+
+        ItemsDispatcher(int total, boolean knownTotal) {
+            this.total = total;
+            this.knownTotal = knownTotal;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            HttpUrl url = request.getRequestUrl();
+            int offset = Integer.parseInt(url.queryParameter("offset"));
+            int limit = Integer.parseInt(url.queryParameter("limit"));
+            int last = Math.min(offset + limit, total) - 1;
+
+            StringBuilder body = new StringBuilder("[");
+            for (int item = offset; item <= last; item++) {
+                if (item > offset) body.append(',');
+                body.append(item);
+            }
+            String range = last < offset ? "*" : offset + "-" + last;
+            return new MockResponse()
+                  .setHeader(ContentRange.HEADER_NAME, "items " + range + '/' + (knownTotal ? total : "*"))
+                  .setBody(body.append(']').toString());
+        }
+    }
+}
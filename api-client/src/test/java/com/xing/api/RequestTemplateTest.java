@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import okhttp3.FormBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestTemplateTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+
+    @Test
+    public void callsShareTheCompiledRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+        RequestTemplate<String, HttpError> template = builder(api()).template();
+
+        assertThat(template.newCall().execute().body()).isEqualTo("a");
+        CallSpec<String, HttpError> call = template.newCall();
+        assertThat(call.request()).isSameAs(template.request());
+        assertThat(call.execute().body()).isEqualTo("b");
+
+        RecordedRequest first = server.takeRequest();
+        RecordedRequest second = server.takeRequest();
+        assertThat(first.getPath()).isEqualTo("/users/me/visits?limit=10");
+        assertThat(second.getPath()).isEqualTo(first.getPath());
+        assertThat(first.getHeader("Authorization")).startsWith("OAuth ");
+        assertThat(second.getHeader("Authorization")).isNotEqualTo(first.getHeader("Authorization"));
+    }
+
+    @Test
+    public void alteredCallDropsTheCompiledRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        RequestTemplate<String, HttpError> template = builder(api()).template();
+
+        CallSpec<String, HttpError> call = template.newCall().queryParam("offset", 20);
+        assertThat(call.request()).isNotSameAs(template.request());
+        assertThat(call.execute().body()).isEqualTo("a");
+        assertThat(server.takeRequest().getPath()).isEqualTo("/users/me/visits?limit=10&offset=20");
+        assertThat(template.request().url().querySize()).isEqualTo(1);
+    }
+
+    @Test
+    public void alteredCallsDoNotAffectEachOther() throws Exception {
+        RequestTemplate<String, HttpError> template = builder(api()).template();
+
+        CallSpec<String, HttpError> first = template.newCall().queryParam("offset", 20).header("X-Page", "2");
+        CallSpec<String, HttpError> second = template.newCall().queryParam("offset", 40);
+        assertThat(first.request().url().encodedQuery()).isEqualTo("limit=10&offset=20");
+        assertThat(first.request().header("X-Page")).isEqualTo("2");
+        assertThat(second.request().url().encodedQuery()).isEqualTo("limit=10&offset=40");
+        assertThat(second.request().header("X-Page")).isNull();
+        assertThat(template.newCall().request()).isSameAs(template.request());
+        assertThat(template.request().url().encodedQuery()).isEqualTo("limit=10");
+
+        RequestTemplate<String, HttpError> form = new CallSpec.Builder<String, HttpError>(api(), HttpMethod.POST,
+              "/users/me/status_message", true)
+              .formField("message", "hello")
+              .responseAs(String.class)
+              .template();
+        FormBody firstForm = (FormBody) form.newCall().formField("id", "1").request().body();
+        FormBody secondForm = (FormBody) form.newCall().formField("id", "2").request().body();
+        assertThat(firstForm.size()).isEqualTo(2);
+        assertThat(firstForm.value(1)).isEqualTo("1");
+        assertThat(secondForm.size()).isEqualTo(2);
+        assertThat(secondForm.value(1)).isEqualTo("2");
+        assertThat(((FormBody) form.request().body()).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void callsOfOtherUsersKeepTheCompiledRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        RequestTemplate<String, HttpError> template = builder(api()).template();
+
+        CallSpec<String, HttpError> call = template.newCall().asUser(new OAuth1Credentials("token", "secret"));
+        assertThat(call.request().url()).isSameAs(template.request().url());
+        assertThat(call.execute().body()).isEqualTo("a");
+        assertThat(server.takeRequest().getHeader("Authorization")).contains("oauth_token=\"token\"");
+    }
+
+    @Test
+    public void callSpecReturnsTemplate() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        CallSpec<String, HttpError> spec = builder(api()).build();
+
+        assertThat(spec.template().newCall().execute().body()).isEqualTo("a");
+        assertThat(server.takeRequest().getPath()).isEqualTo("/users/me/visits?limit=10");
+    }
+
+    private XingApi api() {
+        return new XingApi.Builder()
+              .oauth1()
+              .consumerKey("consumer_key")
+              .consumerSecret("consumer_secret")
+              .accessToken("access_token")
+              .accessSecret("access_secret")
+              .apiEndpoint(server.url("/"))
+              .build();
+    }
+
+    private static CallSpec.Builder<String, HttpError> builder(XingApi api) {
+        return new CallSpec.Builder<String, HttpError>(api, HttpMethod.GET, "/users/{id}/visits", false)
+              .pathParam("id", "me")
+              .queryParam("limit", 10)
+              .responseAs(String.class);
+    }
+}
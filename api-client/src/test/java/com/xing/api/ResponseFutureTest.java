@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.disposables.Disposable;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@SuppressWarnings("MagicNumber")
+public class ResponseFutureTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+
+    @Test
+    public void completesWithResponse() throws Exception {
+        server.enqueue(new MockResponse().setBody("body"));
+        ResponseFuture<String, HttpError> future = spec(api(), "/").future();
+
+        assertThat(future.get(5, TimeUnit.SECONDS).body()).isEqualTo("body");
+        assertThat(future.isDone()).isTrue();
+        assertThat(future.isCancelled()).isFalse();
+    }
+
+    @Test
+    public void failsWithExecutionException() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        ResponseFuture<String, HttpError> future = spec(api(), "/").future();
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            assertThat(expected.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    public void whenCompleteRunsOnDispatcherThread() throws Exception {
+        server.enqueue(new MockResponse().setBody("body"));
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        spec(api(), "/").future().whenComplete(new Callback<String, HttpError>() {
+            @Override
+            public void onResponse(Response<String, HttpError> response) {
+                thread.set(Thread.currentThread());
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                latch.countDown();
+            }
+        });
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(thread.get()).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void cancelCancelsCall() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        XingApi api = api();
+        CallSpec<String, HttpError> spec = spec(api, "/");
+        ResponseFuture<String, HttpError> future = spec.future();
+        server.takeRequest();
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        future.whenComplete(new Callback<String, HttpError>() {
+            @Override
+            public void onResponse(Response<String, HttpError> response) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                failure.set(t);
+            }
+        });
+        assertThat(future.cancel(true)).isTrue();
+
+        assertThat(spec.isCanceled()).isTrue();
+        assertThat(failure.get()).isInstanceOf(CancellationException.class);
+        awaitIdle(api);
+        try {
+            future.get();
+            fail("CancellationException expected");
+        } catch (CancellationException expected) {
+        }
+        assertThat(future.cancel(true)).isFalse();
+    }
+
+    @Test
+    public void getTimesOut() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        ResponseFuture<String, HttpError> future = spec(api(), "/").future();
+
+        try {
+            future.get(50, TimeUnit.MILLISECONDS);
+            fail("TimeoutException expected");
+        } catch (TimeoutException expected) {
+        }
+        future.cancel(true);
+    }
+
+    @Test
+    public void disposingSingleCancelsCall() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        XingApi api = api();
+
+        Disposable disposable = spec(api, "/").singleRawResponse().subscribe();
+        server.takeRequest();
+        assertThat(api.client().dispatcher().runningCallsCount()).isEqualTo(1);
+        disposable.dispose();
+
+        awaitIdle(api);
+    }
+
+    private static void awaitIdle(XingApi api) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (api.client().dispatcher().runningCallsCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(api.client().dispatcher().runningCallsCount()).isEqualTo(0);
+    }
+
+    private XingApi api() {
+        return new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .build();
+    }
+
+    private static CallSpec<String, HttpError> spec(XingApi api, String path) {
+        return new CallSpec.Builder<String, HttpError>(api, HttpMethod.GET, path, false)
+              .responseAs(String.class)
+              .build();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("MagicNumber")
+public class SingleFlightTest {
+    @Rule
+    public final MockWebServer server = new MockWebServer();
+
+    private XingApi mockApi;
+
+    @Before
+    public void setUp() {
+        mockApi = new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .singleFlight(true)
+              .build();
+    }
+
+    @Test
+    public void identicalGetsShareOneCall() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"shared\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        RecordingCallback callback = new RecordingCallback(2);
+        spec(HttpMethod.GET, "/msg").enqueue(callback);
+        spec(HttpMethod.GET, "/msg").enqueue(callback);
+        Response<Message, HttpError> executed = spec(HttpMethod.GET, "/msg").execute();
+
+        assertThat(callback.await()).isTrue();
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(callback.bodies).hasSize(2);
+        assertThat(callback.bodies.get(0)).isSameAs(executed.body()).isSameAs(callback.bodies.get(1));
+        assertThat(executed.body().msg).isEqualTo("shared");
+    }
+
+    @Test
+    public void laterCallsStartANewFlight() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"first\"}"));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"second\"}"));
+
+        assertThat(spec(HttpMethod.GET, "/msg").execute().body().msg).isEqualTo("first");
+        assertThat(spec(HttpMethod.GET, "/msg").execute().body().msg).isEqualTo("second");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void differentUrlsAndPostsAreNotShared() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody("{\"msg\":\"" + i + "\"}")
+                  .setHeadersDelay(100, TimeUnit.MILLISECONDS));
+        }
+
+        RecordingCallback callback = new RecordingCallback(3);
+        spec(HttpMethod.GET, "/msg").enqueue(callback);
+        spec(HttpMethod.GET, "/other").enqueue(callback);
+        spec(HttpMethod.POST, "/msg").enqueue(callback);
+
+        assertThat(callback.await()).isTrue();
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void differentErrorTypesAreNotShared() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"msg\":\"bad\"}")
+                  .setHeadersDelay(100, TimeUnit.MILLISECONDS));
+        }
+
+        ResponseFuture<Message, HttpError> httpError = spec(HttpMethod.GET, "/msg").future();
+        ResponseFuture<Message, Message> messageError = new CallSpec.Builder<Message, Message>(
+              mockApi, HttpMethod.GET, "/msg", false)
+              .responseAs(Message.class)
+              .errorAs(Message.class)
+              .build()
+              .future();
+
+        assertThat(httpError.get(2, TimeUnit.SECONDS).error()).isInstanceOf(HttpError.class);
+        assertThat(messageError.get(2, TimeUnit.SECONDS).error().msg).isEqualTo("bad");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void sharedCallIsCancelledOnceAllLeft() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"shared\"}").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        RecordingCallback callback = new RecordingCallback(2);
+        CallSpec<Message, HttpError> first = spec(HttpMethod.GET, "/msg");
+        CallSpec<Message, HttpError> second = spec(HttpMethod.GET, "/msg");
+        first.enqueue(callback);
+        second.enqueue(callback);
+
+        first.cancel();
+        assertThat(callback.latch.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        second.cancel();
+
+        assertThat(callback.await()).isTrue();
+        assertThat(callback.failures).hasSize(2);
+        assertThat(callback.failures.get(0)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void cancellingTwiceLeavesOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"shared\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        RecordingCallback cancelled = new RecordingCallback(1);
+        RecordingCallback callback = new RecordingCallback(1);
+        CallSpec<Message, HttpError> first = spec(HttpMethod.GET, "/msg");
+        first.enqueue(cancelled);
+        spec(HttpMethod.GET, "/msg").enqueue(callback);
+
+        first.cancel();
+        first.cancel();
+
+        assertThat(callback.await()).isTrue();
+        assertThat(callback.failures).isEmpty();
+        assertThat(callback.bodies.get(0).msg).isEqualTo("shared");
+    }
+
+    @Test
+    public void abandonedFlightIsNotJoined() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"fresh\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"fresh\"}"));
+
+        CallSpec<Message, HttpError> abandoned = spec(HttpMethod.GET, "/msg");
+        abandoned.enqueue(new RecordingCallback(1));
+        abandoned.cancel();
+
+        assertThat(spec(HttpMethod.GET, "/msg").execute().body().msg).isEqualTo("fresh");
+    }
+
+    @Test
+    public void participantsKeepTheirOwnCallbackExecutor() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"msg\":\"shared\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        // Stands in for a busy main thread, it never runs the callbacks handed to it.
+        final List<Runnable> parked = new CopyOnWriteArrayList<>();
+        mockApi = new XingApi.Builder()
+              .custom()
+              .apiEndpoint(server.url("/"))
+              .singleFlight(true)
+              .callbackExecutor(new Executor() {
+                  @Override
+                  public void execute(Runnable command) {
+                      parked.add(command);
+                  }
+              })
+              .build();
+
+        spec(HttpMethod.GET, "/msg").enqueue(new RecordingCallback(1));
+        ResponseFuture<Message, HttpError> future = spec(HttpMethod.GET, "/msg").future();
+
+        assertThat(future.get(2, TimeUnit.SECONDS).body().msg).isEqualTo("shared");
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(parked).hasSize(1);
+    }
+
+    private CallSpec<Message, HttpError> spec(HttpMethod method, String path) {
+        return new CallSpec.Builder<Message, HttpError>(mockApi, method, path, false)
+              .responseAs(Message.class)
+              .build();
+    }
+
+    static final class Message {
+        String msg;
+    }
+
+    static final class RecordingCallback implements Callback<Message, HttpError> {
+        final List<Message> bodies = new CopyOnWriteArrayList<>();
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch;
+
+        RecordingCallback(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onResponse(Response<Message, HttpError> response) {
+            bodies.add(response.body());
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            failures.add(t);
+            latch.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(2, TimeUnit.SECONDS);
+        }
+    }
+}
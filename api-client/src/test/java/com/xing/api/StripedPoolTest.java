@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("MagicNumber")
+public class StripedPoolTest {
+    @Test
+    public void instancesAreSharedAcrossThreads() throws Exception {
+        final CountingPool pool = new CountingPool();
+        for (int i = 0; i < 100; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pool.release(pool.acquire());
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+
+        assertThat(pool.created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void instancesInUseAreNotShared() throws Exception {
+        CountingPool pool = new CountingPool();
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+        assertThat(second).isNotSameAs(first);
+
+        pool.release(first);
+        pool.release(second);
+        assertThat(pool.acquire()).isIn(first, second);
+        assertThat(pool.created.get()).isEqualTo(2);
+    }
+
+    static final class CountingPool extends StripedPool<Object> {
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        Object create() {
+            created.incrementAndGet();
+            return new Object();
+        }
+    }
+}
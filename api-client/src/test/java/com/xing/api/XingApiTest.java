@@ -26,7 +26,10 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.net.ssl.HostnameVerifier;
+
 import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
 import okhttp3.ResponseBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -88,6 +91,48 @@ public class XingApiTest {
         }
     }
 
+    @Test
+    public void builderMultiUser() throws Exception {
+        XingApi.MultiUserStep multiUserStep = new XingApi.Builder().multiUser();
+        assertBuildStep(multiUserStep);
+
+        try {
+            multiUserStep.build();
+            fail("Build should throw if the consumer is not set.");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage()).contains("not set");
+        }
+    }
+
+    @Test
+    public void multiUserSignsEachCallWithItsCredentials() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        XingApi api = new XingApi.Builder()
+              .multiUser()
+              .consumerKey("consumer_key")
+              .consumerSecret("consumer_secret")
+              .apiEndpoint(server.url("/"))
+              .build();
+
+        CallSpec<Void, HttpError> spec = new CallSpec.Builder<Void, HttpError>(api, HttpMethod.GET, "/", false)
+              .responseAs(Void.class)
+              .build();
+        spec.clone().asUser(new OAuth1Credentials("token_a", "secret_a")).execute();
+        spec.clone().asUser(new OAuth1Credentials("token_b", "secret_b")).execute();
+
+        assertThat(server.takeRequest().getHeader("Authorization")).contains("oauth_token=\"token_a\"");
+        assertThat(server.takeRequest().getHeader("Authorization")).contains("oauth_token=\"token_b\"");
+        try {
+            spec.clone().execute();
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected).hasMessageContaining("No OAuth1 credentials");
+        }
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
     @Test
     public void builderLoggedOut() throws Exception {
         XingApi.LoggedOutStep loggedOutStep = new XingApi.Builder().loggedOut();
@@ -100,6 +145,19 @@ public class XingApiTest {
         assertBuildStep(customStep);
     }
 
+    @Test
+    public void virtualThreadsRejectProvidedClient() throws Exception {
+        XingApi.CustomStep customStep = new XingApi.Builder().custom()
+              .client(new OkHttpClient())
+              .virtualThreads(true);
+        try {
+            customStep.build();
+            fail("Build should fail instead of replacing the client's dispatcher.");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage()).isEqualTo("virtualThreads(true) would replace the dispatcher of the client");
+        }
+    }
+
     @Test
     public void apiEndpointDefault() throws Exception {
         XingApi api = buildDefaultApi();
@@ -318,6 +376,30 @@ public class XingApiTest {
         verifyNoMoreInteractions(callback2);
     }
 
+    @Test
+    public void clientWithoutOverridesIsTheDefaultClient() throws Exception {
+        XingApi api = buildDefaultApi();
+        assertThat(api.client(-1, -1, -1, null)).isSameAs(api.client());
+    }
+
+    @Test
+    public void clientsWithOverridesAreDerivedOnce() throws Exception {
+        XingApi api = buildDefaultApi();
+        HostnameVerifier verifier = mock(HostnameVerifier.class);
+
+        OkHttpClient withReadTimeout = api.client(-1, 5, -1, null);
+        assertThat(withReadTimeout).isNotSameAs(api.client());
+        assertThat(withReadTimeout.readTimeoutMillis()).isEqualTo(5000);
+        assertThat(withReadTimeout.connectionPool()).isSameAs(api.client().connectionPool());
+        assertThat(withReadTimeout.dispatcher()).isSameAs(api.client().dispatcher());
+        assertThat(api.client(-1, 5, -1, null)).isSameAs(withReadTimeout);
+
+        OkHttpClient withVerifier = api.client(-1, 5, -1, verifier);
+        assertThat(withVerifier).isNotSameAs(withReadTimeout);
+        assertThat(withVerifier.hostnameVerifier()).isSameAs(verifier);
+        assertThat(api.client(-1, 5, -1, verifier)).isSameAs(withVerifier);
+    }
+
     private static XingApi buildDefaultApi() {
         return new XingApi.Builder().loggedOut().build();
     }
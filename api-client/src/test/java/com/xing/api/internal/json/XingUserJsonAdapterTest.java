@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.internal.json;
+
+import com.serjltt.moshi.adapters.FallbackEnum;
+import com.serjltt.moshi.adapters.FallbackOnNull;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.Moshi;
+import com.xing.api.data.profile.Address;
+import com.xing.api.data.profile.XingUser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static com.xing.api.TestUtils.file;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class XingUserJsonAdapterTest {
+    private final JsonAdapter<XingUser> eagerAdapter = moshi(false).adapter(XingUser.class);
+    private final JsonAdapter<XingUser> lazyAdapter = moshi(true).adapter(XingUser.class);
+
+    @Test
+    public void decodesLikeTheEagerAdapter() throws Exception {
+        String json = file("user.json");
+        XingUser eager = eagerAdapter.fromJson(json);
+        XingUser lazy = lazyAdapter.fromJson(json);
+
+        assertThat(lazy.displayName()).isEqualTo(eager.displayName());
+        assertThat(lazy.photoUrls()).isEqualTo(eager.photoUrls());
+        assertThat(lazy.professionalExperience()).isEqualTo(eager.professionalExperience());
+        assertThat(lazy.primaryInstitutionName()).isEqualTo(eager.primaryInstitutionName());
+        assertThat(lazy.isPremium()).isEqualTo(eager.isPremium());
+        assertThat(lazy).isEqualTo(eager);
+        assertThat(lazy.hashCode()).isEqualTo(eager.hashCode());
+        assertThat(lazyAdapter.toJson(lazyAdapter.fromJson(json))).isEqualTo(eagerAdapter.toJson(eager));
+    }
+
+    @Test
+    public void settersWinOverUndecodedBlocks() throws Exception {
+        XingUser lazy = lazyAdapter.fromJson(file("user.json"));
+        Address address = new Address().city("Hamburg");
+
+        lazy.businessAddress(address);
+        assertThat(lazy.businessAddress()).isSameAs(address);
+    }
+
+    @Test
+    public void invalidBlocksFailOnAccess() throws Exception {
+        XingUser lazy = lazyAdapter.fromJson("{\"id\":\"1\",\"display_name\":\"Lazy\",\"photo_urls\":[1,2]}");
+        assertThat(lazy.displayName()).isEqualTo("Lazy");
+
+        try {
+            lazy.photoUrls();
+            fail("JsonDataException expected.");
+        } catch (JsonDataException expected) {
+            assertThat(expected).hasMessage("Failed to decode photo_urls");
+        }
+    }
+
+    @Test
+    public void projectionDecodesOnlySelectedFields() throws Exception {
+        JsonAdapter<XingUser> adapter = XingUserJsonAdapter.projection(moshi(false),
+              new LinkedHashSet<>(Arrays.asList("id", "display_name", "photo_urls")));
+        XingUser eager = eagerAdapter.fromJson(file("user.json"));
+        XingUser projected = adapter.fromJson(file("user.json"));
+
+        assertThat(projected.id()).isEqualTo(eager.id());
+        assertThat(projected.displayName()).isEqualTo(eager.displayName());
+        assertThat(projected.photoUrls()).isEqualTo(eager.photoUrls());
+        assertThat(projected.firstName()).isNull();
+        assertThat(projected.businessAddress()).isNull();
+        assertThat(projected.professionalExperience()).isNull();
+    }
+
+    @Test
+    public void serializationDecodesAllBlocks() throws Exception {
+        String json = file("user.json");
+        XingUser lazy = lazyAdapter.fromJson(json);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(lazy);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertThat(in.readObject()).isEqualTo(eagerAdapter.fromJson(json));
+    }
+
+    private static Moshi moshi(boolean lazyUsers) {
+        Moshi.Builder builder = new Moshi.Builder();
+        if (lazyUsers) builder.add(XingUserJsonAdapter.LAZY_FACTORY);
+        return builder.add(FallbackOnNull.ADAPTER_FACTORY)
+              .add(FallbackEnum.ADAPTER_FACTORY)
+              .add(SafeEnumJsonAdapter.FACTORY)
+              .add(ContactPathJsonAdapter.FACTORY)
+              .add(BirthDateJsonAdapter.FACTORY)
+              .add(SafeCalendarJsonAdapter.FACTORY)
+              .add(PhoneJsonAdapter.FACTORY)
+              .add(CsvCollectionJsonAdapter.FACTORY)
+              .add(GeoCodeJsonAdapter.FACTORY)
+              .add(TimeZoneJsonAdapter.FACTORY)
+              .build();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 XING SE (http://xing.com/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xing.api.resources;
+
+import com.xing.api.data.profile.Industry;
+import com.xing.api.data.profile.Language;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@SuppressWarnings("MagicNumber")
+public class IndustrySnapshotTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsThroughMappedFile() throws Exception {
+        Map<Language, List<Industry>> industries = industries();
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            IndustrySnapshot.write(industries, Collections.singletonMap(Language.EN, "\"v1\""), out);
+        } finally {
+            out.close();
+        }
+
+        IndustrySnapshot snapshot = IndustrySnapshot.open(file);
+        assertThat(snapshot.languages()).containsOnly(Language.EN, Language.DE);
+        assertThat(snapshot.version(Language.EN)).isEqualTo("\"v1\"");
+        assertThat(snapshot.version(Language.DE)).isNull();
+        assertThat(snapshot.industries(Language.EN)).isEqualTo(industries.get(Language.EN));
+        assertThat(snapshot.industries(Language.DE)).isEqualTo(industries.get(Language.DE));
+        assertThat(snapshot.industries(Language.FR)).isNull();
+    }
+
+    @Test
+    public void looksUpSingleIndustryById() throws Exception {
+        IndustrySnapshot snapshot = IndustrySnapshot.read(new ByteArrayInputStream(bytes(industries())));
+
+        // Records are not sorted by id, the index is.
+        assertThat(snapshot.industry(Language.EN, 10000)).isEqualTo(industries().get(Language.EN).get(1));
+        assertThat(snapshot.industry(Language.EN, 20000).segments()).isNull();
+        assertThat(snapshot.industry(Language.EN, 10100)).isNull();
+        assertThat(snapshot.industry(Language.FR, 10000)).isNull();
+    }
+
+    @Test
+    public void rejectsOtherFormats() throws Exception {
+        try {
+            IndustrySnapshot.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected).hasMessage("Not an industry snapshot");
+        }
+    }
+
+    static Map<Language, List<Industry>> industries() {
+        Map<Language, List<Industry>> industries = new EnumMap<>(Language.class);
+        industries.put(Language.EN, Arrays.asList(
+              new Industry(20000, "Banking"),
+              new Industry(10000, "Architecture and planning", Arrays.asList(
+                    new Industry(10100, "Civil engineering", Collections.<Industry>emptyList()),
+                    new Industry(10200, "Construction", Collections.<Industry>emptyList())))));
+        industries.put(Language.DE, Collections.singletonList(new Industry(10000, "Architektur und Bauwesen")));
+        return industries;
+    }
+
+    static byte[] bytes(Map<Language, List<Industry>> industries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IndustrySnapshot.write(industries, Collections.<Language, String>emptyMap(), out);
+        return out.toByteArray();
+    }
+}
@@ -16,16 +16,24 @@
 package com.xing.api.resources;
 
 import com.xing.api.HttpError;
+import com.xing.api.OAuth1Credentials;
 import com.xing.api.Response;
+import com.xing.api.XingApi;
 import com.xing.api.data.profile.Industry;
 import com.xing.api.data.profile.Language;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.SocketPolicy;
 
 import static com.xing.api.TestUtils.file;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -36,6 +44,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 @SuppressWarnings({"ConstantConditions", "CollectionWithoutInitialCapacity"})
 public class MiscellaneousResourceTest extends ResourceTestCase<MiscellaneousResource> {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     public MiscellaneousResourceTest() {
         super(MiscellaneousResource.class);
     }
@@ -53,4 +64,64 @@ public class MiscellaneousResourceTest extends ResourceTestCase<MiscellaneousRes
         assertThat(industries.get(5).id()).isEqualTo(190000);
         assertThat(industries.get(5).segments().size()).isEqualTo(6);
     }
+
+    @Test
+    public void industryReferenceFetchesOnceAndServesSnapshot() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(file("industries.json")));
+        File file = new File(folder.getRoot(), "industries");
+        IndustryReference reference = new IndustryReference(resource, file, 1, TimeUnit.DAYS);
+
+        List<Industry> industries = reference.industries(Language.EN);
+        assertThat(industries.size()).isEqualTo(23);
+        assertThat(reference.industry(Language.EN, 190000).segments().size()).isEqualTo(6);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+
+        // A second client reads the snapshot without requesting the network.
+        IndustryReference restarted = new IndustryReference(resource, file, 1, TimeUnit.DAYS);
+        assertThat(restarted.industries(Language.EN)).isEqualTo(industries);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void industryReferenceRevalidatesStaleSnapshot() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(file("industries.json")));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        IndustryReference reference =
+              new IndustryReference(resource, new File(folder.getRoot(), "industries"), 0, TimeUnit.SECONDS);
+
+        List<Industry> industries = reference.industries(Language.EN);
+        assertThat(reference.industries(Language.EN)).isEqualTo(industries);
+        // Network failures fall back to the stale snapshot.
+        assertThat(reference.industries(Language.EN)).isEqualTo(industries);
+
+        assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+        assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"v1\"");
+    }
+
+    @Test
+    public void industryReferenceStartsFromSeed() throws Exception {
+        IndustryReference reference =
+              new IndustryReference(resource, new File(folder.getRoot(), "industries"), 1, TimeUnit.DAYS);
+        reference.seed(new ByteArrayInputStream(IndustrySnapshotTest.bytes(IndustrySnapshotTest.industries())));
+
+        assertThat(reference.industry(Language.DE, 10000).name()).isEqualTo("Architektur und Bauwesen");
+        assertThat(server.getRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void industryReferenceSignsForItsUser() throws Exception {
+        server.enqueue(new MockResponse().setBody(file("industries.json")));
+        XingApi multiUserApi = new XingApi.Builder()
+              .multiUser()
+              .consumerKey("consumer_key")
+              .consumerSecret("consumer_secret")
+              .apiEndpoint(server.url("/"))
+              .build();
+        IndustryReference reference = new IndustryReference(new MiscellaneousResource(multiUserApi),
+              new OAuth1Credentials("token", "secret"), new File(folder.getRoot(), "industries"), 1, TimeUnit.DAYS);
+
+        assertThat(reference.industries(Language.EN).size()).isEqualTo(23);
+        assertThat(server.takeRequest().getHeader("Authorization")).contains("oauth_token=\"token\"");
+    }
 }
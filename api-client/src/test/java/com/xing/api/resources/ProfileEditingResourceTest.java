@@ -32,11 +32,15 @@ import com.xing.api.data.profile.School;
 import com.xing.api.data.profile.WebProfile;
 import com.xing.api.data.profile.XingUser;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
@@ -44,6 +48,8 @@ import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
 
 import static com.xing.api.TestUtils.file;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -78,6 +84,9 @@ public class ProfileEditingResourceTest extends ResourceTestCase<ProfileEditingR
           + "  }\n"
           + '}';
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     public ProfileEditingResourceTest() {
         super(ProfileEditingResource.class);
     }
@@ -113,6 +122,34 @@ public class ProfileEditingResourceTest extends ResourceTestCase<ProfileEditingR
         testVoidSpec(resource.updateProfilePicture(RequestBody.create(MediaType.parse("multipart/form-data"), "")));
     }
 
+    @Test
+    public void updateOwnProfilePictureStreamed() throws Exception {
+        // Larger than a chunk and not a multiple of 3, so the last chunk is padded.
+        byte[] picture = new byte[20000];
+        new Random(42).nextBytes(picture);
+        File file = temporaryFolder.newFile("picture.png");
+        Okio.buffer(Okio.sink(file)).write(picture).close();
+
+        testVoidSpec(resource.updateProfilePicture(PictureUpload.pictureUploadPNG("picture.png", file)));
+        RecordedRequest request = server.takeRequest(500, TimeUnit.MILLISECONDS);
+        String expected = "{\"photo\":{"
+              + "\"file_name\":\"picture.png\","
+              + "\"mime_type\":\"image/png\","
+              + "\"content\":\"" + ByteString.of(picture).base64() + '"'
+              + "}}";
+        assertThat(request.getHeader("Content-Length")).isEqualTo(String.valueOf(expected.length()));
+        assertThat(request.getBody().readUtf8()).isEqualTo(expected);
+
+        Buffer source = new Buffer().write(picture, 0, 5);
+        testVoidSpec(resource.updateProfilePicture(PictureUpload.pictureUploadJPEG("picture.jpeg", source)));
+        request = server.takeRequest(500, TimeUnit.MILLISECONDS);
+        assertThat(request.getBody().readUtf8()).isEqualTo("{\"photo\":{"
+              + "\"file_name\":\"picture.jpeg\","
+              + "\"mime_type\":\"image/jpeg\","
+              + "\"content\":\"" + ByteString.of(picture, 0, 5).base64() + '"'
+              + "}}");
+    }
+
     @Test
     public void deleteOwnProfilePicture() throws Exception {
         testVoidSpec(resource.deleteProfilePicture());
@@ -16,7 +16,9 @@
 package com.xing.api.resources;
 
 import com.xing.api.HttpError;
+import com.xing.api.OAuth1Credentials;
 import com.xing.api.Response;
+import com.xing.api.XingApi;
 import com.xing.api.data.SafeCalendar;
 import com.xing.api.data.profile.ProfileMessage;
 import com.xing.api.data.profile.XingUser;
@@ -26,8 +28,11 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.observers.TestObserver;
 import okhttp3.mockwebserver.MockResponse;
 
 import static com.xing.api.TestUtils.file;
@@ -84,6 +89,57 @@ public final class UserProfilesResourceTest extends ResourceTestCase<UserProfile
         assertThat(response.body().id()).isEqualTo("123456_abcdef");
     }
 
+    @Test
+    public void userLoaderBatchesLookups() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\n"
+              + "  \"users\": [\n"
+              + "    \n"
+              + userJson + ", "
+              + "null"
+              + "  ]\n"
+              + '}'));
+
+        UserLoader loader = new UserLoader(resource);
+        TestObserver<XingUser> found = loader.load("123456_abcdef").test();
+        TestObserver<XingUser> missing = loader.load("another_id").test();
+        loader.flush();
+
+        found.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        missing.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        assertThat(found.values().get(0).id()).isEqualTo("123456_abcdef");
+        missing.assertError(NoSuchElementException.class);
+        assertThat(server.takeRequest().getPath()).isEqualTo("/v1/users/123456_abcdef,another_id");
+    }
+
+    @Test
+    public void userLoaderSignsForItsUserAndMatchesById() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\n"
+              + "  \"users\": [\n"
+              + "    \n"
+              + "null, "
+              + userJson
+              + "  ]\n"
+              + '}'));
+        XingApi multiUserApi = new XingApi.Builder()
+              .multiUser()
+              .consumerKey("consumer_key")
+              .consumerSecret("consumer_secret")
+              .apiEndpoint(server.url("/"))
+              .build();
+
+        UserLoader loader = new UserLoader(new UserProfilesResource(multiUserApi),
+              new OAuth1Credentials("token", "secret"));
+        TestObserver<XingUser> found = loader.load("123456_abcdef").test();
+        TestObserver<XingUser> missing = loader.load("another_id").test();
+        loader.flush();
+
+        found.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        missing.awaitTerminalEvent(2, TimeUnit.SECONDS);
+        assertThat(found.values().get(0).id()).isEqualTo("123456_abcdef");
+        missing.assertError(NoSuchElementException.class);
+        assertThat(server.takeRequest().getHeader("Authorization")).contains("oauth_token=\"token\"");
+    }
+
     @Test
     public void getOwnProfile() throws Exception {
         server.enqueue(new MockResponse().setBody("{\n"